@@ -1,19 +1,46 @@
 import {Button, Container, Dialog, DialogActions, DialogContent, DialogTitle, Typography} from "@mui/material";
-import {useEffect, useState} from "react";
+import {useEffect, useRef, useState} from "react";
 import {useNavigate} from "react-router-dom";
 import {type ApiError, del, get, post, put} from "../lib/apiCall.ts";
 import {Add, Close, Delete, Edit, Note, Save} from "@mui/icons-material";
 import {toast} from "react-toastify";
 import type {Patient} from "../data/Patient.ts";
-import {DataGrid, GridActionsCellItem, GridRowEditStopReasons, type GridRowId, GridRowModes, type GridRowModesModel, type GridRowParams, type GridToolbarProps, Toolbar, ToolbarButton} from "@mui/x-data-grid";
+import {DataGrid, getGridDateOperators, getGridSingleSelectOperators, getGridStringOperators, GridActionsCellItem, type GridFilterModel, GridRowEditStopReasons, type GridPaginationModel, type GridRowId, GridRowModes, type GridRowModesModel, type GridRowParams, type GridToolbarProps, Toolbar, ToolbarButton} from "@mui/x-data-grid";
 
-type PatientDTO = Omit<Patient, 'birthDate' | 'address' | 'phoneNumber'> & { birthDate: string | null; address: string | null; phoneNumber: string | null };
-type PatientRow = Omit<Patient, 'birthDate'> & { id: GridRowId; isNew?: boolean; birthDate: Date | null };
+type PatientDTO = Omit<Patient, 'birthDate' | 'address' | 'phoneNumber'> & { id?: number; version?: number; birthDate: string | null; address: string | null; phoneNumber: string | null };
+type PatientPageDTO = { content: PatientDTO[]; nextAfter: number | null; totalElements?: number };
+type PatientRow = Omit<Patient, 'birthDate'> & { id: GridRowId; version?: number; isNew?: boolean; birthDate: Date | null };
 type EditToolbarProps = {
     setPatients: React.Dispatch<React.SetStateAction<PatientRow[]>>;
     setRowModesModel: React.Dispatch<React.SetStateAction<GridRowModesModel>>;
 };
 
+// Filters the server can evaluate on indexed columns; every other filter is disabled
+const namePrefixOperators = getGridStringOperators().filter((op) => op.value === 'startsWith');
+const birthDateOperators = getGridDateOperators().filter((op) => op.value === 'onOrAfter' || op.value === 'onOrBefore');
+const genderOperators = getGridSingleSelectOperators().filter((op) => op.value === 'is');
+
+function toIsoDate(value: Date): string {
+    const month = String(value.getMonth() + 1).padStart(2, '0');
+    const day = String(value.getDate()).padStart(2, '0');
+    return `${value.getFullYear()}-${month}-${day}`;
+}
+
+function searchParams(model: GridFilterModel): Record<string, string> {
+    const params: Record<string, string> = {};
+    for (const item of model.items) {
+        if (item.value == null || item.value === '') {
+            continue;
+        }
+        if (item.field === 'lastName' || item.field === 'firstName' || item.field === 'gender') {
+            params[item.field] = String(item.value);
+        } else if (item.field === 'birthDate' && item.value instanceof Date) {
+            params[item.operator === 'onOrBefore' ? 'bornTo' : 'bornFrom'] = toIsoDate(item.value);
+        }
+    }
+    return params;
+}
+
 function isApiError(value: unknown): value is ApiError {
     return typeof value === 'object' && value !== null && 'success' in value && (value as { success?: unknown }).success === false;
 }
@@ -24,6 +51,11 @@ export default function Patients() {
     const [patients, setPatients] = useState<PatientRow[]>([]);
     const [isLoading, setIsLoading] = useState(true);
     const [rowModesModel, setRowModesModel] = useState<GridRowModesModel>({});
+    const [paginationModel, setPaginationModel] = useState<GridPaginationModel>({page: 0, pageSize: 25});
+    const [rowCount, setRowCount] = useState(0);
+    const [filterModel, setFilterModel] = useState<GridFilterModel>({items: []});
+    // Id to continue from for each page already reached; pages are chained by patient id
+    const cursors = useRef<number[]>([0]);
     const navigate = useNavigate();
 
     const ToolbarWithAdd: React.FC<GridToolbarProps> = () => {
@@ -47,15 +79,24 @@ export default function Patients() {
     async function fetchPatients() {
         setIsLoading(true);
         try {
-            const patient = await get<PatientDTO[]>("/patient/all");
-            if (isApiError(patient)) {
-                toast.error(patient.message || 'Failed to fetch patients');
+            const {page, pageSize} = paginationModel;
+            const after = cursors.current[page] ?? 0;
+            const result = await get<PatientPageDTO>("/patient/search", {...searchParams(filterModel), after, size: pageSize, count: page === 0});
+            if (isApiError(result)) {
+                toast.error(result.message || 'Failed to fetch patients');
                 setPatients([]);
                 return;
             }
-            const list: PatientDTO[] = Array.isArray(patient) ? patient : [];
+            const list: PatientDTO[] = Array.isArray(result?.content) ? result.content : [];
+            if (result.nextAfter != null) {
+                cursors.current[page + 1] = result.nextAfter;
+            }
+            if (result.totalElements != null) {
+                setRowCount(result.totalElements);
+            }
             const rows: PatientRow[] = list.map((p, index) => ({
-                id: index,
+                id: p.id ?? `${page}-${index}`,
+                version: p.version,
                 firstName: p.firstName,
                 lastName: p.lastName,
                 birthDate: p.birthDate ? new Date(p.birthDate) : null,
@@ -72,6 +113,21 @@ export default function Patients() {
         }
     }
 
+    const handlePaginationModelChange = (model: GridPaginationModel) => {
+        if (model.pageSize !== paginationModel.pageSize) {
+            cursors.current = [0];
+            setPaginationModel({page: 0, pageSize: model.pageSize});
+            return;
+        }
+        setPaginationModel(model);
+    };
+
+    const handleFilterModelChange = (model: GridFilterModel) => {
+        cursors.current = [0];
+        setFilterModel(model);
+        setPaginationModel((prev) => ({...prev, page: 0}));
+    };
+
     async function deletePatient(firstName: string, lastName: string) {
         try {
             const res = await del<unknown>('/patient', {firstName, lastName});
@@ -124,6 +180,10 @@ export default function Patients() {
         }
 
         const isCreate = !!oldRow?.isNew;
+        if (!isCreate) {
+            // Lets the server reject the update if the patient changed since the row was read
+            payload.version = oldRow.version;
+        }
         const res = isCreate ? await post<PatientDTO>('/patient', payload) : await put<PatientDTO>('/patient', payload);
         if (isApiError(res)) {
             const base = res.message || (isCreate ? 'Failed to create patient' : 'Failed to update patient');
@@ -131,28 +191,29 @@ export default function Patients() {
             throw new Error(base);
         }
         toast.success(isCreate ? 'Patient created successfully' : 'Patient updated successfully');
-        const updatedRow: PatientRow = {...newRow, isNew: false};
+        const updatedRow: PatientRow = {...newRow, version: res.version, isNew: false};
         setPatients((prev) => prev.map((row) => (row.id === newRow.id ? updatedRow : row)));
         return updatedRow;
     };
 
     useEffect(() => {
         void fetchPatients();
-    }, [])
+    }, [paginationModel, filterModel])
 
     return (
         <Container>
             <Typography variant="h4">Patients</Typography>
             <DataGrid<PatientRow>
                 columns={[
-                    {field: "lastName", headerName: "Last Name", flex: 1, editable: true},
-                    {field: "firstName", headerName: "First Name", flex: 1, editable: true},
+                    {field: "lastName", headerName: "Last Name", flex: 1, editable: true, filterOperators: namePrefixOperators},
+                    {field: "firstName", headerName: "First Name", flex: 1, editable: true, filterOperators: namePrefixOperators},
                     {
                         field: "birthDate",
                         headerName: "Birth Date",
                         type: 'date',
                         flex: 1,
                         editable: true,
+                        filterOperators: birthDateOperators,
                         valueFormatter: (value: unknown) => {
                             if (value == null) {
                                 return '';
@@ -165,9 +226,9 @@ export default function Patients() {
                             }
                         }
                     },
-                    {field: "gender", headerName: "Gender", type: 'singleSelect', flex: 1, valueOptions: ["M", "F"], editable: true},
-                    {field: "address", headerName: "Address", flex: 1, editable: true},
-                    {field: "phoneNumber", headerName: "Phone Number", flex: 1, editable: true},
+                    {field: "gender", headerName: "Gender", type: 'singleSelect', flex: 1, valueOptions: ["M", "F"], editable: true, filterOperators: genderOperators},
+                    {field: "address", headerName: "Address", flex: 1, editable: true, filterable: false},
+                    {field: "phoneNumber", headerName: "Phone Number", flex: 1, editable: true, filterable: false},
                     {
                         field: 'actions',
                         headerName: 'Actions',
@@ -206,6 +267,14 @@ export default function Patients() {
                 processRowUpdate={processRowUpdate}
                 rows={patients}
                 loading={isLoading}
+                paginationMode="server"
+                filterMode="server"
+                filterModel={filterModel}
+                onFilterModelChange={handleFilterModelChange}
+                paginationModel={paginationModel}
+                onPaginationModelChange={handlePaginationModelChange}
+                pageSizeOptions={[25, 50, 100]}
+                rowCount={rowCount}
                 slots={{toolbar: ToolbarWithAdd}}
                 slotProps={{
                     toolbar: {
@@ -1,8 +1,18 @@
 package dev.nikkune.msnotes.client;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import dev.nikkune.msnotes.dto.PatientEventBatchDTO;
+import dev.nikkune.msnotes.dto.PatientEventDTO;
+import dev.nikkune.msnotes.dto.PatientEventHeadDTO;
+import dev.nikkune.msnotes.dto.PatientPageDTO;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.ParameterizedTypeReference;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Component;
 import org.springframework.web.client.HttpClientErrorException;
@@ -10,33 +20,66 @@ import org.springframework.web.client.RestClient;
 import org.springframework.web.util.UriComponentsBuilder;
 
 import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.util.Base64;
+import java.util.List;
+import java.util.Optional;
 
 /**
  * Client class for interacting with the Patient microservice. This class provides
- * functionality to check the existence of a patient based on their first and last name.
- * It uses a REST client to make requests to the configured patient service API.
+ * functionality to resolve a patient's identifier, and thereby check their existence,
+ * based on their first and last name. It uses a REST client to make requests to the
+ * configured patient service API.
+ * <p>
+ * Lookup results are kept in a bounded in-memory cache. Positive and negative answers
+ * have their own expiry, so a freshly registered patient becomes visible quickly while
+ * known patients do not trigger a remote call on every request.
  */
 @Component
 public class PatientClient {
     private static final Logger logger = LogManager.getLogger(PatientClient.class);
 
+    private static final long DEFAULT_CACHE_MAX_SIZE = 10_000;
+    private static final Duration DEFAULT_CACHE_TTL = Duration.ofMinutes(5);
+    private static final Duration DEFAULT_CACHE_NEGATIVE_TTL = Duration.ofSeconds(30);
+    private static final String PATIENT_ID_HEADER = "X-Patient-Id";
+    private static final String EVENT_EPOCH_HEADER = "X-Event-Epoch";
+
     private final RestClient restClient;
     private final String baseUrl;
     private final String authHeader;
+    private final Cache<PatientKey, Optional<Integer>> existsCache;
+
+    /**
+     * Constructs a PatientClient instance using the default existence cache settings.
+     *
+     * @param baseUrl  the base URL of the Patient microservice
+     * @param username the username for Basic authentication with the Patient microservice
+     * @param password the password for Basic authentication with the Patient microservice
+     */
+    public PatientClient(String baseUrl, String username, String password) {
+        this(baseUrl, username, password, DEFAULT_CACHE_MAX_SIZE, DEFAULT_CACHE_TTL, DEFAULT_CACHE_NEGATIVE_TTL);
+    }
 
     /**
      * Constructs a PatientClient instance for interacting with the Patient microservice.
-     * It initializes the base URL, authentication header, and REST client for making API requests.
+     * It initializes the base URL, authentication header, REST client and existence cache.
      *
-     * @param baseUrl  the base URL of the Patient microservice, loaded from application properties.
-     * @param username the username for Basic authentication with the Patient microservice. Defaults to "medilabo".
-     * @param password the password for Basic authentication with the Patient microservice. Defaults to "medilabo123".
+     * @param baseUrl          the base URL of the Patient microservice, loaded from application properties.
+     * @param username         the username for Basic authentication with the Patient microservice. Defaults to "medilabo".
+     * @param password         the password for Basic authentication with the Patient microservice. Defaults to "medilabo123".
+     * @param cacheMaxSize     the maximum number of patients kept in the existence cache. Defaults to 10000.
+     * @param cacheTtl         how long a positive existence result is cached. Defaults to 5 minutes.
+     * @param cacheNegativeTtl how long a negative existence result is cached. Defaults to 30 seconds.
      */
+    @Autowired
     public PatientClient(
             @Value("${ms.patient.base-url}") String baseUrl,
             @Value("${ms.patient.username:medilabo}") String username,
-            @Value("${ms.patient.password:medilabo123}") String password) {
+            @Value("${ms.patient.password:medilabo123}") String password,
+            @Value("${ms.patient.exists-cache.max-size:10000}") long cacheMaxSize,
+            @Value("${ms.patient.exists-cache.ttl:PT5M}") Duration cacheTtl,
+            @Value("${ms.patient.exists-cache.negative-ttl:PT30S}") Duration cacheNegativeTtl) {
         this.baseUrl = baseUrl;
 
         // Créer l'en-tête Basic Auth
@@ -46,11 +89,16 @@ public class PatientClient {
         this.authHeader = "Basic " + encodedCredentials;
 
         this.restClient = RestClient.create();
+
+        this.existsCache = Caffeine.newBuilder()
+                .maximumSize(cacheMaxSize)
+                .expireAfter(new ExistsExpiry(cacheTtl, cacheNegativeTtl))
+                .recordStats()
+                .build();
     }
 
     /**
-     * Checks if a patient exists based on their first and last name by making a request
-     * to the patient service API.
+     * Checks if a patient exists based on their first and last name.
      *
      * @param firstName the first name of the patient to check
      * @param lastName  the last name of the patient to check
@@ -58,20 +106,208 @@ public class PatientClient {
      * patient is not found. Throws an exception in case of other errors.
      */
     public boolean exists(String firstName, String lastName) {
-        String url = UriComponentsBuilder.fromHttpUrl(baseUrl)
+        return findPatientId(firstName, lastName) != null;
+    }
+
+    /**
+     * Resolves the identifier of an active patient from their first and last name. The answer is
+     * served from the cache when possible; otherwise a single request is made to the patient
+     * service API, even when several threads ask for the same patient at once.
+     *
+     * @param firstName the first name of the patient
+     * @param lastName  the last name of the patient
+     * @return the identifier of the patient, or null if the patient is not found.
+     * Throws an exception in case of other errors.
+     */
+    public Integer findPatientId(String firstName, String lastName) {
+        return existsCache.get(new PatientKey(firstName, lastName), key -> fetchPatientId(key.firstName(), key.lastName()))
+                .orElse(null);
+    }
+
+    /**
+     * Removes the cached existence result of a patient, so the next check goes to the
+     * patient service. Intended to be called when a patient is created, renamed or deleted.
+     *
+     * @param firstName the first name of the patient
+     * @param lastName  the last name of the patient
+     */
+    public void evict(String firstName, String lastName) {
+        existsCache.invalidate(new PatientKey(firstName, lastName));
+    }
+
+    /**
+     * Removes every cached existence result.
+     */
+    public void evictAll() {
+        existsCache.invalidateAll();
+    }
+
+    /**
+     * Returns a snapshot of the existence cache statistics (hits, misses, loads, evictions).
+     *
+     * @return the current {@link CacheStats} of the existence cache
+     */
+    public CacheStats cacheStats() {
+        return existsCache.stats();
+    }
+
+    /**
+     * Returns the approximate number of patients currently held in the existence cache.
+     *
+     * @return the estimated size of the existence cache
+     */
+    public long cacheSize() {
+        return existsCache.estimatedSize();
+    }
+
+    /**
+     * Retrieves the patient change events published after the given event id, oldest first,
+     * with the epoch of the outbox they were read from.
+     *
+     * @param after the id of the last event already consumed, 0 to start from the beginning
+     * @param limit the maximum number of events to return
+     * @return the epoch of the outbox and the next events in id order, never null
+     */
+    public PatientEventBatchDTO events(long after, int limit) {
+        String url = UriComponentsBuilder.fromHttpUrl(baseUrl + "/events")
+                .queryParam("after", after)
+                .queryParam("limit", limit)
+                .toUriString();
+        try {
+            ResponseEntity<List<PatientEventDTO>> response = restClient.get()
+                    .uri(url)
+                    .header("Authorization", authHeader)
+                    .retrieve()
+                    .toEntity(new ParameterizedTypeReference<List<PatientEventDTO>>() {
+                    });
+            List<PatientEventDTO> events = response.getBody();
+            return new PatientEventBatchDTO(response.getHeaders().getFirst(EVENT_EPOCH_HEADER), events == null ? List.of() : events);
+        } catch (HttpClientErrorException.Unauthorized e) {
+            logger.error("Authentication failed when retrieving patient events: {}", e.getMessage());
+            throw new RuntimeException("Failed to authenticate with patient service", e);
+        }
+    }
+
+    /**
+     * Retrieves the epoch of the patient change outbox and the id of its most recent event.
+     *
+     * @return the head of the outbox
+     */
+    public PatientEventHeadDTO eventHead() {
+        try {
+            PatientEventHeadDTO head = restClient.get()
+                    .uri(baseUrl + "/events/head")
+                    .header("Authorization", authHeader)
+                    .retrieve()
+                    .body(PatientEventHeadDTO.class);
+            if (head == null) {
+                throw new RuntimeException("Patient service returned no event head");
+            }
+            return head;
+        } catch (HttpClientErrorException.Unauthorized e) {
+            logger.error("Authentication failed when retrieving the patient event head: {}", e.getMessage());
+            throw new RuntimeException("Failed to authenticate with patient service", e);
+        }
+    }
+
+    /**
+     * Retrieves one page of the active patients, in id order.
+     *
+     * @param after the id of the last patient of the previous page, 0 for the first page
+     * @param size  the maximum number of patients in the page
+     * @return the page of patients, whose {@code nextAfter} is null on the last page
+     */
+    public PatientPageDTO activePatients(int after, int size) {
+        String url = UriComponentsBuilder.fromHttpUrl(baseUrl + "/all")
+                .queryParam("after", after)
+                .queryParam("size", size)
+                .toUriString();
+        try {
+            PatientPageDTO page = restClient.get()
+                    .uri(url)
+                    .header("Authorization", authHeader)
+                    .retrieve()
+                    .body(PatientPageDTO.class);
+            if (page == null) {
+                throw new RuntimeException("Patient service returned no patient page");
+            }
+            return page;
+        } catch (HttpClientErrorException.Unauthorized e) {
+            logger.error("Authentication failed when retrieving patients: {}", e.getMessage());
+            throw new RuntimeException("Failed to authenticate with patient service", e);
+        }
+    }
+
+    /**
+     * Tells whether a deleted patient ever carried the given name, by searching the deleted patients
+     * of the patient service. Names are compared ignoring case, as the patient database does.
+     *
+     * @param firstName the first name of the patient
+     * @param lastName  the last name of the patient
+     * @return true if at least one deleted patient has this name
+     */
+    public boolean hasDeletedPatient(String firstName, String lastName) {
+        int after = 0;
+        while (true) {
+            String url = UriComponentsBuilder.fromHttpUrl(baseUrl + "/search")
+                    .queryParam("firstName", firstName)
+                    .queryParam("lastName", lastName)
+                    .queryParam("active", false)
+                    .queryParam("after", after)
+                    .queryParam("size", 500)
+                    .toUriString();
+            try {
+                PatientPageDTO page = restClient.get()
+                        .uri(url)
+                        .header("Authorization", authHeader)
+                        .retrieve()
+                        .body(PatientPageDTO.class);
+                if (page == null) {
+                    throw new RuntimeException("Patient service returned no patient page");
+                }
+                // the search matches name prefixes
+                boolean found = page.getContent().stream().anyMatch(patient ->
+                        firstName.equalsIgnoreCase(patient.getFirstName()) && lastName.equalsIgnoreCase(patient.getLastName()));
+                if (found || page.getNextAfter() == null) {
+                    return found;
+                }
+                after = page.getNextAfter();
+            } catch (HttpClientErrorException.Unauthorized e) {
+                logger.error("Authentication failed when searching deleted patients: {}", e.getMessage());
+                throw new RuntimeException("Failed to authenticate with patient service", e);
+            }
+        }
+    }
+
+    /**
+     * Asks the existence endpoint of the patient service for the patient with the given name.
+     * It is a {@code HEAD} request: the identifier comes back in the {@value #PATIENT_ID_HEADER}
+     * header and no patient body is transferred.
+     *
+     * @param firstName the first name of the patient to look up
+     * @param lastName  the last name of the patient to look up
+     * @return the identifier of the patient, or an empty optional on 404
+     */
+    private Optional<Integer> fetchPatientId(String firstName, String lastName) {
+        String url = UriComponentsBuilder.fromHttpUrl(baseUrl + "/exists")
                 .queryParam("firstName", firstName)
                 .queryParam("lastName", lastName)
                 .toUriString();
         try {
-            ResponseEntity<String> response = restClient.get()
+            String patientId = restClient.head()
                     .uri(url)
                     .header("Authorization", authHeader)
                     .retrieve()
-                    .toEntity(String.class);
-            return response.getStatusCode().is2xxSuccessful();
+                    .toBodilessEntity()
+                    .getHeaders()
+                    .getFirst(PATIENT_ID_HEADER);
+            if (patientId == null) {
+                throw new RuntimeException("Patient service returned no identifier for " + firstName + " " + lastName);
+            }
+            return Optional.of(Integer.valueOf(patientId));
         } catch (HttpClientErrorException.NotFound e) {
             logger.info("Patient not found for {} {}", firstName, lastName);
-            return false;
+            return Optional.empty();
         } catch (HttpClientErrorException.Unauthorized e) {
             logger.error("Authentication failed when checking patient existence: {}", e.getMessage());
             throw new RuntimeException("Failed to authenticate with patient service", e);
@@ -80,4 +316,27 @@ public class PatientClient {
             throw e;
         }
     }
+
+    private record PatientKey(String firstName, String lastName) {
+    }
+
+    /**
+     * Expiry policy giving positive and negative lookup results their own time to live.
+     */
+    private record ExistsExpiry(Duration ttl, Duration negativeTtl) implements Expiry<PatientKey, Optional<Integer>> {
+        @Override
+        public long expireAfterCreate(PatientKey key, Optional<Integer> patientId, long currentTime) {
+            return (patientId.isPresent() ? ttl : negativeTtl).toNanos();
+        }
+
+        @Override
+        public long expireAfterUpdate(PatientKey key, Optional<Integer> patientId, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, patientId, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(PatientKey key, Optional<Integer> patientId, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
 }
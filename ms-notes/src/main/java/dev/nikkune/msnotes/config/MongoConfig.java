@@ -0,0 +1,17 @@
+package dev.nikkune.msnotes.config;
+
+import dev.nikkune.msnotes.converter.CompressedTextConverter;
+import dev.nikkune.msnotes.model.Note;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.mongodb.core.convert.MongoCustomConversions;
+
+@Configuration
+public class MongoConfig {
+
+    @Bean
+    public MongoCustomConversions mongoCustomConversions(CompressedTextConverter compressedTextConverter) {
+        return MongoCustomConversions.create(adapter -> adapter.configurePropertyConversions(registrar ->
+                registrar.registerConverter(Note.class, "note", compressedTextConverter)));
+    }
+}
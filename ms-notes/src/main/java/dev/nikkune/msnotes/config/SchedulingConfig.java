@@ -0,0 +1,30 @@
+package dev.nikkune.msnotes.config;
+
+import org.springframework.boot.task.ThreadPoolTaskSchedulerBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+
+/**
+ * Scheduling of the background jobs. The jobs share the {@code taskScheduler}, configured by the
+ * {@code spring.task.scheduling} properties as usual, except the note archiver, which pauses
+ * between its batches and runs on a scheduler of its own so as not to delay the others.
+ */
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+    public static final String ARCHIVE_SCHEDULER = "archiveScheduler";
+
+    @Bean
+    public ThreadPoolTaskScheduler taskScheduler(ThreadPoolTaskSchedulerBuilder builder) {
+        return builder.build();
+    }
+
+    @Bean(ARCHIVE_SCHEDULER)
+    public ThreadPoolTaskScheduler archiveScheduler() {
+        ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+        scheduler.setThreadNamePrefix("note-archiver-");
+        return scheduler;
+    }
+}
@@ -1,18 +1,36 @@
 package dev.nikkune.msnotes.controller;
 
+import dev.nikkune.msnotes.dto.BulkNotesDTO;
+import dev.nikkune.msnotes.dto.BulkNotesRequestDTO;
+import dev.nikkune.msnotes.dto.CacheStatsDTO;
 import dev.nikkune.msnotes.dto.CreateNoteDTO;
 import dev.nikkune.msnotes.dto.NoteDTO;
+import dev.nikkune.msnotes.dto.NoteSearchPageDTO;
+import dev.nikkune.msnotes.dto.PatientKeyDTO;
+import dev.nikkune.msnotes.dto.PatientNotesDTO;
 import dev.nikkune.msnotes.dto.UpdateNoteDTO;
 import dev.nikkune.msnotes.mapper.NoteMapper;
 import dev.nikkune.msnotes.model.Note;
+import dev.nikkune.msnotes.model.PatientName;
 import dev.nikkune.msnotes.service.INoteService;
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotBlank;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.web.PagedModel;
+import org.springframework.http.CacheControl;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import reactor.core.publisher.Flux;
 
 import java.util.List;
+import java.util.Map;
 
 /**
  * A REST controller for managing note-related operations.
@@ -38,16 +56,138 @@ public class NotesController {
 
     /**
      * Retrieves a list of notes associated with the specified first name and last name.
+     * <p>
+     * The response carries an {@code ETag} for the current state of the list. When the request's
+     * {@code If-None-Match} matches it, a 304 Not Modified is returned without querying or
+     * serializing the notes.
      *
-     * @param firstName the first name of the user to filter notes, must not be blank
-     * @param lastName  the last name of the user to filter notes, must not be blank
-     * @return a list of NoteDTO objects containing the filtered notes
+     * @param firstName  the first name of the user to filter notes, must not be blank
+     * @param lastName   the last name of the user to filter notes, must not be blank
+     * @param webRequest the current request, used to evaluate {@code If-None-Match}
+     * @return a list of NoteDTO objects containing the filtered notes, or null when not modified
      */
     @GetMapping
-    public List<NoteDTO> getNotes(@RequestParam @NotBlank String firstName,
-                                  @RequestParam @NotBlank String lastName) {
+    public ResponseEntity<List<NoteDTO>> getNotes(@RequestParam @NotBlank String firstName,
+                                                  @RequestParam @NotBlank String lastName,
+                                                  WebRequest webRequest) {
+        // computed before the list: a write in between only makes the tag older than the body, never newer
+        String eTag = noteService.listETag(firstName, lastName);
+        if (webRequest.checkNotModified(eTag)) {
+            return null;
+        }
         List<Note> notes = noteService.list(firstName, lastName);
-        return mapper.toDtoList(notes);
+        return ResponseEntity.ok()
+                .eTag(eTag)
+                .cacheControl(CacheControl.noCache().cachePrivate())
+                .body(mapper.toDtoList(notes));
+    }
+
+    /**
+     * Streams the notes associated with the specified first name and last name as newline-delimited
+     * JSON, read with the reactive MongoDB driver. Each note is written as soon as it is read and the
+     * next one is only requested once it has been written, so no servlet thread waits on MongoDB and
+     * a slow client slows down the cursor instead of buffering the whole list.
+     *
+     * @param firstName the first name of the user to filter notes, must not be blank
+     * @param lastName  the last name of the user to filter notes, must not be blank
+     * @return a stream of NoteDTO objects, most recently updated first
+     */
+    @GetMapping(value = "/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<NoteDTO> streamNotes(@RequestParam @NotBlank String firstName,
+                                     @RequestParam @NotBlank String lastName) {
+        return noteService.stream(firstName, lastName).map(mapper::toDto);
+    }
+
+    /**
+     * Retrieves the notes of several patients in a single call, grouped per patient in request order.
+     * Patients that do not exist are listed under {@code notFound}.
+     *
+     * @param request  the patients whose notes to retrieve, at most {@value BulkNotesRequestDTO#MAX_PATIENTS}
+     * @param textOnly whether to only return the text of the notes
+     * @return the notes of each existing patient and the keys of the patients not found
+     */
+    @PostMapping(value = "/bulk")
+    public BulkNotesDTO getNotesOfPatients(@RequestBody @Valid BulkNotesRequestDTO request,
+                                           @RequestParam(defaultValue = "false") boolean textOnly) {
+        List<PatientName> patients = request.getPatients().stream()
+                .map(key -> new PatientName(key.getFirstName(), key.getLastName()))
+                .toList();
+        Map<PatientName, List<Note>> notesByPatient = noteService.listByPatients(patients, textOnly);
+
+        BulkNotesDTO response = new BulkNotesDTO();
+        response.setPatients(notesByPatient.entrySet().stream().map(entry -> {
+            PatientNotesDTO patientNotes = new PatientNotesDTO();
+            patientNotes.setFirstName(entry.getKey().firstName());
+            patientNotes.setLastName(entry.getKey().lastName());
+            if (textOnly) {
+                patientNotes.setTexts(entry.getValue().stream().map(Note::getNote).toList());
+            } else {
+                patientNotes.setNotes(mapper.toDtoList(entry.getValue()));
+            }
+            return patientNotes;
+        }).toList());
+        response.setNotFound(patients.stream()
+                .distinct()
+                .filter(patient -> !notesByPatient.containsKey(patient))
+                .map(patient -> new PatientKeyDTO(patient.firstName(), patient.lastName()))
+                .toList());
+        return response;
+    }
+
+    /**
+     * Searches the active notes of all patients for the given terms.
+     * Results are ranked by relevance, best match first.
+     *
+     * @param q     the search terms, must not be blank
+     * @param page  the zero-based page index
+     * @param size  the page size, at most 100
+     * @param count whether to include the total number of matching notes, which runs the text query a second time
+     * @return a page of matching notes together with the patient they belong to
+     */
+    @GetMapping(value = "/search")
+    public NoteSearchPageDTO search(@RequestParam @NotBlank String q,
+                                    @RequestParam(defaultValue = "0") @Min(0) int page,
+                                    @RequestParam(defaultValue = "20") @Min(1) @Max(100) int size,
+                                    @RequestParam(defaultValue = "false") boolean count) {
+        Slice<Note> hits = noteService.search(q, PageRequest.of(page, size));
+        NoteSearchPageDTO response = new NoteSearchPageDTO();
+        response.setContent(hits.map(mapper::toSearchHit).getContent());
+        response.setPage(page);
+        response.setSize(size);
+        response.setHasNext(hits.hasNext());
+        if (count) {
+            response.setTotalElements(noteService.countSearch(q));
+        }
+        return response;
+    }
+
+    /**
+     * Retrieves the archived notes of a patient, most recently updated first. Archived notes
+     * are deleted notes that were moved out of the live collection after their retention window.
+     *
+     * @param firstName the first name of the patient, must not be blank
+     * @param lastName  the last name of the patient, must not be blank
+     * @param page      the zero-based page index
+     * @param size      the page size, at most 100
+     * @return a page of archived notes
+     */
+    @GetMapping(value = "/archive")
+    public PagedModel<NoteDTO> getArchivedNotes(@RequestParam @NotBlank String firstName,
+                                                @RequestParam @NotBlank String lastName,
+                                                @RequestParam(defaultValue = "0") @Min(0) int page,
+                                                @RequestParam(defaultValue = "20") @Min(1) @Max(100) int size) {
+        Page<Note> notes = noteService.listArchived(firstName, lastName, PageRequest.of(page, size));
+        return new PagedModel<>(notes.map(mapper::toDto));
+    }
+
+    /**
+     * Retrieves the size and hit statistics of the cache of patient existence checks.
+     *
+     * @return the statistics of the patient existence cache
+     */
+    @GetMapping(value = "/cache/stats")
+    public CacheStatsDTO getPatientCacheStats() {
+        return noteService.patientCacheStats();
     }
 
     /**
@@ -79,12 +219,13 @@ public class NotesController {
      * Updates the content of an existing note based on the provided ID and request data.
      *
      * @param id      the unique identifier of the note to be updated
-     * @param request the data used to update the note, including the updated note text
+     * @param request the data used to update the note, including the updated note text and,
+     *                optionally, the version the client last read to detect concurrent edits
      * @return a representation of the updated note in the form of a NoteDTO
      */
     @PutMapping
     public NoteDTO update(@RequestParam String id, @RequestBody @Valid UpdateNoteDTO request) {
-        Note updated = noteService.update(id, request.getNote());
+        Note updated = noteService.update(id, request.getNote(), request.getVersion());
         return mapper.toDto(updated);
     }
 
@@ -0,0 +1,81 @@
+package dev.nikkune.msnotes.converter;
+
+import com.github.luben.zstd.Zstd;
+import org.bson.types.Binary;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.convert.MongoConversionContext;
+import org.springframework.data.mongodb.core.convert.MongoValueConverter;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Property value converter storing large text values compressed with Zstandard.
+ * <p>
+ * Values whose UTF-8 encoding is at least the configured threshold are written as a BSON
+ * binary holding a Zstandard frame; smaller values, and all values when compression is
+ * disabled, are written as plain strings. Reading accepts both forms, so documents written
+ * before compression was enabled remain readable.
+ * <p>
+ * Compressed values are opaque to MongoDB and therefore not covered by the text index.
+ */
+@Component
+public class CompressedTextConverter implements MongoValueConverter<String, Object> {
+    private final boolean enabled;
+    private final int threshold;
+    private final int level;
+
+    /**
+     * Constructs a CompressedTextConverter.
+     *
+     * @param enabled   whether large values are compressed on write. Defaults to false.
+     * @param threshold the minimum UTF-8 size, in bytes, of a value to be compressed. Defaults to 4096.
+     * @param level     the Zstandard compression level. Defaults to 3.
+     */
+    public CompressedTextConverter(@Value("${ms.notes.compression.enabled:false}") boolean enabled,
+                                   @Value("${ms.notes.compression.threshold:4096}") int threshold,
+                                   @Value("${ms.notes.compression.level:3}") int level) {
+        this.enabled = enabled;
+        this.threshold = threshold;
+        this.level = level;
+    }
+
+    @Override
+    public Object write(String value, MongoConversionContext context) {
+        return compress(value);
+    }
+
+    @Override
+    public String read(Object value, MongoConversionContext context) {
+        return decompress(value);
+    }
+
+    /**
+     * Converts a text value to its stored form.
+     *
+     * @param value the text to store
+     * @return a {@link Binary} holding the compressed text if it reaches the threshold, otherwise the text itself
+     */
+    public Object compress(String value) {
+        byte[] raw = value.getBytes(StandardCharsets.UTF_8);
+        if (!enabled || raw.length < threshold) {
+            return value;
+        }
+        return new Binary(Zstd.compress(raw, level));
+    }
+
+    /**
+     * Converts a stored value back to text.
+     *
+     * @param value the stored value, either a plain string or a {@link Binary} written by {@link #compress(String)}
+     * @return the original text
+     */
+    public String decompress(Object value) {
+        if (value instanceof Binary binary) {
+            byte[] compressed = binary.getData();
+            byte[] raw = Zstd.decompress(compressed, (int) Zstd.getFrameContentSize(compressed));
+            return new String(raw, StandardCharsets.UTF_8);
+        }
+        return (String) value;
+    }
+}
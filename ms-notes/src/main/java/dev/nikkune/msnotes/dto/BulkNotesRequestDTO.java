@@ -0,0 +1,17 @@
+package dev.nikkune.msnotes.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class BulkNotesRequestDTO {
+    public static final int MAX_PATIENTS = 100;
+
+    @NotEmpty
+    @Size(max = MAX_PATIENTS)
+    private List<@Valid PatientKeyDTO> patients;
+}
@@ -7,7 +7,10 @@ import java.util.Date;
 @Data
 public class NoteDTO {
     private String id;
+    private Integer patientId;
     private String note;
+    private String contentHash;
     private Date createdAt;
     private Date updatedAt;
+    private Long version;
 }
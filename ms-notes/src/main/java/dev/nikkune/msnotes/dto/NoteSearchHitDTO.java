@@ -0,0 +1,15 @@
+package dev.nikkune.msnotes.dto;
+
+import lombok.Data;
+
+import java.util.Date;
+
+@Data
+public class NoteSearchHitDTO {
+    private String id;
+    private String firstName;
+    private String lastName;
+    private String note;
+    private Float score;
+    private Date updatedAt;
+}
@@ -0,0 +1,22 @@
+package dev.nikkune.msnotes.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * One page of full-text search results, best match first.
+ * <p>
+ * {@code hasNext} tells whether a further page holds more results. {@code totalElements}
+ * is only present when the count was requested.
+ */
+@Data
+public class NoteSearchPageDTO {
+    private List<NoteSearchHitDTO> content;
+    private int page;
+    private int size;
+    private boolean hasNext;
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Long totalElements;
+}
@@ -0,0 +1,15 @@
+package dev.nikkune.msnotes.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PatientEventBatchDTO {
+    private String epoch;
+    private List<PatientEventDTO> events;
+}
@@ -0,0 +1,16 @@
+package dev.nikkune.msnotes.dto;
+
+import dev.nikkune.msnotes.model.PatientEventType;
+import lombok.Data;
+
+import java.util.Date;
+
+@Data
+public class PatientEventDTO {
+    private Long id;
+    private PatientEventType type;
+    private Integer patientId;
+    private String lastName;
+    private String firstName;
+    private Date createdAt;
+}
@@ -0,0 +1,19 @@
+package dev.nikkune.msnotes.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * Notes of one patient in a bulk response. Only one of {@code notes} and {@code texts}
+ * is present, depending on whether the text-only projection was requested.
+ */
+@Data
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class PatientNotesDTO {
+    private String firstName;
+    private String lastName;
+    private List<NoteDTO> notes;
+    private List<String> texts;
+}
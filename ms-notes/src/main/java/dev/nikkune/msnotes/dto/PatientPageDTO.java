@@ -0,0 +1,11 @@
+package dev.nikkune.msnotes.dto;
+
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class PatientPageDTO {
+    private List<PatientSummaryDTO> content;
+    private Integer nextAfter;
+}
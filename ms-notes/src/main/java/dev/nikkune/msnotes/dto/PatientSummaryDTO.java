@@ -0,0 +1,14 @@
+package dev.nikkune.msnotes.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PatientSummaryDTO {
+    private Integer id;
+    private String firstName;
+    private String lastName;
+}
@@ -7,4 +7,5 @@ import lombok.Data;
 public class UpdateNoteDTO {
     @NotBlank
     private String note;
+    private Long version;
 }
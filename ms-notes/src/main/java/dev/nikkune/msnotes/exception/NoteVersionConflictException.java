@@ -0,0 +1,11 @@
+package dev.nikkune.msnotes.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.CONFLICT)
+public class NoteVersionConflictException extends RuntimeException {
+    public NoteVersionConflictException(String id, Long expectedVersion) {
+        super("Note " + id + " was modified concurrently, expected version " + expectedVersion);
+    }
+}
@@ -1,6 +1,7 @@
 package dev.nikkune.msnotes.mapper;
 
 import dev.nikkune.msnotes.dto.NoteDTO;
+import dev.nikkune.msnotes.dto.NoteSearchHitDTO;
 import dev.nikkune.msnotes.model.Note;
 import org.mapstruct.Mapper;
 
@@ -11,4 +12,6 @@ public interface NoteMapper {
     NoteDTO toDto(Note note);
 
     List<NoteDTO> toDtoList(List<Note> notes);
+
+    NoteSearchHitDTO toSearchHit(Note note);
 }
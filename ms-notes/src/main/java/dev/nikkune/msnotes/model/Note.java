@@ -2,20 +2,53 @@ package dev.nikkune.msnotes.model;
 
 import lombok.Data;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Version;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
+import org.springframework.data.mongodb.core.index.TextIndexed;
 import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.TextScore;
 
 import java.util.Date;
 
 @Data
-@Document(collection = "notes")
+@CompoundIndexes({
+        @CompoundIndex(name = "patientId_active_updatedAt", def = "{'patientId': 1, 'active': 1, 'updatedAt': -1}"),
+        @CompoundIndex(name = "inactive_updatedAt", def = "{'updatedAt': 1}", partialFilter = "{'active': false}")
+})
+@Document(collection = "notes", language = "french")
 public class Note {
     @Id
     private String id;
 
+    /**
+     * Identifier of the patient in the Patient microservice. Notes written before it existed
+     * only carry the names until {@code NotePatientIdBackfill} has assigned it.
+     */
+    private Integer patientId;
+    /**
+     * Set by {@code NotePatientIdBackfill} on notes written before {@link #patientId} existed whose
+     * patient cannot be told apart anymore: no active patient has the name, or a deleted one had it too.
+     */
+    private Boolean patientIdUnresolved;
     private String firstName;
     private String lastName;
     private Boolean active;
+    @TextIndexed
     private String note;
+    /**
+     * SHA-256 digest of the note body, shared by every note with byte-identical text. Notes written
+     * before it existed carry none until {@code NoteContentHashBackfill} has assigned it.
+     */
+    private String contentHash;
     private Date createdAt;
     private Date updatedAt;
+    @Version
+    private Long version;
+
+    /**
+     * Relevance of the note for the current full-text search. Only populated by text queries, never stored.
+     */
+    @TextScore
+    private Float score;
 }
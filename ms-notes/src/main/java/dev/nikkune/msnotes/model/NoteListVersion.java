@@ -0,0 +1,19 @@
+package dev.nikkune.msnotes.model;
+
+import java.util.Date;
+
+/**
+ * Summary of the active notes of a patient that changes whenever one of them is added,
+ * updated or deleted. Used as a cheap version marker for the notes list: both values are read
+ * from the {@code patientId_active_updatedAt} index, without fetching any note.
+ * <p>
+ * Every change sets {@code updatedAt}, so an update moves the most recent timestamp and an
+ * addition or a deletion changes the count. Two changes of the same patient's notes within the
+ * same millisecond may share a marker.
+ *
+ * @param count         the number of active notes
+ * @param lastUpdatedAt the most recent update timestamp among them, {@code null} when there is none
+ */
+public record NoteListVersion(long count, Date lastUpdatedAt) {
+    public static final NoteListVersion EMPTY = new NoteListVersion(0, null);
+}
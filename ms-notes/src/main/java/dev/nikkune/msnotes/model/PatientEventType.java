@@ -0,0 +1,10 @@
+package dev.nikkune.msnotes.model;
+
+/**
+ * Kinds of patient change published by the Patient microservice.
+ */
+public enum PatientEventType {
+    CREATED,
+    UPDATED,
+    DELETED
+}
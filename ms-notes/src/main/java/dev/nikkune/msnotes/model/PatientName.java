@@ -0,0 +1,10 @@
+package dev.nikkune.msnotes.model;
+
+/**
+ * First and last name pair identifying a patient on notes that predate the patient identifier.
+ *
+ * @param firstName the first name of the patient
+ * @param lastName  the last name of the patient
+ */
+public record PatientName(String firstName, String lastName) {
+}
@@ -1,16 +1,20 @@
 package dev.nikkune.msnotes.repository;
 
 import dev.nikkune.msnotes.model.Note;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.mongodb.core.query.TextCriteria;
 import org.springframework.data.mongodb.repository.MongoRepository;
 
 import java.util.List;
 
 /**
  * Repository interface for managing {@link Note} entities in a MongoDB database.
- * Extends {@link MongoRepository} to leverage Spring Data MongoDB's repository functionality.
+ * Extends {@link MongoRepository} to leverage Spring Data MongoDB's repository functionality,
+ * and {@link NoteRepositoryCustom} for atomic single-document updates.
  * Provides custom query methods specific to {@link Note} entities.
  */
-public interface NoteRepository extends MongoRepository<Note, String> {
+public interface NoteRepository extends MongoRepository<Note, String>, NoteRepositoryCustom {
     /**
      * Retrieves a list of active {@code Note} objects filtered by the specified first name and last name.
      * The results are sorted in descending order based on the {@code updatedAt} timestamp.
@@ -21,4 +25,41 @@ public interface NoteRepository extends MongoRepository<Note, String> {
      * sorted by the most recently updated first
      */
     List<Note> findByFirstNameAndLastNameAndActiveTrueOrderByUpdatedAtDesc(String firstName, String lastName);
+
+    /**
+     * Retrieves a list of active {@code Note} objects of a patient, identified by their identifier
+     * in the Patient microservice. The results are sorted in descending order based on the
+     * {@code updatedAt} timestamp.
+     *
+     * @param patientId the identifier of the patient
+     * @return a list of active notes of the patient, sorted by the most recently updated first
+     */
+    List<Note> findByPatientIdAndActiveTrueOrderByUpdatedAtDesc(Integer patientId);
+
+    /**
+     * Retrieves a slice of active {@code Note} objects matching the given full-text criteria,
+     * using the text index on the note body. The results are sorted by relevance, best match first.
+     * No count query is run: whether more results follow is known by reading one more note.
+     *
+     * @param criteria the full-text criteria to match
+     * @param pageable the page to retrieve
+     * @return a slice of active matching notes, ordered by descending text score
+     */
+    Slice<Note> findByActiveTrueOrderByScoreDesc(TextCriteria criteria, Pageable pageable);
+
+    /**
+     * Counts the active {@code Note} objects matching the given full-text criteria.
+     *
+     * @param criteria the full-text criteria to match
+     * @return the number of active matching notes
+     */
+    long countByActiveTrue(TextCriteria criteria);
+
+    /**
+     * Checks whether an active note exists with the specified identifier.
+     *
+     * @param id the unique identifier of the note
+     * @return true if the note exists and is active
+     */
+    boolean existsByIdAndActiveTrue(String id);
 }
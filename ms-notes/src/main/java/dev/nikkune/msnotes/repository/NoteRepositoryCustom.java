@@ -0,0 +1,157 @@
+package dev.nikkune.msnotes.repository;
+
+import dev.nikkune.msnotes.model.Note;
+import dev.nikkune.msnotes.model.NoteListVersion;
+import dev.nikkune.msnotes.model.PatientName;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Custom repository operations on {@link Note} entities: atomic single-document updates,
+ * performed in one server-side update instead of a read followed by a full document save,
+ * the movement of old inactive notes to the archive collection, the per-patient list version,
+ * multi-patient reads, and the backfill of patient identifiers and content hashes on older notes.
+ */
+public interface NoteRepositoryCustom {
+    /**
+     * Atomically replaces the text and content hash of an active note, sets its update timestamp and bumps its version.
+     *
+     * @param id              the unique identifier of the note
+     * @param noteText        the new text of the note
+     * @param expectedVersion the version the caller last read, or {@code null} to skip the version check
+     * @param updatedAt       the new update timestamp
+     * @return the note as it is after the update, or {@code null} if no active note matched
+     */
+    Note updateActiveNote(String id, String noteText, Long expectedVersion, Date updatedAt);
+
+    /**
+     * Atomically marks an active note as inactive, sets its update timestamp and bumps its version.
+     *
+     * @param id        the unique identifier of the note
+     * @param updatedAt the new update timestamp
+     * @return true if an active note was deactivated, false if none matched
+     */
+    boolean deactivate(String id, Date updatedAt);
+
+    /**
+     * Moves up to {@code batchSize} inactive notes last updated before the given date from the
+     * notes collection to the archive collection, oldest first. The copy is idempotent, so a batch
+     * interrupted between the copy and the removal is completed by the next call.
+     *
+     * @param inactiveBefore only notes last updated strictly before this date are moved
+     * @param batchSize      the maximum number of notes to move
+     * @return the number of notes removed from the notes collection
+     */
+    int archiveInactiveBefore(Date inactiveBefore, int batchSize);
+
+    /**
+     * Creates the index of the archive collection on the patient name, used by {@link #findArchived},
+     * if it does not exist yet.
+     */
+    void ensureArchiveIndex();
+
+    /**
+     * Retrieves a page of archived notes of a patient, most recently updated first.
+     *
+     * @param firstName the first name of the patient
+     * @param lastName  the last name of the patient
+     * @param pageable  the page to retrieve
+     * @return a page of archived notes
+     */
+    Page<Note> findArchived(String firstName, String lastName, Pageable pageable);
+
+    /**
+     * Computes the version marker of the active notes of a patient in a single aggregation,
+     * without loading the notes themselves.
+     *
+     * @param firstName the first name of the patient
+     * @param lastName  the last name of the patient
+     * @return the list version, {@link NoteListVersion#EMPTY} when the patient has no active note
+     */
+    NoteListVersion listVersion(String firstName, String lastName);
+
+    /**
+     * Computes the version marker of the active notes of a patient, identified by their identifier
+     * in the Patient microservice, in a single aggregation covered by the
+     * {@code patientId_active_updatedAt} index, so no note is fetched.
+     *
+     * @param patientId the identifier of the patient
+     * @return the list version, {@link NoteListVersion#EMPTY} when the patient has no active note
+     */
+    NoteListVersion listVersion(Integer patientId);
+
+    /**
+     * Lists the distinct patient names found on notes that do not carry a patient identifier yet,
+     * leaving out those already recorded as unresolved.
+     *
+     * @return the names of the patients whose notes still need a patient identifier
+     */
+    List<PatientName> findNamesWithoutPatientId();
+
+    /**
+     * Sets the patient identifier on every note of the given patient that does not carry one yet.
+     *
+     * @param firstName the first name of the patient
+     * @param lastName  the last name of the patient
+     * @param patientId the identifier of the patient
+     * @return the number of notes updated
+     */
+    long assignPatientId(String firstName, String lastName, Integer patientId);
+
+    /**
+     * Records that the notes of the given name without a patient identifier cannot be given one,
+     * so later passes of the backfill skip them.
+     *
+     * @param firstName the first name of the patient
+     * @param lastName  the last name of the patient
+     * @return the number of notes updated
+     */
+    long markPatientIdUnresolved(String firstName, String lastName);
+
+    /**
+     * Tells whether a one-off migration has completed, as recorded by {@link #markMigrationComplete}.
+     *
+     * @param migration the name of the migration
+     * @return true if the migration has completed
+     */
+    boolean isMigrationComplete(String migration);
+
+    /**
+     * Records that a one-off migration has completed, so it is not run again after a restart.
+     *
+     * @param migration the name of the migration
+     */
+    void markMigrationComplete(String migration);
+
+    /**
+     * Sets the content hash on up to {@code batchSize} notes that do not carry one yet. A note whose
+     * text is updated in the meantime keeps the hash set by the update.
+     *
+     * @param batchSize the maximum number of notes to read
+     * @return the number of notes read, smaller than {@code batchSize} once none is left
+     */
+    int assignContentHashes(int batchSize);
+
+    /**
+     * Retrieves the active notes of several patients in a single query, most recently updated first.
+     *
+     * @param patientIds the identifiers of the patients
+     * @param textOnly   whether to only load the text and patient of each note
+     * @return the active notes of the given patients
+     */
+    List<Note> findActiveByPatientIds(Collection<Integer> patientIds, boolean textOnly);
+
+    /**
+     * Retrieves the active notes of several patients identified by name in a single query,
+     * most recently updated first. Used until every note carries its patient identifier.
+     *
+     * @param patients the names of the patients
+     * @param textOnly whether to only load the text and patient of each note
+     * @return the active notes of the given patients
+     */
+    List<Note> findActiveByPatientNames(Collection<PatientName> patients, boolean textOnly);
+}
@@ -0,0 +1,192 @@
+package dev.nikkune.msnotes.repository;
+
+import dev.nikkune.msnotes.model.Note;
+import dev.nikkune.msnotes.model.NoteListVersion;
+import dev.nikkune.msnotes.model.PatientName;
+import dev.nikkune.msnotes.util.ContentHash;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.FindAndReplaceOptions;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.data.support.PageableExecutionUtils;
+
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * {@link MongoOperations} based implementation of {@link NoteRepositoryCustom}. Every update
+ * is a single round trip filtered on {@code active: true} that only touches the changed fields.
+ */
+public class NoteRepositoryCustomImpl implements NoteRepositoryCustom {
+    public static final String ARCHIVE_COLLECTION = "notes_archive";
+    public static final String MIGRATIONS_COLLECTION = "migrations";
+
+    private final MongoOperations mongoOperations;
+
+    public NoteRepositoryCustomImpl(MongoOperations mongoOperations) {
+        this.mongoOperations = mongoOperations;
+    }
+
+    @Override
+    public Note updateActiveNote(String id, String noteText, Long expectedVersion, Date updatedAt) {
+        Query query = activeNote(id);
+        if (expectedVersion != null) {
+            query.addCriteria(Criteria.where("version").is(expectedVersion));
+        }
+        Update update = new Update()
+                .set("note", noteText)
+                .set("contentHash", ContentHash.of(noteText))
+                .set("updatedAt", updatedAt)
+                .inc("version", 1);
+        return mongoOperations.findAndModify(query, update, FindAndModifyOptions.options().returnNew(true), Note.class);
+    }
+
+    @Override
+    public boolean deactivate(String id, Date updatedAt) {
+        Update update = new Update()
+                .set("active", false)
+                .set("updatedAt", updatedAt)
+                .inc("version", 1);
+        return mongoOperations.updateFirst(activeNote(id), update, Note.class).getModifiedCount() == 1;
+    }
+
+    @Override
+    public int archiveInactiveBefore(Date inactiveBefore, int batchSize) {
+        Query candidates = new Query(Criteria.where("active").is(false).and("updatedAt").lt(inactiveBefore))
+                .with(Sort.by("updatedAt"))
+                .limit(batchSize);
+        List<Note> batch = mongoOperations.find(candidates, Note.class);
+        if (batch.isEmpty()) {
+            return 0;
+        }
+
+        BulkOperations copy = mongoOperations.bulkOps(BulkOperations.BulkMode.UNORDERED, Note.class, ARCHIVE_COLLECTION);
+        batch.forEach(note -> copy.replaceOne(new Query(Criteria.where("id").is(note.getId())), note,
+                FindAndReplaceOptions.options().upsert()));
+        copy.execute();
+
+        List<String> ids = batch.stream().map(Note::getId).toList();
+        Query archived = new Query(Criteria.where("id").in(ids).and("active").is(false));
+        return (int) mongoOperations.remove(archived, Note.class).getDeletedCount();
+    }
+
+    @Override
+    public void ensureArchiveIndex() {
+        mongoOperations.indexOps(ARCHIVE_COLLECTION)
+                .createIndex(new Index().on("lastName", Sort.Direction.ASC).on("firstName", Sort.Direction.ASC));
+    }
+
+    @Override
+    public Page<Note> findArchived(String firstName, String lastName, Pageable pageable) {
+        Query query = new Query(Criteria.where("firstName").is(firstName).and("lastName").is(lastName));
+        List<Note> notes = mongoOperations.find(Query.of(query).with(pageable).with(Sort.by(Sort.Direction.DESC, "updatedAt")),
+                Note.class, ARCHIVE_COLLECTION);
+        return PageableExecutionUtils.getPage(notes, pageable,
+                () -> mongoOperations.count(Query.of(query), Note.class, ARCHIVE_COLLECTION));
+    }
+
+    @Override
+    public NoteListVersion listVersion(String firstName, String lastName) {
+        return listVersion(Criteria.where("lastName").is(lastName).and("firstName").is(firstName));
+    }
+
+    @Override
+    public NoteListVersion listVersion(Integer patientId) {
+        return listVersion(Criteria.where("patientId").is(patientId));
+    }
+
+    @Override
+    public List<PatientName> findNamesWithoutPatientId() {
+        Aggregation aggregation = Aggregation.newAggregation(
+                Aggregation.match(Criteria.where("patientId").exists(false).and("patientIdUnresolved").ne(true)),
+                Aggregation.group("firstName", "lastName"),
+                Aggregation.project("firstName", "lastName").andExclude("_id"));
+        return mongoOperations.aggregate(aggregation, Note.class, PatientName.class).getMappedResults();
+    }
+
+    @Override
+    public long assignPatientId(String firstName, String lastName, Integer patientId) {
+        Query query = new Query(Criteria.where("firstName").is(firstName).and("lastName").is(lastName)
+                .and("patientId").exists(false));
+        return mongoOperations.updateMulti(query, Update.update("patientId", patientId), Note.class).getModifiedCount();
+    }
+
+    @Override
+    public long markPatientIdUnresolved(String firstName, String lastName) {
+        Query query = new Query(Criteria.where("firstName").is(firstName).and("lastName").is(lastName)
+                .and("patientId").exists(false));
+        return mongoOperations.updateMulti(query, Update.update("patientIdUnresolved", true), Note.class).getModifiedCount();
+    }
+
+    @Override
+    public boolean isMigrationComplete(String migration) {
+        return mongoOperations.exists(new Query(Criteria.where("_id").is(migration)), MIGRATIONS_COLLECTION);
+    }
+
+    @Override
+    public void markMigrationComplete(String migration) {
+        mongoOperations.upsert(new Query(Criteria.where("_id").is(migration)), Update.update("completedAt", new Date()),
+                MIGRATIONS_COLLECTION);
+    }
+
+    @Override
+    public int assignContentHashes(int batchSize) {
+        Query query = new Query(Criteria.where("contentHash").exists(false)).limit(batchSize);
+        query.fields().include("note");
+        List<Note> batch = mongoOperations.find(query, Note.class);
+        if (batch.isEmpty()) {
+            return 0;
+        }
+        BulkOperations hashes = mongoOperations.bulkOps(BulkOperations.BulkMode.UNORDERED, Note.class);
+        // a text update in between sets its own hash, so the filter no longer matches
+        batch.forEach(note -> hashes.updateOne(
+                new Query(Criteria.where("id").is(note.getId()).and("contentHash").exists(false)),
+                Update.update("contentHash", ContentHash.of(note.getNote()))));
+        hashes.execute();
+        return batch.size();
+    }
+
+    @Override
+    public List<Note> findActiveByPatientIds(Collection<Integer> patientIds, boolean textOnly) {
+        return findActive(Criteria.where("patientId").in(patientIds), textOnly);
+    }
+
+    @Override
+    public List<Note> findActiveByPatientNames(Collection<PatientName> patients, boolean textOnly) {
+        Criteria[] names = patients.stream()
+                .map(name -> Criteria.where("lastName").is(name.lastName()).and("firstName").is(name.firstName()))
+                .toArray(Criteria[]::new);
+        return findActive(new Criteria().orOperator(names), textOnly);
+    }
+
+    private List<Note> findActive(Criteria patients, boolean textOnly) {
+        Query query = new Query(patients.and("active").is(true)).with(Sort.by(Sort.Direction.DESC, "updatedAt"));
+        if (textOnly) {
+            query.fields().include("patientId", "firstName", "lastName", "note");
+        }
+        return mongoOperations.find(query, Note.class);
+    }
+
+    private NoteListVersion listVersion(Criteria patient) {
+        Aggregation aggregation = Aggregation.newAggregation(
+                Aggregation.match(patient.and("active").is(true)),
+                Aggregation.group()
+                        .count().as("count")
+                        .max("updatedAt").as("lastUpdatedAt"));
+        NoteListVersion version = mongoOperations.aggregate(aggregation, Note.class, NoteListVersion.class).getUniqueMappedResult();
+        return version == null ? NoteListVersion.EMPTY : version;
+    }
+
+    private static Query activeNote(String id) {
+        return new Query(Criteria.where("id").is(id).and("active").is(true));
+    }
+}
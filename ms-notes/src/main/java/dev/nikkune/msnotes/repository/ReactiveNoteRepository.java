@@ -0,0 +1,30 @@
+package dev.nikkune.msnotes.repository;
+
+import dev.nikkune.msnotes.model.Note;
+import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
+import reactor.core.publisher.Flux;
+
+/**
+ * Reactive repository for {@link Note} entities, backed by the reactive streams MongoDB driver.
+ * Used by the streaming read endpoints: documents are emitted as the cursor delivers them and
+ * only as fast as the subscriber requests them.
+ */
+public interface ReactiveNoteRepository extends ReactiveMongoRepository<Note, String> {
+    /**
+     * Streams the active notes of a patient, most recently updated first.
+     *
+     * @param patientId the identifier of the patient
+     * @return the active notes of the patient
+     */
+    Flux<Note> findByPatientIdAndActiveTrueOrderByUpdatedAtDesc(Integer patientId);
+
+    /**
+     * Streams the active notes of a patient identified by name, most recently updated first.
+     * Used until every note carries its patient identifier.
+     *
+     * @param firstName the first name of the patient
+     * @param lastName  the last name of the patient
+     * @return the active notes of the patient
+     */
+    Flux<Note> findByFirstNameAndLastNameAndActiveTrueOrderByUpdatedAtDesc(String firstName, String lastName);
+}
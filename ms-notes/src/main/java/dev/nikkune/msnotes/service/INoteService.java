@@ -1,9 +1,17 @@
 package dev.nikkune.msnotes.service;
 
+import dev.nikkune.msnotes.dto.CacheStatsDTO;
 import dev.nikkune.msnotes.exception.PatientNotFoundException;
 import dev.nikkune.msnotes.model.Note;
+import dev.nikkune.msnotes.model.PatientName;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import reactor.core.publisher.Flux;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Service interface for managing notes associated with patients.
@@ -23,6 +31,39 @@ public interface INoteService {
      */
     List<Note> list(String firstName, String lastName);
 
+    /**
+     * Computes an entity tag identifying the current state of the active notes of a patient.
+     * The tag changes whenever a note of the patient is added, updated or deleted, and is
+     * computed without loading the notes.
+     *
+     * @param firstName the first name of the patient
+     * @param lastName  the last name of the patient
+     * @return a quoted entity tag for the notes list of the patient
+     * @throws PatientNotFoundException if the patient does not exist
+     */
+    String listETag(String firstName, String lastName);
+
+    /**
+     * Streams the active notes associated with a patient, most recently updated first, using the
+     * reactive MongoDB driver. The patient is checked before the stream is returned.
+     *
+     * @param firstName the first name of the patient
+     * @param lastName  the last name of the patient
+     * @return a stream of the active notes of the patient
+     * @throws PatientNotFoundException if the patient does not exist
+     */
+    Flux<Note> stream(String firstName, String lastName);
+
+    /**
+     * Retrieves the active notes of several patients at once, most recently updated first.
+     * Patients that do not exist are left out of the result.
+     *
+     * @param patients the names of the patients
+     * @param textOnly whether to only load the text of the notes
+     * @return the notes of each existing patient, in request order, with an empty list for patients without notes
+     */
+    Map<PatientName, List<Note>> listByPatients(Collection<PatientName> patients, boolean textOnly);
+
     /**
      * Adds a new active note for a patient, ensuring the patient exists before creating the note.
      * The note is saved with the current timestamp for creation and update time.
@@ -45,14 +86,17 @@ public interface INoteService {
 
     /**
      * Updates the text of an existing note identified by its unique ID and updates the note's timestamp.
-     * The note must be active; otherwise, an exception is thrown.
+     * The note must be active; otherwise, an exception is thrown. When an expected version is given,
+     * the update only applies if the note has not been modified since that version was read.
      *
-     * @param id       the unique identifier of the note to be updated
-     * @param noteText the new content to replace the existing note text
+     * @param id              the unique identifier of the note to be updated
+     * @param noteText        the new content to replace the existing note text
+     * @param expectedVersion the version of the note the caller last read, or {@code null} to skip the check
      * @return the updated {@code Note} object after changes are saved to the repository
-     * @throws NoteNotFoundException if the note with the provided ID does not exist or is inactive
+     * @throws NoteNotFoundException        if the note with the provided ID does not exist or is inactive
+     * @throws NoteVersionConflictException if the note has been modified since the expected version
      */
-    Note update(String id, String noteText);
+    Note update(String id, String noteText, Long expectedVersion);
 
     /**
      * Marks a note as inactive, effectively treating it as deleted. The note
@@ -62,4 +106,42 @@ public interface INoteService {
      * @throws NoteNotFoundException if the note with the specified id does not exist or is already inactive
      */
     void delete(String id);
+
+    /**
+     * Searches the active notes of all patients for the given terms.
+     * Results are ranked by relevance, best match first.
+     *
+     * @param query    the search terms; quoted phrases and {@code -term} exclusions are supported
+     * @param pageable the page of results to retrieve
+     * @return a slice of matching active notes, without the total number of matches
+     */
+    Slice<Note> search(String query, Pageable pageable);
+
+    /**
+     * Counts the active notes of all patients matching the given terms.
+     *
+     * @param query the search terms, as for {@link #search}
+     * @return the number of matching active notes
+     */
+    long countSearch(String query);
+
+    /**
+     * Retrieves a page of the archived notes of a patient, most recently updated first.
+     * Archived notes are deleted notes moved out of the live collection once their
+     * retention window has passed; the patient does not need to exist anymore.
+     *
+     * @param firstName the first name of the patient
+     * @param lastName  the last name of the patient
+     * @param pageable  the page of notes to retrieve
+     * @return a page of archived notes
+     */
+    Page<Note> listArchived(String firstName, String lastName, Pageable pageable);
+
+    /**
+     * Returns the size and hit statistics of the cache of patient existence checks made against
+     * the patient microservice.
+     *
+     * @return the current statistics of the patient existence cache
+     */
+    CacheStatsDTO patientCacheStats();
 }
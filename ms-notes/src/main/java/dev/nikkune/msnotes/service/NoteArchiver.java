@@ -0,0 +1,97 @@
+package dev.nikkune.msnotes.service;
+
+import dev.nikkune.msnotes.config.SchedulingConfig;
+import dev.nikkune.msnotes.repository.NoteRepository;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Date;
+
+/**
+ * Background job moving soft-deleted notes older than the retention window out of the
+ * notes collection into the archive collection, keeping the live collection and its
+ * indexes limited to the notes that are actually read.
+ * <p>
+ * Each run moves at most {@code maxBatchesPerRun} batches and pauses between batches,
+ * which bounds the load it puts on MongoDB next to live traffic. Runs are scheduled on the
+ * archiver's own scheduler, so these pauses never hold up the other scheduled jobs. The index
+ * of the archive collection is created by the first run, before any note is archived.
+ */
+@Component
+public class NoteArchiver {
+    private static final Logger logger = LogManager.getLogger(NoteArchiver.class);
+
+    private final NoteRepository noteRepository;
+    private final boolean enabled;
+    private final Duration retention;
+    private final int batchSize;
+    private final int maxBatchesPerRun;
+    private final Duration pauseBetweenBatches;
+    private volatile boolean archiveIndexed;
+
+    /**
+     * Constructs a NoteArchiver.
+     *
+     * @param noteRepository      the repository used to move the notes
+     * @param enabled             whether the archiver runs at all. Defaults to true.
+     * @param retention           how long a note stays in the notes collection after being deleted. Defaults to 90 days.
+     * @param batchSize           the number of notes moved per batch. Defaults to 500.
+     * @param maxBatchesPerRun    the maximum number of batches moved per run. Defaults to 20.
+     * @param pauseBetweenBatches the pause between two batches of the same run. Defaults to 200 milliseconds.
+     */
+    public NoteArchiver(NoteRepository noteRepository,
+                        @Value("${ms.notes.archive.enabled:true}") boolean enabled,
+                        @Value("${ms.notes.archive.retention:P90D}") Duration retention,
+                        @Value("${ms.notes.archive.batch-size:500}") int batchSize,
+                        @Value("${ms.notes.archive.max-batches-per-run:20}") int maxBatchesPerRun,
+                        @Value("${ms.notes.archive.pause-between-batches:PT0.2S}") Duration pauseBetweenBatches) {
+        this.noteRepository = noteRepository;
+        this.enabled = enabled;
+        this.retention = retention;
+        this.batchSize = batchSize;
+        this.maxBatchesPerRun = maxBatchesPerRun;
+        this.pauseBetweenBatches = pauseBetweenBatches;
+    }
+
+    /**
+     * Archives inactive notes last updated before the retention window, batch by batch,
+     * until none is left or the per-run batch limit is reached.
+     *
+     * @return the number of notes archived during this run
+     */
+    @Scheduled(fixedDelayString = "${ms.notes.archive.interval:PT1H}", initialDelayString = "${ms.notes.archive.initial-delay:PT5M}",
+            scheduler = SchedulingConfig.ARCHIVE_SCHEDULER)
+    public int archive() {
+        if (!enabled) {
+            return 0;
+        }
+        Date inactiveBefore = new Date(System.currentTimeMillis() - retention.toMillis());
+        int archived = 0;
+        try {
+            if (!archiveIndexed) {
+                noteRepository.ensureArchiveIndex();
+                archiveIndexed = true;
+            }
+            for (int batch = 0; batch < maxBatchesPerRun; batch++) {
+                int moved = noteRepository.archiveInactiveBefore(inactiveBefore, batchSize);
+                archived += moved;
+                if (moved < batchSize) {
+                    break;
+                }
+                Thread.sleep(pauseBetweenBatches.toMillis());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            logger.error("Failed to archive inactive notes: {}", e.getMessage());
+        }
+        if (archived > 0) {
+            logger.info("Archived {} inactive notes deleted before {}", archived, inactiveBefore);
+        }
+        return archived;
+    }
+}
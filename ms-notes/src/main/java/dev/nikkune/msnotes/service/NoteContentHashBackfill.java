@@ -0,0 +1,69 @@
+package dev.nikkune.msnotes.service;
+
+import dev.nikkune.msnotes.repository.NoteRepository;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * One-off migration assigning the content hash to notes written before notes carried it.
+ * It runs shortly after startup, batch by batch, and is retried until one pass completes.
+ * Until then, a duplicate of an older note is not flagged on creation.
+ */
+@Component
+public class NoteContentHashBackfill {
+    private static final Logger logger = LogManager.getLogger(NoteContentHashBackfill.class);
+
+    private final NoteRepository noteRepository;
+    private final int batchSize;
+    private volatile boolean complete;
+
+    /**
+     * Constructs a NoteContentHashBackfill.
+     *
+     * @param noteRepository the repository holding the notes to migrate
+     * @param batchSize      the number of notes hashed per batch. Defaults to 500.
+     */
+    public NoteContentHashBackfill(NoteRepository noteRepository,
+                                   @Value("${ms.notes.content-hash-backfill.batch-size:500}") int batchSize) {
+        this.noteRepository = noteRepository;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Assigns the content hash to every note that lacks one. Failures are logged and the pass
+     * is resumed on the next run; notes hashed before the failure are not read again.
+     */
+    @Scheduled(initialDelayString = "${ms.notes.content-hash-backfill.initial-delay:PT15S}",
+            fixedDelayString = "${ms.notes.content-hash-backfill.retry-interval:PT1M}")
+    public void run() {
+        if (complete) {
+            return;
+        }
+        long assigned = 0;
+        try {
+            int hashed;
+            do {
+                hashed = noteRepository.assignContentHashes(batchSize);
+                assigned += hashed;
+            } while (hashed == batchSize);
+            complete = true;
+            if (assigned > 0) {
+                logger.info("Assigned content hash to {} notes", assigned);
+            }
+        } catch (RuntimeException e) {
+            logger.warn("Failed to backfill note content hashes after {} notes: {}", assigned, e.getMessage());
+        }
+    }
+
+    /**
+     * Tells whether every note carries its content hash.
+     *
+     * @return true once a backfill pass has completed
+     */
+    public boolean isComplete() {
+        return complete;
+    }
+}
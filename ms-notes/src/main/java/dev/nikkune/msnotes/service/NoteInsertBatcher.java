@@ -0,0 +1,246 @@
+package dev.nikkune.msnotes.service;
+
+import dev.nikkune.msnotes.model.Note;
+import dev.nikkune.msnotes.repository.NoteRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Group commit of note inserts. When enabled, notes submitted concurrently are collected for at
+ * most {@code maxDelay} or until {@code maxBatchSize} notes are waiting, then written with a
+ * single {@code insertMany}. Each caller is only answered once the batch holding its note has
+ * been acknowledged, so the write concern seen by a caller is the same as for a single insert.
+ * <p>
+ * If a batch fails, the notes it did not write are retried one by one, so a faulty note only
+ * fails its own caller. When the queue is full, notes are inserted directly.
+ * <p>
+ * The flusher thread is never interrupted: the MongoDB driver fails calls made from an
+ * interrupted thread, which would fail the notes being written at shutdown. It is stopped by
+ * a marker queued after the last note instead. If the notes still waiting are not written
+ * within {@code shutdownTimeout}, shutdown goes on and their callers are failed.
+ */
+@Component
+public class NoteInsertBatcher {
+    private static final Logger logger = LogManager.getLogger(NoteInsertBatcher.class);
+    /**
+     * Queued by {@link #stop()} after the last note; the flusher exits once it reaches it.
+     */
+    private static final PendingInsert STOP = new PendingInsert(null, null);
+
+    private final NoteRepository noteRepository;
+    private final boolean enabled;
+    private final int maxBatchSize;
+    private final Duration maxDelay;
+    private final Duration shutdownTimeout;
+    private final BlockingQueue<PendingInsert> queue;
+    /**
+     * The batch the flusher is writing, failed along with the queued notes if shutdown times out.
+     */
+    private volatile List<PendingInsert> writing = List.of();
+    private Thread flusher;
+    private boolean running;
+
+    /**
+     * Constructs a NoteInsertBatcher.
+     *
+     * @param noteRepository  the repository the notes are written to
+     * @param enabled         whether inserts are batched at all. Defaults to false.
+     * @param maxBatchSize    the maximum number of notes written by a single insert. Defaults to 64.
+     * @param maxDelay        how long the first note of a batch may wait for others. Defaults to 5 milliseconds.
+     * @param queueCapacity   the maximum number of notes waiting to be written. Defaults to 10000.
+     * @param shutdownTimeout how long shutdown waits for the notes still waiting to be written. Defaults to 10 seconds.
+     */
+    public NoteInsertBatcher(NoteRepository noteRepository,
+                             @Value("${ms.notes.insert-batching.enabled:false}") boolean enabled,
+                             @Value("${ms.notes.insert-batching.max-batch-size:64}") int maxBatchSize,
+                             @Value("${ms.notes.insert-batching.max-delay:PT0.005S}") Duration maxDelay,
+                             @Value("${ms.notes.insert-batching.queue-capacity:10000}") int queueCapacity,
+                             @Value("${ms.notes.insert-batching.shutdown-timeout:PT10S}") Duration shutdownTimeout) {
+        this.noteRepository = noteRepository;
+        this.enabled = enabled;
+        this.maxBatchSize = maxBatchSize;
+        this.maxDelay = maxDelay;
+        this.shutdownTimeout = shutdownTimeout;
+        this.queue = new LinkedBlockingQueue<>(queueCapacity);
+    }
+
+    /**
+     * Starts the flusher thread when batching is enabled.
+     */
+    @PostConstruct
+    public synchronized void start() {
+        if (!enabled || running) {
+            return;
+        }
+        running = true;
+        flusher = new Thread(this::flushLoop, "note-insert-batcher");
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    /**
+     * Stops accepting notes, then writes every note still waiting, including the batch being
+     * written, before returning. If they are not all written within the shutdown timeout, for
+     * instance because an insert hangs, the notes left are failed and the flusher is abandoned;
+     * the notes of the batch being written may still end up written.
+     */
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        Thread thread;
+        synchronized (this) {
+            if (!running) {
+                return;
+            }
+            running = false;
+            thread = flusher;
+        }
+        // no note can be queued once running is cleared, so the marker is the last element
+        queue.put(STOP);
+        thread.join(shutdownTimeout.toMillis());
+        if (thread.isAlive()) {
+            List<PendingInsert> abandoned = new ArrayList<>(writing);
+            queue.drainTo(abandoned);
+            abandoned.remove(STOP);
+            logger.error("Note insert batcher did not finish within {}, failing {} notes", shutdownTimeout, abandoned.size());
+            IllegalStateException failure = new IllegalStateException("Note insert batcher stopped before the note was acknowledged");
+            abandoned.forEach(pending -> pending.result().completeExceptionally(failure));
+        }
+    }
+
+    /**
+     * Tells whether inserts go through this batcher.
+     *
+     * @return true if batching is enabled
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Inserts a note as part of the next batch and waits until the batch is acknowledged.
+     *
+     * @param note the note to insert, without identifier
+     * @return the inserted note, with its assigned identifier
+     */
+    public Note insert(Note note) {
+        try {
+            return submit(note).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Queues a note for the next batch.
+     *
+     * @param note the note to insert, without identifier
+     * @return a future completed with the inserted note once its batch is acknowledged
+     */
+    public CompletableFuture<Note> submit(Note note) {
+        PendingInsert pending = new PendingInsert(note, new CompletableFuture<>());
+        synchronized (this) {
+            if (running && queue.offer(pending)) {
+                return pending.result();
+            }
+        }
+        // not running or saturated: fall back to a direct insert on the caller's thread
+        insertOne(pending);
+        return pending.result();
+    }
+
+    private void flushLoop() {
+        List<PendingInsert> batch = new ArrayList<>(maxBatchSize);
+        boolean stopped = false;
+        while (!stopped) {
+            try {
+                PendingInsert first = queue.take();
+                stopped = first == STOP;
+                if (!stopped) {
+                    batch.add(first);
+                }
+                long deadline = System.nanoTime() + maxDelay.toNanos();
+                while (!stopped && batch.size() < maxBatchSize) {
+                    long remaining = deadline - System.nanoTime();
+                    PendingInsert next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : queue.poll();
+                    if (next == null) {
+                        break;
+                    }
+                    stopped = next == STOP;
+                    if (!stopped) {
+                        batch.add(next);
+                    }
+                }
+            } catch (InterruptedException e) {
+                // the interrupt status is cleared by now, so the batch can still be written
+                logger.warn("Note insert batcher interrupted, writing the {} notes collected so far", batch.size());
+            }
+            if (!batch.isEmpty()) {
+                writing = List.copyOf(batch);
+                flush(batch);
+                writing = List.of();
+                batch.clear();
+            }
+        }
+    }
+
+    /**
+     * Writes a batch with a single insert. Identifiers are assigned up front so that, if the
+     * insert fails part way, the notes already written can be told apart from the others.
+     */
+    private void flush(List<PendingInsert> batch) {
+        List<Note> notes = batch.stream().map(PendingInsert::note).toList();
+        notes.forEach(note -> note.setId(ObjectId.get().toHexString()));
+        try {
+            noteRepository.insert(notes);
+            batch.forEach(pending -> pending.result().complete(pending.note()));
+        } catch (RuntimeException e) {
+            logger.warn("Batched insert of {} notes failed, retrying them one by one: {}", batch.size(), e.getMessage());
+            Set<String> written;
+            try {
+                written = noteRepository.findAllById(notes.stream().map(Note::getId).toList()).stream()
+                        .map(Note::getId)
+                        .collect(Collectors.toSet());
+            } catch (RuntimeException lookupFailure) {
+                batch.forEach(pending -> pending.result().completeExceptionally(e));
+                return;
+            }
+            for (PendingInsert pending : batch) {
+                if (written.contains(pending.note().getId())) {
+                    pending.result().complete(pending.note());
+                } else {
+                    insertOne(pending);
+                }
+            }
+        }
+    }
+
+    private void insertOne(PendingInsert pending) {
+        try {
+            pending.result().complete(noteRepository.insert(pending.note()));
+        } catch (RuntimeException e) {
+            pending.result().completeExceptionally(e);
+        }
+    }
+
+    private record PendingInsert(Note note, CompletableFuture<Note> result) {
+    }
+}
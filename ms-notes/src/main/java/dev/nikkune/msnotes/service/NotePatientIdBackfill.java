@@ -0,0 +1,108 @@
+package dev.nikkune.msnotes.service;
+
+import dev.nikkune.msnotes.client.PatientClient;
+import dev.nikkune.msnotes.model.PatientName;
+import dev.nikkune.msnotes.repository.NoteRepository;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * One-off migration assigning the patient identifier to notes written before notes carried it.
+ * It runs shortly after startup and is retried until one pass completes; until then, notes are
+ * looked up by patient name so no note is missed while the migration is in progress. Completion
+ * is recorded in the {@code migrations} collection, so after a restart reads go straight to the
+ * identifier and the notes are not scanned again.
+ * <p>
+ * A name is only resolved to the active patient carrying it if no deleted patient carried it too:
+ * otherwise the notes may belong to the deleted patient and would move to whoever reuses the name.
+ * Notes whose patient cannot be told apart, or no longer exists, are recorded as unresolved and
+ * left without an identifier, so they are not looked up again.
+ */
+@Component
+public class NotePatientIdBackfill {
+    private static final Logger logger = LogManager.getLogger(NotePatientIdBackfill.class);
+    static final String MIGRATION = "note-patient-id";
+
+    private final NoteRepository noteRepository;
+    private final PatientRegistry patientRegistry;
+    private final PatientClient patientClient;
+    /**
+     * Null until the migration marker has been read, then whether the migration has completed.
+     */
+    private volatile Boolean complete;
+
+    /**
+     * Constructs a NotePatientIdBackfill.
+     *
+     * @param noteRepository  the repository holding the notes to migrate
+     * @param patientRegistry the local replica of active patients, consulted first
+     * @param patientClient   the client used for patients the registry does not know
+     */
+    public NotePatientIdBackfill(NoteRepository noteRepository, PatientRegistry patientRegistry, PatientClient patientClient) {
+        this.noteRepository = noteRepository;
+        this.patientRegistry = patientRegistry;
+        this.patientClient = patientClient;
+    }
+
+    /**
+     * Assigns the patient identifier to every note that lacks one and whose patient can be told
+     * apart, and records the others as unresolved. Failures are logged and the pass is retried on
+     * the next run, skipping the names already handled.
+     */
+    @Scheduled(initialDelayString = "${ms.notes.patient-id-backfill.initial-delay:PT10S}",
+            fixedDelayString = "${ms.notes.patient-id-backfill.retry-interval:PT1M}")
+    public void run() {
+        try {
+            if (isComplete()) {
+                return;
+            }
+            List<PatientName> names = noteRepository.findNamesWithoutPatientId();
+            long assigned = 0;
+            long unresolved = 0;
+            for (PatientName name : names) {
+                Integer patientId = patientRegistry.patientId(name.firstName(), name.lastName());
+                if (patientId == null) {
+                    patientId = patientClient.findPatientId(name.firstName(), name.lastName());
+                }
+                if (patientId == null || patientClient.hasDeletedPatient(name.firstName(), name.lastName())) {
+                    unresolved += noteRepository.markPatientIdUnresolved(name.firstName(), name.lastName());
+                    continue;
+                }
+                assigned += noteRepository.assignPatientId(name.firstName(), name.lastName(), patientId);
+            }
+            noteRepository.markMigrationComplete(MIGRATION);
+            synchronized (this) {
+                complete = true;
+            }
+            if (!names.isEmpty()) {
+                logger.info("Assigned patient id to {} notes, {} notes recorded as unresolved", assigned, unresolved);
+            }
+        } catch (RuntimeException e) {
+            logger.warn("Failed to backfill note patient ids: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Tells whether every note of an existing patient carries its patient identifier.
+     *
+     * The migration marker is read once, on the first call; later calls answer from memory.
+     *
+     * @return true once a backfill pass has completed, in this run or an earlier one
+     */
+    public boolean isComplete() {
+        Boolean complete = this.complete;
+        if (complete == null) {
+            synchronized (this) {
+                if (this.complete == null) {
+                    this.complete = noteRepository.isMigrationComplete(MIGRATION);
+                }
+                complete = this.complete;
+            }
+        }
+        return complete;
+    }
+}
@@ -1,14 +1,31 @@
 package dev.nikkune.msnotes.service;
 
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
 import dev.nikkune.msnotes.client.PatientClient;
+import dev.nikkune.msnotes.dto.CacheStatsDTO;
 import dev.nikkune.msnotes.exception.NoteNotFoundException;
+import dev.nikkune.msnotes.exception.NoteVersionConflictException;
 import dev.nikkune.msnotes.exception.PatientNotFoundException;
 import dev.nikkune.msnotes.model.Note;
+import dev.nikkune.msnotes.model.NoteListVersion;
+import dev.nikkune.msnotes.model.PatientName;
 import dev.nikkune.msnotes.repository.NoteRepository;
+import dev.nikkune.msnotes.repository.ReactiveNoteRepository;
+import dev.nikkune.msnotes.util.ContentHash;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.mongodb.core.query.TextCriteria;
 import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Service class for managing notes associated with patients. This class provides
@@ -18,22 +35,37 @@ import java.util.List;
 @Service
 public class NoteService implements INoteService {
     private final NoteRepository noteRepository;
+    private final ReactiveNoteRepository reactiveNoteRepository;
     private final PatientClient patientClient;
+    private final PatientRegistry patientRegistry;
+    private final NotePatientIdBackfill patientIdBackfill;
+    private final NoteInsertBatcher noteInsertBatcher;
 
     /**
      * Constructs a new instance of NoteService.
      *
-     * @param noteRepository the repository used for managing note persistence
-     * @param patientClient  the client used to interact with the patient microservice
+     * @param noteRepository         the repository used for managing note persistence
+     * @param reactiveNoteRepository the reactive repository used for streaming reads
+     * @param patientClient          the client used to interact with the patient microservice
+     * @param patientRegistry        the local replica of active patients
+     * @param patientIdBackfill      the migration assigning patient identifiers to older notes
+     * @param noteInsertBatcher      the group commit used for inserts when enabled
      */
-    public NoteService(NoteRepository noteRepository, PatientClient patientClient) {
+    public NoteService(NoteRepository noteRepository, ReactiveNoteRepository reactiveNoteRepository,
+                       PatientClient patientClient, PatientRegistry patientRegistry,
+                       NotePatientIdBackfill patientIdBackfill, NoteInsertBatcher noteInsertBatcher) {
         this.noteRepository = noteRepository;
+        this.reactiveNoteRepository = reactiveNoteRepository;
         this.patientClient = patientClient;
+        this.patientRegistry = patientRegistry;
+        this.patientIdBackfill = patientIdBackfill;
+        this.noteInsertBatcher = noteInsertBatcher;
     }
 
     /**
      * Retrieves a list of active notes associated with a patient, filtered by their first and last name,
-     * and sorted in descending order based on creation time.
+     * and sorted in descending order based on creation time. Notes are looked up by patient identifier
+     * once every older note carries it, and by name until then.
      *
      * @param firstName the first name of the patient
      * @param lastName  the last name of the patient
@@ -41,13 +73,90 @@ public class NoteService implements INoteService {
      * @throws PatientNotFoundException if the patient does not exist
      */
     public List<Note> list(String firstName, String lastName) {
-        ensurePatientExists(firstName, lastName);
-        return noteRepository.findByFirstNameAndLastNameAndActiveTrueOrderByUpdatedAtDesc(firstName, lastName);
+        Integer patientId = resolvePatientId(firstName, lastName);
+        if (!patientIdBackfill.isComplete()) {
+            return noteRepository.findByFirstNameAndLastNameAndActiveTrueOrderByUpdatedAtDesc(firstName, lastName);
+        }
+        return noteRepository.findByPatientIdAndActiveTrueOrderByUpdatedAtDesc(patientId);
+    }
+
+    /**
+     * Computes an entity tag for the active notes of a patient from their count and their most
+     * recent update timestamp, read in a single aggregation covered by the
+     * {@code patientId_active_updatedAt} index once notes carry their patient identifier.
+     *
+     * @param firstName the first name of the patient
+     * @param lastName  the last name of the patient
+     * @return a quoted entity tag for the notes list of the patient
+     * @throws PatientNotFoundException if the patient does not exist
+     */
+    public String listETag(String firstName, String lastName) {
+        Integer patientId = resolvePatientId(firstName, lastName);
+        NoteListVersion version = patientIdBackfill.isComplete()
+                ? noteRepository.listVersion(patientId)
+                : noteRepository.listVersion(firstName, lastName);
+        long lastUpdatedAt = version.lastUpdatedAt() == null ? 0 : version.lastUpdatedAt().getTime();
+        return "\"" + version.count() + "-" + Long.toHexString(lastUpdatedAt) + "\"";
+    }
+
+    /**
+     * Streams the active notes of a patient with the reactive MongoDB driver. The patient is
+     * resolved before the stream is returned, so a missing patient fails the request before
+     * anything is written; the notes themselves are read without holding a thread.
+     *
+     * @param firstName the first name of the patient
+     * @param lastName  the last name of the patient
+     * @return a stream of the active notes of the patient
+     * @throws PatientNotFoundException if the patient does not exist
+     */
+    public Flux<Note> stream(String firstName, String lastName) {
+        Integer patientId = resolvePatientId(firstName, lastName);
+        if (!patientIdBackfill.isComplete()) {
+            return reactiveNoteRepository.findByFirstNameAndLastNameAndActiveTrueOrderByUpdatedAtDesc(firstName, lastName);
+        }
+        return reactiveNoteRepository.findByPatientIdAndActiveTrueOrderByUpdatedAtDesc(patientId);
+    }
+
+    /**
+     * Retrieves the active notes of several patients with a single query on the notes collection.
+     * Patients are resolved through the local registry first, so known patients cost no network call.
+     *
+     * @param patients the names of the patients
+     * @param textOnly whether to only load the text of the notes
+     * @return the notes of each existing patient, in request order, with an empty list for patients without notes
+     */
+    public Map<PatientName, List<Note>> listByPatients(Collection<PatientName> patients, boolean textOnly) {
+        Map<Integer, PatientName> patientsById = new LinkedHashMap<>();
+        for (PatientName patient : new LinkedHashSet<>(patients)) {
+            Integer patientId = findPatientId(patient.firstName(), patient.lastName());
+            if (patientId != null) {
+                patientsById.put(patientId, patient);
+            }
+        }
+        Map<PatientName, List<Note>> notesByPatient = new LinkedHashMap<>();
+        patientsById.values().forEach(patient -> notesByPatient.put(patient, new ArrayList<>()));
+        if (patientsById.isEmpty()) {
+            return notesByPatient;
+        }
+
+        if (patientIdBackfill.isComplete()) {
+            noteRepository.findActiveByPatientIds(patientsById.keySet(), textOnly)
+                    .forEach(note -> notesByPatient.get(patientsById.get(note.getPatientId())).add(note));
+        } else {
+            noteRepository.findActiveByPatientNames(notesByPatient.keySet(), textOnly).forEach(note -> {
+                List<Note> notes = notesByPatient.get(new PatientName(note.getFirstName(), note.getLastName()));
+                if (notes != null) {
+                    notes.add(note);
+                }
+            });
+        }
+        return notesByPatient;
     }
 
     /**
      * Adds a new active note for a patient, ensuring the patient exists before creating the note.
-     * The note is saved with the current timestamp for creation and update time.
+     * The note is saved with the current timestamp for creation and update time and the hash of
+     * its text, through the insert batcher when it is enabled.
      *
      * @param firstName the first name of the patient associated with the note
      * @param lastName  the last name of the patient associated with the note
@@ -55,16 +164,18 @@ public class NoteService implements INoteService {
      * @return the saved {@code Note} object
      */
     public Note add(String firstName, String lastName, String noteText) {
-        ensurePatientExists(firstName, lastName);
+        Integer patientId = resolvePatientId(firstName, lastName);
         Date now = new Date();
         Note note = new Note();
+        note.setPatientId(patientId);
         note.setFirstName(firstName);
         note.setLastName(lastName);
         note.setNote(noteText);
+        note.setContentHash(ContentHash.of(noteText));
         note.setActive(true);
         note.setCreatedAt(now);
         note.setUpdatedAt(now);
-        return noteRepository.save(note);
+        return noteInsertBatcher.isEnabled() ? noteInsertBatcher.insert(note) : noteRepository.save(note);
     }
 
     /**
@@ -83,52 +194,119 @@ public class NoteService implements INoteService {
     }
 
     /**
-     * Updates the text of an existing note identified by its ID and sets the updated timestamp.
-     * The note must be active; otherwise, a {@link NoteNotFoundException} is thrown.
+     * Updates the text of an existing note identified by its ID and sets the updated timestamp,
+     * in a single atomic operation filtered on the note being active. When an expected version is
+     * given, the update only applies if the note is still at that version.
      *
-     * @param id       the unique identifier of the note to be updated
-     * @param noteText the new text content for the note
-     * @return the updated {@link Note} after saving changes to the repository
-     * @throws NoteNotFoundException if the note with the provided ID does not exist or is inactive
+     * @param id              the unique identifier of the note to be updated
+     * @param noteText        the new text content for the note
+     * @param expectedVersion the version of the note the caller last read, or {@code null} to skip the check
+     * @return the updated {@link Note} as stored after the update
+     * @throws NoteNotFoundException        if the note with the provided ID does not exist or is inactive
+     * @throws NoteVersionConflictException if the note has been modified since the expected version
      */
-    public Note update(String id, String noteText) {
-        Note existing = get(id);
-        if (!existing.getActive()) {
+    public Note update(String id, String noteText, Long expectedVersion) {
+        Note updated = noteRepository.updateActiveNote(id, noteText, expectedVersion, new Date());
+        if (updated == null) {
+            if (expectedVersion != null && noteRepository.existsByIdAndActiveTrue(id)) {
+                throw new NoteVersionConflictException(id, expectedVersion);
+            }
             throw new NoteNotFoundException(id);
         }
-        existing.setNote(noteText);
-        existing.setUpdatedAt(new Date());
-        return noteRepository.save(existing);
+        return updated;
     }
 
     /**
-     * Marks a note as inactive. If the note does not exist or is already inactive,
-     * throws a NoteNotFoundException.
+     * Marks a note as inactive in a single atomic operation. If the note does not exist
+     * or is already inactive, throws a NoteNotFoundException.
      *
      * @param id the unique identifier of the note to be deleted
      * @throws NoteNotFoundException if the note does not exist or is already inactive
      */
     public void delete(String id) {
-        Note existing = get(id);
-        if (!existing.getActive()) {
+        if (!noteRepository.deactivate(id, new Date())) {
             throw new NoteNotFoundException(id);
         }
-        existing.setActive(false);
-        existing.setUpdatedAt(new Date());
-        noteRepository.save(existing);
     }
 
     /**
-     * Ensures that a patient exists by verifying their existence via the patient client.
-     * If the patient does not exist, a {@link PatientNotFoundException} is thrown.
+     * Searches the active notes of all patients for the given terms using the text index
+     * on the note body. Results are ranked by relevance, best match first. The matches are
+     * not counted, which would run the text query a second time.
      *
-     * @param firstName the first name of the patient to verify
-     * @param lastName  the last name of the patient to verify
+     * @param query    the search terms; quoted phrases and {@code -term} exclusions are supported
+     * @param pageable the page of results to retrieve
+     * @return a slice of matching active notes, without the total number of matches
+     */
+    public Slice<Note> search(String query, Pageable pageable) {
+        return noteRepository.findByActiveTrueOrderByScoreDesc(textCriteria(query), pageable);
+    }
+
+    /**
+     * Counts the active notes of all patients matching the given terms, using the text index
+     * on the note body.
+     *
+     * @param query the search terms, as for {@link #search}
+     * @return the number of matching active notes
+     */
+    public long countSearch(String query) {
+        return noteRepository.countByActiveTrue(textCriteria(query));
+    }
+
+    private static TextCriteria textCriteria(String query) {
+        return TextCriteria.forDefaultLanguage().matching(query);
+    }
+
+    /**
+     * Retrieves a page of the archived notes of a patient, most recently updated first.
+     * The patient is not checked, since archived notes may belong to deleted patients.
+     *
+     * @param firstName the first name of the patient
+     * @param lastName  the last name of the patient
+     * @param pageable  the page of notes to retrieve
+     * @return a page of archived notes
+     */
+    public Page<Note> listArchived(String firstName, String lastName, Pageable pageable) {
+        return noteRepository.findArchived(firstName, lastName, pageable);
+    }
+
+    /**
+     * Returns the statistics of the patient existence cache of the {@link PatientClient}.
+     *
+     * @return the size, hit and miss counts of the patient existence cache
+     */
+    public CacheStatsDTO patientCacheStats() {
+        CacheStats stats = patientClient.cacheStats();
+        CacheStatsDTO dto = new CacheStatsDTO();
+        dto.setSize(patientClient.cacheSize());
+        dto.setHitCount(stats.hitCount());
+        dto.setMissCount(stats.missCount());
+        dto.setHitRate(stats.hitRate());
+        dto.setLoadCount(stats.loadCount());
+        dto.setEvictionCount(stats.evictionCount());
+        return dto;
+    }
+
+    /**
+     * Resolves the identifier of a patient, ensuring that the patient exists. Patients known to
+     * the local registry are resolved without a network call; others are looked up via the
+     * patient client. If the patient does not exist, a {@link PatientNotFoundException} is thrown.
+     *
+     * @param firstName the first name of the patient to resolve
+     * @param lastName  the last name of the patient to resolve
+     * @return the identifier of the patient
      * @throws PatientNotFoundException if the patient does not exist
      */
-    private void ensurePatientExists(String firstName, String lastName) {
-        if (!patientClient.exists(firstName, lastName)) {
+    private Integer resolvePatientId(String firstName, String lastName) {
+        Integer patientId = findPatientId(firstName, lastName);
+        if (patientId == null) {
             throw new PatientNotFoundException(firstName, lastName);
         }
+        return patientId;
+    }
+
+    private Integer findPatientId(String firstName, String lastName) {
+        Integer patientId = patientRegistry.patientId(firstName, lastName);
+        return patientId != null ? patientId : patientClient.findPatientId(firstName, lastName);
     }
 }
@@ -0,0 +1,246 @@
+package dev.nikkune.msnotes.service;
+
+import dev.nikkune.msnotes.client.PatientClient;
+import dev.nikkune.msnotes.dto.PatientEventBatchDTO;
+import dev.nikkune.msnotes.dto.PatientEventDTO;
+import dev.nikkune.msnotes.dto.PatientEventHeadDTO;
+import dev.nikkune.msnotes.dto.PatientPageDTO;
+import dev.nikkune.msnotes.dto.PatientSummaryDTO;
+import dev.nikkune.msnotes.model.PatientEventType;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Local replica of the active patients and their identifiers, kept up to date from the change
+ * events published by the Patient microservice. It lets existence checks and identifier lookups
+ * for known patients be answered without any network call.
+ * <p>
+ * The registry only ever answers "known to exist"; a patient it does not know about
+ * (for instance one created before the outbox existed) must still be checked remotely.
+ * <p>
+ * Event ids are assigned when the event is written, not when it commits, so an event can
+ * become visible after events with higher ids were already read. Ids skipped by the cursor are
+ * therefore remembered and read again on each poll until their event shows up, or until the
+ * gap timeout tells they belonged to a rolled back transaction. Events already applied are
+ * ignored when read again.
+ * <p>
+ * The registry is built from a snapshot of the active patients, on the first poll and whenever
+ * the epoch of the outbox changes, which happens when the Patient microservice restarts with a
+ * new outbox and starts its ids over. The events of a window below the head of the outbox are
+ * replayed on top of the snapshot, to catch the changes committed while it was read.
+ */
+@Component
+public class PatientRegistry {
+    /**
+     * Largest page of patients served by the Patient microservice.
+     */
+    static final int SNAPSHOT_PAGE_SIZE = 500;
+    /**
+     * Upper bound on the number of skipped event ids waited for.
+     */
+    static final int MAX_PENDING_IDS = 10_000;
+    private static final Logger logger = LogManager.getLogger(PatientRegistry.class);
+
+    private final PatientClient patientClient;
+    private final int batchSize;
+    private final long gapTimeoutNanos;
+    private final int rebuildWindow;
+    /**
+     * Skipped event ids, mapped to the {@link System#nanoTime()} at which they were skipped.
+     */
+    private final TreeMap<Long, Long> pendingIds = new TreeMap<>();
+    private volatile Map<String, Integer> activePatients = new ConcurrentHashMap<>();
+    private volatile long lastEventId;
+    private String epoch;
+
+    /**
+     * Constructs a PatientRegistry with the default gap timeout and rebuild window.
+     *
+     * @param patientClient the client used to poll patient events and invalidate its existence cache
+     * @param batchSize     the maximum number of events fetched per request
+     */
+    public PatientRegistry(PatientClient patientClient, int batchSize) {
+        this(patientClient, batchSize, Duration.ofMinutes(1), 1000);
+    }
+
+    /**
+     * Constructs a PatientRegistry fed by the events exposed through the given client.
+     *
+     * @param patientClient the client used to poll patient events and invalidate its existence cache
+     * @param batchSize     the maximum number of events fetched per request. Defaults to 500.
+     * @param gapTimeout    how long a skipped event id is waited for before being considered rolled back. Defaults to 1 minute.
+     * @param rebuildWindow the number of event ids below the head of the outbox replayed after a snapshot. Defaults to 1000.
+     */
+    @Autowired
+    public PatientRegistry(PatientClient patientClient,
+                           @Value("${ms.patient.registry.batch-size:500}") int batchSize,
+                           @Value("${ms.patient.registry.gap-timeout:PT1M}") Duration gapTimeout,
+                           @Value("${ms.patient.registry.rebuild-window:1000}") int rebuildWindow) {
+        this.patientClient = patientClient;
+        this.batchSize = batchSize;
+        this.gapTimeoutNanos = gapTimeout.toNanos();
+        this.rebuildWindow = rebuildWindow;
+    }
+
+    /**
+     * Checks whether the patient is known to be active.
+     *
+     * @param firstName the first name of the patient
+     * @param lastName  the last name of the patient
+     * @return true if the patient is known to be active, false if it is unknown or deleted
+     */
+    public boolean contains(String firstName, String lastName) {
+        return activePatients.containsKey(key(firstName, lastName));
+    }
+
+    /**
+     * Returns the identifier of a patient known to be active.
+     *
+     * @param firstName the first name of the patient
+     * @param lastName  the last name of the patient
+     * @return the identifier of the patient, or null if it is unknown or deleted
+     */
+    public Integer patientId(String firstName, String lastName) {
+        return activePatients.get(key(firstName, lastName));
+    }
+
+    /**
+     * Fetches and applies every event published since the last poll, starting from the oldest
+     * skipped id still waited for. The registry is rebuilt first if it was never built or if the
+     * epoch of the outbox changed. Failures are logged and retried on the next run; the registry
+     * keeps serving its current content meanwhile.
+     */
+    @Scheduled(fixedDelayString = "${ms.patient.registry.poll-interval:PT5S}")
+    public synchronized void poll() {
+        try {
+            if (epoch == null) {
+                rebuild();
+            }
+            expirePendingIds();
+            long after = pendingIds.isEmpty() ? lastEventId : pendingIds.firstKey() - 1;
+            PatientEventBatchDTO batch;
+            do {
+                batch = patientClient.events(after, batchSize);
+                if (!Objects.equals(epoch, batch.getEpoch())) {
+                    logger.info("Patient event epoch changed from {} to {}, rebuilding the patient registry", epoch, batch.getEpoch());
+                    rebuild();
+                    return;
+                }
+                for (PatientEventDTO event : batch.getEvents()) {
+                    apply(event);
+                    after = event.getId();
+                }
+            } while (batch.getEvents().size() == batchSize);
+        } catch (RuntimeException e) {
+            logger.warn("Failed to poll patient events after {}: {}", lastEventId, e.getMessage());
+        }
+    }
+
+    /**
+     * Applies a single patient event to the registry and drops any cached existence
+     * result for that patient. An event below the cursor is only applied if its id was
+     * skipped; otherwise it was applied already.
+     *
+     * @param event the event to apply
+     */
+    public synchronized void apply(PatientEventDTO event) {
+        long id = event.getId();
+        if (id <= lastEventId) {
+            if (pendingIds.remove(id) == null) {
+                return;
+            }
+            logger.debug("Applying patient event {} committed after later events", id);
+        } else {
+            skip(lastEventId + 1, id);
+            lastEventId = id;
+        }
+        String key = key(event.getFirstName(), event.getLastName());
+        if (event.getType() == PatientEventType.DELETED) {
+            activePatients.remove(key);
+        } else {
+            activePatients.put(key, event.getPatientId());
+        }
+        patientClient.evict(event.getFirstName(), event.getLastName());
+    }
+
+    /**
+     * Returns the id of the last event applied to the registry.
+     *
+     * @return the id of the last applied event, 0 if none
+     */
+    public long lastEventId() {
+        return lastEventId;
+    }
+
+    /**
+     * Returns the number of skipped event ids still waited for.
+     *
+     * @return the number of pending event ids
+     */
+    public synchronized int pendingEventIds() {
+        return pendingIds.size();
+    }
+
+    /**
+     * Replaces the content of the registry with a snapshot of the active patients. The head of
+     * the outbox is read before the snapshot, and the cursor is moved {@code rebuildWindow} ids
+     * below it, so the events committed while the snapshot is read are replayed by the next
+     * polls. Replaying events already reflected by the snapshot is harmless, as they are applied
+     * in id order.
+     */
+    private void rebuild() {
+        PatientEventHeadDTO head = patientClient.eventHead();
+        Map<String, Integer> patients = new ConcurrentHashMap<>();
+        PatientPageDTO page;
+        int after = 0;
+        do {
+            page = patientClient.activePatients(after, SNAPSHOT_PAGE_SIZE);
+            for (PatientSummaryDTO patient : page.getContent()) {
+                patients.put(key(patient.getFirstName(), patient.getLastName()), patient.getId());
+            }
+            if (page.getNextAfter() != null) {
+                after = page.getNextAfter();
+            }
+        } while (page.getNextAfter() != null);
+
+        activePatients = patients;
+        epoch = head.getEpoch();
+        lastEventId = Math.max(0, head.getLastId() - rebuildWindow);
+        pendingIds.clear();
+        patientClient.evictAll();
+        logger.info("Rebuilt the patient registry with {} patients at event {} of epoch {}", patients.size(), head.getLastId(), epoch);
+    }
+
+    private void skip(long fromId, long toId) {
+        if (toId - fromId > MAX_PENDING_IDS) {
+            logger.warn("Not waiting for patient events {} to {}", fromId, toId - MAX_PENDING_IDS - 1);
+            fromId = toId - MAX_PENDING_IDS;
+        }
+        long now = System.nanoTime();
+        for (long id = fromId; id < toId; id++) {
+            pendingIds.put(id, now);
+        }
+        while (pendingIds.size() > MAX_PENDING_IDS) {
+            pendingIds.pollFirstEntry();
+        }
+    }
+
+    private void expirePendingIds() {
+        long now = System.nanoTime();
+        pendingIds.values().removeIf(skippedAt -> now - skippedAt >= gapTimeoutNanos);
+    }
+
+    private static String key(String firstName, String lastName) {
+        return firstName + '\u0000' + lastName;
+    }
+}
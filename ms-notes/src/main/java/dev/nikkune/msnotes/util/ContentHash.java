@@ -0,0 +1,33 @@
+package dev.nikkune.msnotes.util;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * Computes the content hash stored with each note, so byte-identical note bodies can be
+ * recognised without comparing the bodies themselves.
+ */
+public class ContentHash {
+    private ContentHash() {
+    }
+
+    /**
+     * Computes the SHA-256 digest of the UTF-8 encoding of a text.
+     *
+     * @param text the text to hash
+     * @return the digest as a lowercase hexadecimal string, or null if the text is null
+     */
+    public static String of(String text) {
+        if (text == null) {
+            return null;
+        }
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(text.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
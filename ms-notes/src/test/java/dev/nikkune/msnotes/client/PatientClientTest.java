@@ -1,5 +1,10 @@
 package dev.nikkune.msnotes.client;
 
+import dev.nikkune.msnotes.dto.PatientEventBatchDTO;
+import dev.nikkune.msnotes.dto.PatientEventDTO;
+import dev.nikkune.msnotes.dto.PatientEventHeadDTO;
+import dev.nikkune.msnotes.dto.PatientPageDTO;
+import dev.nikkune.msnotes.model.PatientEventType;
 import okhttp3.mockwebserver.MockResponse;
 import okhttp3.mockwebserver.MockWebServer;
 import okhttp3.mockwebserver.RecordedRequest;
@@ -7,6 +12,8 @@ import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.util.List;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 public class PatientClientTest {
@@ -24,27 +31,50 @@ public class PatientClientTest {
         server.shutdown();
     }
 
+    private static MockResponse patient(int id) {
+        return new MockResponse().setResponseCode(204)
+                .setHeader("X-Patient-Id", id);
+    }
+
     private PatientClient newClient() {
-        String baseUrl = server.url("/exists").toString();
+        String baseUrl = server.url("/patient").toString();
         return new PatientClient(baseUrl, "user", "pass");
-        // baseUrl will be appended with query params by PatientClient
     }
 
     @Test
     void exists_returnsTrue_on2xx() throws Exception {
-        server.enqueue(new MockResponse().setResponseCode(200).setBody("OK"));
+        server.enqueue(patient(1));
         PatientClient client = newClient();
 
         boolean result = client.exists("John", "Doe");
 
         assertTrue(result);
         RecordedRequest req = server.takeRequest();
-        assertTrue(req.getPath().startsWith("/exists"));
+        assertEquals("HEAD", req.getMethod());
+        assertEquals("/patient/exists?firstName=John&lastName=Doe", req.getPath());
         String auth = req.getHeader("Authorization");
         assertNotNull(auth);
         assertTrue(auth.startsWith("Basic "));
     }
 
+    @Test
+    void findPatientId_returnsIdFromHeader() {
+        server.enqueue(patient(42));
+        PatientClient client = newClient();
+
+        assertEquals(42, client.findPatientId("John", "Doe"));
+        assertTrue(client.exists("John", "Doe"));
+        assertEquals(1, server.getRequestCount());
+    }
+
+    @Test
+    void findPatientId_returnsNull_on404() {
+        server.enqueue(new MockResponse().setResponseCode(404));
+        PatientClient client = newClient();
+
+        assertNull(client.findPatientId("Ghost", "User"));
+    }
+
     @Test
     void exists_returnsFalse_on404() {
         server.enqueue(new MockResponse().setResponseCode(404));
@@ -74,4 +104,125 @@ public class PatientClientTest {
         assertThrows(org.springframework.web.client.HttpClientErrorException.BadRequest.class,
                 () -> client.exists("A", "B"));
     }
+
+    @Test
+    void exists_cachesPositiveResult() {
+        server.enqueue(patient(1));
+        PatientClient client = newClient();
+
+        assertTrue(client.exists("John", "Doe"));
+        assertTrue(client.exists("John", "Doe"));
+
+        assertEquals(1, server.getRequestCount());
+        assertEquals(1, client.cacheStats().hitCount());
+    }
+
+    @Test
+    void exists_cachesNegativeResult() {
+        server.enqueue(new MockResponse().setResponseCode(404));
+        PatientClient client = newClient();
+
+        assertFalse(client.exists("Ghost", "User"));
+        assertFalse(client.exists("Ghost", "User"));
+
+        assertEquals(1, server.getRequestCount());
+    }
+
+    @Test
+    void exists_refetches_afterEvict() {
+        server.enqueue(patient(1));
+        server.enqueue(new MockResponse().setResponseCode(404));
+        PatientClient client = newClient();
+
+        assertTrue(client.exists("John", "Doe"));
+        client.evict("John", "Doe");
+
+        assertFalse(client.exists("John", "Doe"));
+        assertEquals(2, server.getRequestCount());
+    }
+
+    @Test
+    void exists_doesNotCacheErrors() {
+        server.enqueue(new MockResponse().setResponseCode(401));
+        server.enqueue(patient(1));
+        PatientClient client = newClient();
+
+        assertThrows(RuntimeException.class, () -> client.exists("John", "Doe"));
+
+        assertTrue(client.exists("John", "Doe"));
+        assertEquals(2, server.getRequestCount());
+    }
+
+    @Test
+    void events_parsesEventListAndEpoch() throws Exception {
+        server.enqueue(new MockResponse().setResponseCode(200)
+                .setHeader("Content-Type", "application/json")
+                .setHeader("X-Event-Epoch", "e1")
+                .setBody("[{\"id\":5,\"type\":\"DELETED\",\"patientId\":1,\"firstName\":\"John\",\"lastName\":\"Doe\"}]"));
+        PatientClient client = newClient();
+
+        PatientEventBatchDTO batch = client.events(4, 100);
+
+        assertEquals("e1", batch.getEpoch());
+        List<PatientEventDTO> events = batch.getEvents();
+        assertEquals(1, events.size());
+        assertEquals(5L, events.get(0).getId());
+        assertEquals(PatientEventType.DELETED, events.get(0).getType());
+        RecordedRequest req = server.takeRequest();
+        assertTrue(req.getPath().startsWith("/patient/events?after=4&limit=100"));
+    }
+
+    @Test
+    void eventHead_parsesEpochAndLastId() throws Exception {
+        server.enqueue(new MockResponse().setResponseCode(200)
+                .setHeader("Content-Type", "application/json")
+                .setBody("{\"epoch\":\"e1\",\"lastId\":12}"));
+        PatientClient client = newClient();
+
+        PatientEventHeadDTO head = client.eventHead();
+
+        assertEquals("e1", head.getEpoch());
+        assertEquals(12L, head.getLastId());
+        assertEquals("/patient/events/head", server.takeRequest().getPath());
+    }
+
+    @Test
+    void activePatients_parsesPage() throws Exception {
+        server.enqueue(new MockResponse().setResponseCode(200)
+                .setHeader("Content-Type", "application/json")
+                .setBody("{\"content\":[{\"id\":3,\"firstName\":\"John\",\"lastName\":\"Doe\",\"gender\":\"M\"}],\"nextAfter\":3}"));
+        PatientClient client = newClient();
+
+        PatientPageDTO page = client.activePatients(0, 500);
+
+        assertEquals(1, page.getContent().size());
+        assertEquals(3, page.getContent().get(0).getId());
+        assertEquals("Doe", page.getContent().get(0).getLastName());
+        assertEquals(3, page.getNextAfter());
+        assertEquals("/patient/all?after=0&size=500", server.takeRequest().getPath());
+    }
+
+    @Test
+    void hasDeletedPatient_matchesExactNameIgnoringCase_acrossPages() throws Exception {
+        server.enqueue(new MockResponse().setResponseCode(200)
+                .setHeader("Content-Type", "application/json")
+                .setBody("{\"content\":[{\"id\":3,\"firstName\":\"Johnny\",\"lastName\":\"Doe\"}],\"nextAfter\":3}"));
+        server.enqueue(new MockResponse().setResponseCode(200)
+                .setHeader("Content-Type", "application/json")
+                .setBody("{\"content\":[{\"id\":8,\"firstName\":\"JOHN\",\"lastName\":\"doe\"}],\"nextAfter\":null}"));
+        PatientClient client = newClient();
+
+        assertTrue(client.hasDeletedPatient("John", "Doe"));
+        assertEquals("/patient/search?firstName=John&lastName=Doe&active=false&after=0&size=500", server.takeRequest().getPath());
+        assertEquals("/patient/search?firstName=John&lastName=Doe&active=false&after=3&size=500", server.takeRequest().getPath());
+    }
+
+    @Test
+    void hasDeletedPatient_returnsFalse_whenOnlyPrefixesMatch() {
+        server.enqueue(new MockResponse().setResponseCode(200)
+                .setHeader("Content-Type", "application/json")
+                .setBody("{\"content\":[{\"id\":3,\"firstName\":\"Johnny\",\"lastName\":\"Doe\"}],\"nextAfter\":null}"));
+
+        assertFalse(newClient().hasDeletedPatient("John", "Doe"));
+    }
 }
@@ -1,31 +1,55 @@
 package dev.nikkune.msnotes.controller;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.nikkune.msnotes.dto.BulkNotesRequestDTO;
+import dev.nikkune.msnotes.dto.CacheStatsDTO;
 import dev.nikkune.msnotes.dto.NoteDTO;
+import dev.nikkune.msnotes.dto.NoteSearchHitDTO;
+import dev.nikkune.msnotes.exception.NoteVersionConflictException;
 import dev.nikkune.msnotes.mapper.NoteMapper;
 import dev.nikkune.msnotes.model.Note;
+import dev.nikkune.msnotes.model.PatientName;
 import dev.nikkune.msnotes.service.INoteService;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import reactor.core.publisher.Flux;
 
 import java.util.Arrays;
 import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
+import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.Matchers.is;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
 import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.httpBasic;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @ExtendWith(SpringExtension.class)
@@ -57,6 +81,7 @@ public class NotesControllerTest {
         n.setLastName("Doe");
         n.setNote("obs");
         n.setCreatedAt(new Date());
+        when(noteService.listETag("John", "Doe")).thenReturn("\"1-abc-0\"");
         when(noteService.list("John", "Doe")).thenReturn(Arrays.asList(n));
         NoteDTO dtoListItem = new NoteDTO();
         dtoListItem.setNote("obs");
@@ -64,10 +89,39 @@ public class NotesControllerTest {
 
         mockMvc.perform(get("/").param("firstName", "John").param("lastName", "Doe").with(httpBasic("medilabo", "medilabo123")))
                 .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"1-abc-0\""))
                 .andExpect(jsonPath("$", hasSize(1)))
                 .andExpect(jsonPath("$[0].note", is("obs")));
     }
 
+    @Test
+    public void getNotes_returns304_whenETagMatches() throws Exception {
+        when(noteService.listETag("John", "Doe")).thenReturn("\"1-abc-0\"");
+
+        mockMvc.perform(get("/").param("firstName", "John").param("lastName", "Doe")
+                        .header(HttpHeaders.IF_NONE_MATCH, "\"1-abc-0\"")
+                        .with(httpBasic("medilabo", "medilabo123")))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+        verify(noteService, never()).list(any(), any());
+    }
+
+    @Test
+    public void getPatientCacheStats_returnsStats() throws Exception {
+        CacheStatsDTO stats = new CacheStatsDTO();
+        stats.setSize(3);
+        stats.setHitCount(9);
+        stats.setMissCount(1);
+        stats.setHitRate(0.9);
+        when(noteService.patientCacheStats()).thenReturn(stats);
+
+        mockMvc.perform(get("/cache/stats").with(httpBasic("medilabo", "medilabo123")))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.size", is(3)))
+                .andExpect(jsonPath("$.hitCount", is(9)))
+                .andExpect(jsonPath("$.hitRate", is(0.9)));
+    }
+
     @Test
     public void postNotes_createsNote_whenAuthenticated() throws Exception {
         Note created = new Note();
@@ -88,6 +142,121 @@ public class NotesControllerTest {
                 .andExpect(jsonPath("$.note", is("text")));
     }
 
+    @Test
+    public void stream_writesNdjson_whenAuthenticated() throws Exception {
+        Note n1 = new Note();
+        n1.setNote("a");
+        Note n2 = new Note();
+        n2.setNote("b");
+        when(noteService.stream("John", "Doe")).thenReturn(Flux.just(n1, n2));
+        NoteDTO d1 = new NoteDTO();
+        d1.setNote("a");
+        NoteDTO d2 = new NoteDTO();
+        d2.setNote("b");
+        when(noteMapper.toDto(n1)).thenReturn(d1);
+        when(noteMapper.toDto(n2)).thenReturn(d2);
+
+        MvcResult started = mockMvc.perform(get("/stream").param("firstName", "John").param("lastName", "Doe")
+                        .with(httpBasic("medilabo", "medilabo123")))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON))
+                .andExpect(content().string(containsString("\"note\":\"a\"")))
+                .andExpect(content().string(containsString("\"note\":\"b\"")));
+    }
+
+    @Test
+    public void bulk_returnsNotesGroupedPerPatient_andNotFound() throws Exception {
+        Note n = new Note();
+        n.setNote("obs");
+        Map<PatientName, List<Note>> notes = new LinkedHashMap<>();
+        notes.put(new PatientName("John", "Doe"), List.of(n));
+        when(noteService.listByPatients(List.of(new PatientName("John", "Doe"), new PatientName("Ghost", "User")), true))
+                .thenReturn(notes);
+
+        String payload = "{\"patients\":[{\"firstName\":\"John\",\"lastName\":\"Doe\"},{\"firstName\":\"Ghost\",\"lastName\":\"User\"}]}";
+
+        mockMvc.perform(post("/bulk").param("textOnly", "true").with(httpBasic("medilabo", "medilabo123")).with(csrf())
+                        .contentType(MediaType.APPLICATION_JSON).content(payload))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.patients", hasSize(1)))
+                .andExpect(jsonPath("$.patients[0].lastName", is("Doe")))
+                .andExpect(jsonPath("$.patients[0].texts[0]", is("obs")))
+                .andExpect(jsonPath("$.patients[0].notes").doesNotExist())
+                .andExpect(jsonPath("$.notFound[0].firstName", is("Ghost")));
+    }
+
+    @Test
+    public void bulk_rejectsTooManyPatients() throws Exception {
+        String patients = IntStream.range(0, BulkNotesRequestDTO.MAX_PATIENTS + 1)
+                .mapToObj(i -> "{\"firstName\":\"John" + i + "\",\"lastName\":\"Doe\"}")
+                .collect(Collectors.joining(","));
+
+        mockMvc.perform(post("/bulk").with(httpBasic("medilabo", "medilabo123")).with(csrf())
+                        .contentType(MediaType.APPLICATION_JSON).content("{\"patients\":[" + patients + "]}"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void search_returnsRankedSlice_withoutCount_whenAuthenticated() throws Exception {
+        Note n = new Note();
+        n.setFirstName("John");
+        n.setLastName("Doe");
+        n.setNote("Microalbumine");
+        PageRequest pageable = PageRequest.of(1, 5);
+        when(noteService.search("Microalbumine", pageable)).thenReturn(new SliceImpl<>(List.of(n), pageable, true));
+        NoteSearchHitDTO hit = new NoteSearchHitDTO();
+        hit.setFirstName("John");
+        hit.setLastName("Doe");
+        when(noteMapper.toSearchHit(n)).thenReturn(hit);
+
+        mockMvc.perform(get("/search").param("q", "Microalbumine").param("page", "1").param("size", "5")
+                        .with(httpBasic("medilabo", "medilabo123")))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content", hasSize(1)))
+                .andExpect(jsonPath("$.content[0].lastName", is("Doe")))
+                .andExpect(jsonPath("$.page", is(1)))
+                .andExpect(jsonPath("$.hasNext", is(true)))
+                .andExpect(jsonPath("$.totalElements").doesNotExist());
+        verify(noteService, never()).countSearch(anyString());
+    }
+
+    @Test
+    public void search_includesTotal_whenCountRequested() throws Exception {
+        PageRequest pageable = PageRequest.of(0, 20);
+        when(noteService.search("Microalbumine", pageable)).thenReturn(new SliceImpl<>(List.of(), pageable, false));
+        when(noteService.countSearch("Microalbumine")).thenReturn(6L);
+
+        mockMvc.perform(get("/search").param("q", "Microalbumine").param("count", "true")
+                        .with(httpBasic("medilabo", "medilabo123")))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.hasNext", is(false)))
+                .andExpect(jsonPath("$.totalElements", is(6)));
+    }
+
+    @Test
+    public void getArchive_returnsPage_whenAuthenticated() throws Exception {
+        Note n = new Note();
+        n.setFirstName("John");
+        n.setLastName("Doe");
+        n.setNote("archived");
+        PageRequest pageable = PageRequest.of(0, 20);
+        when(noteService.listArchived("John", "Doe", pageable)).thenReturn(new PageImpl<>(List.of(n), pageable, 1));
+        NoteDTO dto = new NoteDTO();
+        dto.setNote("archived");
+        when(noteMapper.toDto(n)).thenReturn(dto);
+
+        mockMvc.perform(get("/archive").param("firstName", "John").param("lastName", "Doe")
+                        .with(httpBasic("medilabo", "medilabo123")))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content", hasSize(1)))
+                .andExpect(jsonPath("$.content[0].note", is("archived")))
+                .andExpect(jsonPath("$.page.totalElements", is(1)));
+    }
+
     @Test
     public void getById_returnsNote_whenAuthenticated() throws Exception {
         Note n = new Note();
@@ -112,7 +281,7 @@ public class NotesControllerTest {
         updated.setLastName("Doe");
         updated.setNote("updated");
         updated.setCreatedAt(new Date());
-        when(noteService.update(eq("abc123"), eq("updated"))).thenReturn(updated);
+        when(noteService.update(eq("abc123"), eq("updated"), isNull())).thenReturn(updated);
         NoteDTO updatedDto = new NoteDTO();
         updatedDto.setNote("updated");
         when(noteMapper.toDto(updated)).thenReturn(updatedDto);
@@ -125,6 +294,18 @@ public class NotesControllerTest {
                 .andExpect(jsonPath("$.note", is("updated")));
     }
 
+    @Test
+    public void put_returns409_whenVersionConflict() throws Exception {
+        when(noteService.update(eq("abc123"), eq("updated"), eq(2L)))
+                .thenThrow(new NoteVersionConflictException("abc123", 2L));
+
+        String payload = "{\"note\":\"updated\",\"version\":2}";
+
+        mockMvc.perform(put("/").param("id", "abc123").with(httpBasic("medilabo", "medilabo123")).with(csrf())
+                        .contentType(MediaType.APPLICATION_JSON).content(payload))
+                .andExpect(status().isConflict());
+    }
+
     @Test
     public void delete_deletesNote_whenAuthenticated() throws Exception {
         mockMvc.perform(delete("/").param("id", "abc123").with(httpBasic("medilabo", "medilabo123")).with(csrf()))
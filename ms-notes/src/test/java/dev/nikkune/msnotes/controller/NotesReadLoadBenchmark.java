@@ -0,0 +1,183 @@
+package dev.nikkune.msnotes.controller;
+
+import dev.nikkune.msnotes.mapper.NoteMapperImpl;
+import dev.nikkune.msnotes.model.Note;
+import dev.nikkune.msnotes.service.INoteService;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.autoconfigure.data.mongo.MongoDataAutoConfiguration;
+import org.springframework.boot.autoconfigure.data.mongo.MongoReactiveDataAutoConfiguration;
+import org.springframework.boot.autoconfigure.mongo.MongoAutoConfiguration;
+import org.springframework.boot.autoconfigure.mongo.MongoReactiveAutoConfiguration;
+import org.springframework.boot.autoconfigure.security.servlet.SecurityAutoConfiguration;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import reactor.core.publisher.Flux;
+
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+/**
+ * Stand-alone load test comparing the blocking notes list ({@code GET /}) with the reactive
+ * streaming one ({@code GET /stream}) on a running ms-notes instance. Each simulated client sends
+ * its requests one after the other; all clients run concurrently.
+ * <p>
+ * Run with {@code java -cp target/test-classes dev.nikkune.msnotes.controller.NotesReadLoadBenchmark
+ * [baseUrl] [firstName] [lastName] [clients] [requestsPerClient]} against an instance whose patient
+ * has a representative number of notes. It is not part of the test suite.
+ * <p>
+ * With {@code embedded} as the base URL, the controller is started in-process on a random port
+ * without MongoDB or security. The service returns {@value #EMBEDDED_NOTES} notes after a simulated
+ * round trip of {@value #EMBEDDED_LATENCY_MS} ms, slept on the servlet thread by the blocking list
+ * and scheduled without a thread by the stream, so only the web layer is measured. On a single CPU
+ * shared with the load generator, {@code embedded Test TestNone 200 20} and
+ * {@code embedded Test TestNone 1000 5} gave:
+ * <pre>
+ * mode      clients   errors      req/s    p50 ms    p99 ms    max ms
+ * blocking      200        0        210     745.4    2567.3    2822.9
+ * reactive      200        0        212     866.1    1807.3    2363.9
+ * blocking     1000        0        199    3742.9   10302.0   13425.8
+ * reactive     1000        0        172    5412.3   10192.3   10944.2
+ * </pre>
+ * The CPU is saturated in both modes, so throughput is the same within run-to-run noise (three
+ * 200-client runs ranged from 196 to 262 req/s). Streaming trades a higher median for a shorter
+ * tail: no request waits for a free servlet thread, but every request shares the CPU longer.
+ */
+public class NotesReadLoadBenchmark {
+    private static final int EMBEDDED_NOTES = 50;
+    private static final int EMBEDDED_LATENCY_MS = 20;
+
+    public static void main(String[] args) throws Exception {
+        String baseUrl = args.length > 0 ? args[0] : "http://localhost:8082";
+        String firstName = args.length > 1 ? args[1] : "Test";
+        String lastName = args.length > 2 ? args[2] : "TestNone";
+        int clients = args.length > 3 ? Integer.parseInt(args[3]) : 1_000;
+        int requestsPerClient = args.length > 4 ? Integer.parseInt(args[4]) : 20;
+
+        ConfigurableApplicationContext embedded = null;
+        if (baseUrl.equals("embedded")) {
+            embedded = new SpringApplicationBuilder(EmbeddedNotes.class)
+                    .properties("spring.config.name=notes-read-benchmark", "server.port=0",
+                            "eureka.client.enabled=false", "spring.main.banner-mode=off")
+                    .run();
+            baseUrl = "http://localhost:" + embedded.getEnvironment().getProperty("local.server.port");
+        }
+
+        String query = "?firstName=" + URLEncoder.encode(firstName, StandardCharsets.UTF_8)
+                + "&lastName=" + URLEncoder.encode(lastName, StandardCharsets.UTF_8);
+        System.out.printf("%-8s %8s %8s %10s %9s %9s %9s%n", "mode", "clients", "errors", "req/s", "p50 ms", "p99 ms", "max ms");
+        for (String mode : List.of("blocking", "reactive")) {
+            URI uri = URI.create(baseUrl + (mode.equals("blocking") ? "/" : "/stream") + query);
+            run(mode, uri, Math.min(clients, 50), 5); // warm-up
+            run(mode, uri, clients, requestsPerClient).print();
+        }
+        if (embedded != null) {
+            embedded.close();
+        }
+    }
+
+    private static Result run(String mode, URI uri, int clients, int requestsPerClient) throws InterruptedException {
+        String auth = "Basic " + Base64.getEncoder().encodeToString("medilabo:medilabo123".getBytes(StandardCharsets.UTF_8));
+        HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(30))
+                .build();
+        HttpRequest request = HttpRequest.newBuilder(uri)
+                .header("Authorization", auth)
+                .header("Accept", mode.equals("blocking") ? "application/json" : "application/x-ndjson")
+                .timeout(Duration.ofSeconds(60))
+                .build();
+
+        List<Long> latencies = Collections.synchronizedList(new ArrayList<>(clients * requestsPerClient));
+        AtomicInteger errors = new AtomicInteger();
+        long start = System.nanoTime();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int c = 0; c < clients; c++) {
+                executor.submit(() -> {
+                    for (int r = 0; r < requestsPerClient; r++) {
+                        long sent = System.nanoTime();
+                        try {
+                            HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+                            if (response.statusCode() != 200) {
+                                errors.incrementAndGet();
+                            }
+                        } catch (Exception e) {
+                            errors.incrementAndGet();
+                        }
+                        latencies.add(System.nanoTime() - sent);
+                    }
+                });
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+        List<Long> sorted = new ArrayList<>(latencies);
+        Collections.sort(sorted);
+        return new Result(mode, clients, errors.get(), sorted.size() * 1e9 / elapsed,
+                percentile(sorted, 0.50), percentile(sorted, 0.99), sorted.getLast() / 1e6);
+    }
+
+    private static double percentile(List<Long> sorted, double p) {
+        return sorted.get((int) Math.min(sorted.size() - 1, Math.ceil(p * sorted.size()) - 1)) / 1e6;
+    }
+
+    private record Result(String mode, int clients, int errors, double throughput, double p50, double p99, double max) {
+        void print() {
+            System.out.printf("%-8s %8d %8d %10.0f %9.1f %9.1f %9.1f%n", mode, clients, errors, throughput, p50, p99, max);
+        }
+    }
+
+    /**
+     * The notes controller alone, backed by a service stub that answers after a simulated database
+     * round trip. Not a {@code @Configuration}, so that the component scan of the application does
+     * not pick it up from the test classes; it is only ever the primary source of its own context.
+     */
+    @EnableAutoConfiguration(exclude = {MongoAutoConfiguration.class, MongoDataAutoConfiguration.class,
+            MongoReactiveAutoConfiguration.class, MongoReactiveDataAutoConfiguration.class,
+            SecurityAutoConfiguration.class})
+    @Import({NotesController.class, NoteMapperImpl.class})
+    static class EmbeddedNotes {
+        @Bean
+        INoteService noteService() {
+            List<Note> notes = new ArrayList<>(EMBEDDED_NOTES);
+            for (int i = 0; i < EMBEDDED_NOTES; i++) {
+                Note note = new Note();
+                note.setId(String.format("%024x", i));
+                note.setPatientId(1);
+                note.setActive(true);
+                note.setNote("Le patient déclare qu'il fume depuis peu, vertiges et poids au-dessus du poids recommandé. ".repeat(4));
+                note.setCreatedAt(new Date());
+                note.setUpdatedAt(new Date());
+                note.setVersion(0L);
+                notes.add(note);
+            }
+            INoteService service = mock(INoteService.class, withSettings().stubOnly());
+            when(service.listETag(any(), any())).thenReturn("\"0\"");
+            when(service.list(any(), any())).thenAnswer(invocation -> {
+                Thread.sleep(EMBEDDED_LATENCY_MS);
+                return notes;
+            });
+            when(service.stream(any(), any())).thenAnswer(invocation ->
+                    Flux.fromIterable(notes).delaySubscription(Duration.ofMillis(EMBEDDED_LATENCY_MS)));
+            return service;
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package dev.nikkune.msnotes.converter;
+
+import org.bson.types.Binary;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Stand-alone benchmark reporting the storage saved and the CPU spent by {@link CompressedTextConverter}
+ * on note bodies of various sizes, built from the vocabulary of the seed data.
+ * <p>
+ * Run with {@code java -cp target/classes:target/test-classes:<dependencies> dev.nikkune.msnotes.converter.CompressedTextConverterBenchmark}
+ * or from the IDE. It is not part of the test suite.
+ */
+public class CompressedTextConverterBenchmark {
+    private static final List<String> LINES = List.of(
+            "Le patient déclare qu'il 'se sent très bien'.",
+            "Hémoglobine A1C : 7,2 % (au-dessus du niveau recommandé).",
+            "Microalbumine : 45 mg/L, à surveiller.",
+            "Taille 178 cm, Poids 92 kg, Cholestérol LDL 1,6 g/L.",
+            "Le patient fume depuis 20 ans, Fumeuse occasionnelle dans l'entourage.",
+            "Anticorps négatifs, Réaction allergique à la pénicilline notée.",
+            "Vertiges signalés en position debout, tension 14/9.");
+    private static final int WARMUP = 2_000;
+    private static final int ITERATIONS = 20_000;
+
+    public static void main(String[] args) {
+        CompressedTextConverter converter = new CompressedTextConverter(true, 0, 3);
+        System.out.printf("%10s %12s %10s %14s %16s%n", "raw bytes", "stored bytes", "saved", "compress ns", "decompress ns");
+        for (int size : new int[]{512, 2_048, 8_192, 32_768}) {
+            String body = labReport(size);
+            int rawBytes = body.getBytes(StandardCharsets.UTF_8).length;
+            Binary stored = (Binary) converter.compress(body);
+            int storedBytes = stored.getData().length;
+
+            for (int i = 0; i < WARMUP; i++) {
+                converter.decompress(converter.compress(body));
+            }
+            long start = System.nanoTime();
+            for (int i = 0; i < ITERATIONS; i++) {
+                converter.compress(body);
+            }
+            long compressNs = (System.nanoTime() - start) / ITERATIONS;
+            start = System.nanoTime();
+            for (int i = 0; i < ITERATIONS; i++) {
+                converter.decompress(stored);
+            }
+            long decompressNs = (System.nanoTime() - start) / ITERATIONS;
+
+            System.out.printf("%10d %12d %9.1f%% %14d %16d%n", rawBytes, storedBytes,
+                    100.0 * (rawBytes - storedBytes) / rawBytes, compressNs, decompressNs);
+        }
+    }
+
+    private static String labReport(int size) {
+        StringBuilder report = new StringBuilder(size + 128);
+        for (int i = 0; report.length() < size; i++) {
+            report.append(LINES.get(i % LINES.size())).append(" Mesure ").append(i).append(".\n");
+        }
+        return report.toString();
+    }
+}
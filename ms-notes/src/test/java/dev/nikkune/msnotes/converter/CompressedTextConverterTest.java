@@ -0,0 +1,40 @@
+package dev.nikkune.msnotes.converter;
+
+import org.bson.types.Binary;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CompressedTextConverterTest {
+
+    private final CompressedTextConverter converter = new CompressedTextConverter(true, 64, 3);
+
+    @Test
+    public void compress_keepsSmallValuesAsText() {
+        assertEquals("short note", converter.compress("short note"));
+    }
+
+    @Test
+    public void compress_storesLargeValuesAsSmallerBinary() {
+        String report = "Hémoglobine A1C au-dessus du niveau recommandé. ".repeat(40);
+
+        Object stored = converter.compress(report);
+
+        Binary binary = assertInstanceOf(Binary.class, stored);
+        assertTrue(binary.getData().length < report.length());
+        assertEquals(report, converter.decompress(stored));
+    }
+
+    @Test
+    public void compress_keepsText_whenDisabled() {
+        CompressedTextConverter disabled = new CompressedTextConverter(false, 64, 3);
+        String report = "Microalbumine ".repeat(40);
+
+        assertEquals(report, disabled.compress(report));
+    }
+
+    @Test
+    public void decompress_readsLegacyPlainText() {
+        assertEquals("plain legacy note", converter.decompress("plain legacy note"));
+    }
+}
@@ -0,0 +1,131 @@
+package dev.nikkune.msnotes.service;
+
+import dev.nikkune.msnotes.config.SchedulingConfig;
+import dev.nikkune.msnotes.repository.NoteRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.boot.convert.ApplicationConversionService;
+import org.springframework.boot.task.ThreadPoolTaskSchedulerBuilder;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import java.time.Duration;
+import java.util.Date;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+public class NoteArchiverTest {
+
+    private NoteRepository noteRepository;
+
+    @BeforeEach
+    public void setUp() {
+        noteRepository = Mockito.mock(NoteRepository.class);
+    }
+
+    private NoteArchiver archiver(boolean enabled, int maxBatchesPerRun) {
+        return new NoteArchiver(noteRepository, enabled, Duration.ofDays(90), 2, maxBatchesPerRun, Duration.ZERO);
+    }
+
+    @Test
+    public void archive_movesBatchesUntilPartialBatch() {
+        when(noteRepository.archiveInactiveBefore(any(Date.class), eq(2))).thenReturn(2, 2, 1);
+
+        int archived = archiver(true, 10).archive();
+
+        assertEquals(5, archived);
+        long cutoff = System.currentTimeMillis() - Duration.ofDays(90).toMillis();
+        verify(noteRepository, times(3)).archiveInactiveBefore(argThat(d -> Math.abs(d.getTime() - cutoff) < 60_000), eq(2));
+    }
+
+    @Test
+    public void archive_stopsAtMaxBatchesPerRun() {
+        when(noteRepository.archiveInactiveBefore(any(Date.class), eq(2))).thenReturn(2);
+
+        int archived = archiver(true, 3).archive();
+
+        assertEquals(6, archived);
+        verify(noteRepository, times(3)).archiveInactiveBefore(any(Date.class), eq(2));
+    }
+
+    @Test
+    public void archive_createsArchiveIndexOnFirstRunOnly() {
+        when(noteRepository.archiveInactiveBefore(any(Date.class), eq(2))).thenReturn(0);
+        NoteArchiver archiver = archiver(true, 10);
+
+        archiver.archive();
+        archiver.archive();
+
+        verify(noteRepository, times(1)).ensureArchiveIndex();
+        verify(noteRepository, times(2)).archiveInactiveBefore(any(Date.class), eq(2));
+    }
+
+    @Test
+    public void archive_retriesArchiveIndex_whenItFailed() {
+        doThrow(new RuntimeException("down")).doNothing().when(noteRepository).ensureArchiveIndex();
+        NoteArchiver archiver = archiver(true, 10);
+
+        assertEquals(0, archiver.archive());
+        verify(noteRepository, never()).archiveInactiveBefore(any(Date.class), anyInt());
+
+        archiver.archive();
+        verify(noteRepository, times(2)).ensureArchiveIndex();
+        verify(noteRepository).archiveInactiveBefore(any(Date.class), eq(2));
+    }
+
+    @Test
+    public void archive_pausesOnItsOwnScheduler_withoutHoldingUpOtherJobs() throws InterruptedException {
+        CountDownLatch archiving = new CountDownLatch(1);
+        when(noteRepository.archiveInactiveBefore(any(Date.class), anyInt())).thenAnswer(invocation -> {
+            archiving.countDown();
+            return 500;
+        });
+        try (AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext()) {
+            context.getEnvironment().getPropertySources().addFirst(new MapPropertySource("test", Map.of(
+                    "ms.notes.archive.initial-delay", "PT0S",
+                    "ms.notes.archive.pause-between-batches", "PT10S")));
+            context.getBeanFactory().setConversionService(ApplicationConversionService.getSharedInstance());
+            context.registerBean(ThreadPoolTaskSchedulerBuilder.class, ThreadPoolTaskSchedulerBuilder::new);
+            context.registerBean(NoteRepository.class, () -> noteRepository);
+            context.register(SchedulingConfig.class, NoteArchiver.class, PollingJob.class);
+            context.refresh();
+
+            assertTrue(archiving.await(5, TimeUnit.SECONDS));
+            assertTrue(context.getBean(PollingJob.class).runs.await(5, TimeUnit.SECONDS));
+        }
+    }
+
+    static class PollingJob {
+        final CountDownLatch runs = new CountDownLatch(3);
+
+        @Scheduled(fixedDelay = 10)
+        public void poll() {
+            runs.countDown();
+        }
+    }
+
+    @Test
+    public void archive_doesNothing_whenDisabled() {
+        assertEquals(0, archiver(false, 10).archive());
+        verifyNoInteractions(noteRepository);
+    }
+
+    @Test
+    public void archive_keepsCount_whenRepositoryFails() {
+        when(noteRepository.archiveInactiveBefore(any(Date.class), eq(2)))
+                .thenReturn(2)
+                .thenThrow(new RuntimeException("down"));
+
+        assertEquals(2, archiver(true, 10).archive());
+    }
+}
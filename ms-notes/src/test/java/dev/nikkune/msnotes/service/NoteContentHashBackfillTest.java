@@ -0,0 +1,56 @@
+package dev.nikkune.msnotes.service;
+
+import dev.nikkune.msnotes.repository.NoteRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class NoteContentHashBackfillTest {
+
+    private NoteRepository noteRepository;
+    private NoteContentHashBackfill backfill;
+
+    @BeforeEach
+    public void setUp() {
+        noteRepository = Mockito.mock(NoteRepository.class);
+        backfill = new NoteContentHashBackfill(noteRepository, 2);
+    }
+
+    @Test
+    public void run_hashesBatchByBatch_untilAShortBatch() {
+        when(noteRepository.assignContentHashes(2)).thenReturn(2, 2, 1);
+
+        backfill.run();
+
+        verify(noteRepository, times(3)).assignContentHashes(2);
+        assertTrue(backfill.isComplete());
+    }
+
+    @Test
+    public void run_staysIncomplete_andResumes_whenABatchFails() {
+        when(noteRepository.assignContentHashes(2))
+                .thenReturn(2)
+                .thenThrow(new RuntimeException("down"))
+                .thenReturn(0);
+
+        backfill.run();
+        assertFalse(backfill.isComplete());
+
+        backfill.run();
+        assertTrue(backfill.isComplete());
+        verify(noteRepository, times(3)).assignContentHashes(2);
+    }
+
+    @Test
+    public void run_doesNothing_onceComplete() {
+        when(noteRepository.assignContentHashes(2)).thenReturn(0);
+
+        backfill.run();
+        backfill.run();
+
+        verify(noteRepository, times(1)).assignContentHashes(2);
+    }
+}
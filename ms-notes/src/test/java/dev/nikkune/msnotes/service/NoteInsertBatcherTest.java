@@ -0,0 +1,218 @@
+package dev.nikkune.msnotes.service;
+
+import dev.nikkune.msnotes.model.Note;
+import dev.nikkune.msnotes.repository.NoteRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class NoteInsertBatcherTest {
+
+    private NoteRepository noteRepository;
+    private NoteInsertBatcher batcher;
+
+    @BeforeEach
+    public void setUp() {
+        noteRepository = Mockito.mock(NoteRepository.class);
+        when(noteRepository.insert(anyIterable())).thenAnswer(inv -> inv.getArgument(0));
+        when(noteRepository.insert(any(Note.class))).thenAnswer(inv -> inv.getArgument(0));
+    }
+
+    @AfterEach
+    public void tearDown() throws InterruptedException {
+        if (batcher != null) {
+            batcher.stop();
+        }
+    }
+
+    private NoteInsertBatcher start(int maxBatchSize, Duration maxDelay) {
+        batcher = new NoteInsertBatcher(noteRepository, true, maxBatchSize, maxDelay, 100, Duration.ofSeconds(10));
+        batcher.start();
+        return batcher;
+    }
+
+    private static Note note(String text) {
+        Note note = new Note();
+        note.setNote(text);
+        return note;
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void submit_groupsConcurrentInsertsIntoOneWrite() {
+        start(10, Duration.ofMillis(500));
+
+        List<CompletableFuture<Note>> futures = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            futures.add(batcher.submit(note("n" + i)));
+        }
+        futures.forEach(CompletableFuture::join);
+
+        ArgumentCaptor<Iterable<Note>> captor = ArgumentCaptor.forClass(Iterable.class);
+        verify(noteRepository, times(1)).insert(captor.capture());
+        assertEquals(10, ((List<Note>) captor.getValue()).size());
+        futures.forEach(f -> assertNotNull(f.join().getId()));
+    }
+
+    @Test
+    public void submit_splitsBatchesAtMaxBatchSize() {
+        start(2, Duration.ofMillis(500));
+
+        List<CompletableFuture<Note>> futures = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            futures.add(batcher.submit(note("n" + i)));
+        }
+        futures.forEach(CompletableFuture::join);
+
+        verify(noteRepository, times(3)).insert(anyIterable());
+    }
+
+    @Test
+    public void flush_retriesUnwrittenNotesOneByOne_whenBatchFails() {
+        Note ok = note("ok");
+        Note bad = note("bad");
+        Note written = note("written");
+        when(noteRepository.insert(anyIterable())).thenThrow(new RuntimeException("batch failed"));
+        when(noteRepository.findAllById(anyIterable())).thenAnswer(inv -> List.of(written));
+        when(noteRepository.insert(bad)).thenThrow(new IllegalArgumentException("bad note"));
+        start(3, Duration.ofMillis(500));
+
+        CompletableFuture<Note> okResult = batcher.submit(ok);
+        CompletableFuture<Note> badResult = batcher.submit(bad);
+        CompletableFuture<Note> writtenResult = batcher.submit(written);
+
+        assertSame(ok, okResult.join());
+        assertSame(written, writtenResult.join());
+        CompletionException failure = assertThrows(CompletionException.class, badResult::join);
+        assertInstanceOf(IllegalArgumentException.class, failure.getCause());
+        verify(noteRepository, never()).insert(written);
+    }
+
+    @Test
+    public void insert_rethrowsCause() {
+        when(noteRepository.insert(anyIterable())).thenThrow(new RuntimeException("batch failed"));
+        when(noteRepository.findAllById(anyIterable())).thenReturn(List.of());
+        when(noteRepository.insert(any(Note.class))).thenThrow(new IllegalStateException("down"));
+        start(1, Duration.ZERO);
+
+        assertThrows(IllegalStateException.class, () -> batcher.insert(note("n")));
+    }
+
+    @Test
+    public void submit_insertsDirectly_whenNotRunning() {
+        batcher = new NoteInsertBatcher(noteRepository, false, 10, Duration.ofMillis(5), 100, Duration.ofSeconds(10));
+        batcher.start();
+
+        Note note = note("n");
+        assertSame(note, batcher.submit(note).join());
+        assertFalse(batcher.isEnabled());
+        verify(noteRepository).insert(note);
+        verify(noteRepository, never()).insert(anyIterable());
+    }
+
+    @Test
+    public void stop_flushesPendingNotes() throws InterruptedException {
+        start(10, Duration.ofSeconds(10));
+
+        CompletableFuture<Note> result = batcher.submit(note("n"));
+        batcher.stop();
+
+        assertTrue(result.isDone());
+        assertEquals("n", result.join().getNote());
+    }
+
+    @Test
+    public void stop_writesInFlightAndQueuedNotes_withoutInterruptingTheWrite() throws Exception {
+        CountDownLatch inFlight = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        // like the MongoDB driver, fail any call made from an interrupted thread
+        when(noteRepository.insert(anyIterable())).thenAnswer(inv -> {
+            List<Note> notes = inv.getArgument(0);
+            try {
+                if (notes.get(0).getNote().equals("in flight")) {
+                    inFlight.countDown();
+                    release.await();
+                }
+            } catch (InterruptedException e) {
+                throw new IllegalStateException("interrupted");
+            }
+            if (Thread.currentThread().isInterrupted()) {
+                throw new IllegalStateException("interrupted");
+            }
+            return notes;
+        });
+        when(noteRepository.insert(any(Note.class))).thenAnswer(inv -> {
+            if (Thread.currentThread().isInterrupted()) {
+                throw new IllegalStateException("interrupted");
+            }
+            return inv.getArgument(0);
+        });
+        start(1, Duration.ZERO);
+
+        CompletableFuture<Note> first = batcher.submit(note("in flight"));
+        assertTrue(inFlight.await(5, TimeUnit.SECONDS));
+        CompletableFuture<Note> second = batcher.submit(note("queued 1"));
+        CompletableFuture<Note> third = batcher.submit(note("queued 2"));
+
+        Thread stopper = new Thread(() -> {
+            try {
+                batcher.stop();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        stopper.start();
+        while (stopper.getState() != Thread.State.TIMED_WAITING && stopper.isAlive()) {
+            Thread.onSpinWait();
+        }
+        release.countDown();
+        stopper.join(5000);
+
+        assertFalse(stopper.isAlive());
+        assertEquals("in flight", first.join().getNote());
+        assertEquals("queued 1", second.join().getNote());
+        assertEquals("queued 2", third.join().getNote());
+        verify(noteRepository, never()).insert(any(Note.class));
+    }
+
+    @Test
+    public void stop_failsPendingNotes_whenWriteDoesNotFinishInTime() throws Exception {
+        CountDownLatch inFlight = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(noteRepository.insert(anyIterable())).thenAnswer(inv -> {
+            inFlight.countDown();
+            release.await();
+            return inv.getArgument(0);
+        });
+        batcher = new NoteInsertBatcher(noteRepository, true, 1, Duration.ZERO, 100, Duration.ofMillis(100));
+        batcher.start();
+
+        try {
+            CompletableFuture<Note> first = batcher.submit(note("stuck"));
+            assertTrue(inFlight.await(5, TimeUnit.SECONDS));
+            CompletableFuture<Note> second = batcher.submit(note("queued"));
+
+            batcher.stop();
+
+            CompletionException stuck = assertThrows(CompletionException.class, first::join);
+            assertInstanceOf(IllegalStateException.class, stuck.getCause());
+            CompletionException queued = assertThrows(CompletionException.class, second::join);
+            assertInstanceOf(IllegalStateException.class, queued.getCause());
+        } finally {
+            release.countDown();
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package dev.nikkune.msnotes.service;
+
+import dev.nikkune.msnotes.client.PatientClient;
+import dev.nikkune.msnotes.model.PatientName;
+import dev.nikkune.msnotes.repository.NoteRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class NotePatientIdBackfillTest {
+
+    private NoteRepository noteRepository;
+    private PatientRegistry patientRegistry;
+    private PatientClient patientClient;
+    private NotePatientIdBackfill backfill;
+
+    @BeforeEach
+    public void setUp() {
+        noteRepository = Mockito.mock(NoteRepository.class);
+        patientRegistry = Mockito.mock(PatientRegistry.class);
+        patientClient = Mockito.mock(PatientClient.class);
+        // Mockito answers 0 for Integer; unknown patients are null
+        when(patientRegistry.patientId(any(), any())).thenReturn(null);
+        when(patientClient.findPatientId(any(), any())).thenReturn(null);
+        backfill = new NotePatientIdBackfill(noteRepository, patientRegistry, patientClient);
+    }
+
+    @Test
+    public void run_assignsResolvedIds_andRecordsDeletedPatientsAsUnresolved() {
+        when(noteRepository.findNamesWithoutPatientId()).thenReturn(List.of(
+                new PatientName("John", "Doe"),
+                new PatientName("Jane", "Doe"),
+                new PatientName("Ghost", "User")));
+        when(patientRegistry.patientId("John", "Doe")).thenReturn(1);
+        when(patientClient.findPatientId("Jane", "Doe")).thenReturn(2);
+
+        backfill.run();
+
+        verify(noteRepository).assignPatientId("John", "Doe", 1);
+        verify(noteRepository).assignPatientId("Jane", "Doe", 2);
+        verify(noteRepository, never()).assignPatientId(eq("Ghost"), eq("User"), any());
+        verify(noteRepository).markPatientIdUnresolved("Ghost", "User");
+        verify(patientClient, never()).findPatientId("John", "Doe");
+        verify(noteRepository).markMigrationComplete(NotePatientIdBackfill.MIGRATION);
+        assertTrue(backfill.isComplete());
+    }
+
+    @Test
+    public void run_doesNotMoveNotesToANewPatient_whenADeletedPatientHadTheName() {
+        when(noteRepository.findNamesWithoutPatientId()).thenReturn(List.of(new PatientName("John", "Doe")));
+        when(patientRegistry.patientId("John", "Doe")).thenReturn(9);
+        when(patientClient.hasDeletedPatient("John", "Doe")).thenReturn(true);
+
+        backfill.run();
+
+        verify(noteRepository, never()).assignPatientId(any(), any(), any());
+        verify(noteRepository).markPatientIdUnresolved("John", "Doe");
+    }
+
+    @Test
+    public void isComplete_readsTheMarkerOnce_andSkipsTheScanAfterARestart() {
+        when(noteRepository.isMigrationComplete(NotePatientIdBackfill.MIGRATION)).thenReturn(true);
+
+        assertTrue(backfill.isComplete());
+        backfill.run();
+        assertTrue(backfill.isComplete());
+
+        verify(noteRepository, times(1)).isMigrationComplete(NotePatientIdBackfill.MIGRATION);
+        verify(noteRepository, never()).findNamesWithoutPatientId();
+    }
+
+    @Test
+    public void run_staysIncomplete_andRetries_whenLookupFails() {
+        when(noteRepository.findNamesWithoutPatientId()).thenReturn(List.of(new PatientName("John", "Doe")));
+        when(patientClient.findPatientId("John", "Doe"))
+                .thenThrow(new RuntimeException("down"))
+                .thenReturn(1);
+
+        backfill.run();
+        assertFalse(backfill.isComplete());
+        verify(noteRepository, never()).markMigrationComplete(any());
+
+        backfill.run();
+        assertTrue(backfill.isComplete());
+        verify(noteRepository).assignPatientId("John", "Doe", 1);
+    }
+
+    @Test
+    public void run_doesNothing_onceComplete() {
+        when(noteRepository.findNamesWithoutPatientId()).thenReturn(List.of());
+
+        backfill.run();
+        backfill.run();
+
+        verify(noteRepository, times(1)).findNamesWithoutPatientId();
+    }
+}
@@ -1,18 +1,32 @@
 package dev.nikkune.msnotes.service;
 
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
 import dev.nikkune.msnotes.client.PatientClient;
+import dev.nikkune.msnotes.dto.CacheStatsDTO;
 import dev.nikkune.msnotes.exception.NoteNotFoundException;
+import dev.nikkune.msnotes.exception.NoteVersionConflictException;
 import dev.nikkune.msnotes.exception.PatientNotFoundException;
 import dev.nikkune.msnotes.model.Note;
+import dev.nikkune.msnotes.model.NoteListVersion;
+import dev.nikkune.msnotes.model.PatientName;
 import dev.nikkune.msnotes.repository.NoteRepository;
+import dev.nikkune.msnotes.repository.ReactiveNoteRepository;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Mockito;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.mongodb.core.query.TextCriteria;
+import reactor.core.publisher.Flux;
 
 import java.util.Arrays;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -21,19 +35,45 @@ import static org.mockito.Mockito.*;
 public class NoteServiceTest {
 
     private NoteRepository noteRepository;
+    private ReactiveNoteRepository reactiveNoteRepository;
     private PatientClient patientClient;
+    private PatientRegistry patientRegistry;
+    private NotePatientIdBackfill patientIdBackfill;
+    private NoteInsertBatcher noteInsertBatcher;
     private NoteService noteService;
 
     @BeforeEach
     public void setUp() {
         noteRepository = Mockito.mock(NoteRepository.class);
+        reactiveNoteRepository = Mockito.mock(ReactiveNoteRepository.class);
         patientClient = Mockito.mock(PatientClient.class);
-        noteService = new NoteService(noteRepository, patientClient);
+        patientRegistry = Mockito.mock(PatientRegistry.class);
+        patientIdBackfill = Mockito.mock(NotePatientIdBackfill.class);
+        // Mockito answers 0 for Integer; unknown patients are null
+        when(patientRegistry.patientId(any(), any())).thenReturn(null);
+        when(patientClient.findPatientId(any(), any())).thenReturn(null);
+        noteInsertBatcher = Mockito.mock(NoteInsertBatcher.class);
+        noteService = new NoteService(noteRepository, reactiveNoteRepository, patientClient, patientRegistry, patientIdBackfill, noteInsertBatcher);
+    }
+
+    @Test
+    public void patientCacheStats_reportsPatientClientCache() {
+        when(patientClient.cacheStats()).thenReturn(CacheStats.of(3, 1, 1, 0, 10, 2, 0));
+        when(patientClient.cacheSize()).thenReturn(5L);
+
+        CacheStatsDTO stats = noteService.patientCacheStats();
+
+        assertEquals(5, stats.getSize());
+        assertEquals(3, stats.getHitCount());
+        assertEquals(1, stats.getMissCount());
+        assertEquals(0.75, stats.getHitRate());
+        assertEquals(1, stats.getLoadCount());
+        assertEquals(2, stats.getEvictionCount());
     }
 
     @Test
     public void listNotes_returnsNotes_whenPatientExists() {
-        when(patientClient.exists("John", "Doe")).thenReturn(true);
+        when(patientClient.findPatientId("John", "Doe")).thenReturn(7);
         Note n1 = new Note();
         n1.setFirstName("John");
         n1.setLastName("Doe");
@@ -48,15 +88,117 @@ public class NoteServiceTest {
         assertEquals("a", result.get(0).getNote());
     }
 
+    @Test
+    public void listNotes_queriesByPatientId_onceBackfillComplete() {
+        when(patientClient.findPatientId("John", "Doe")).thenReturn(7);
+        when(patientIdBackfill.isComplete()).thenReturn(true);
+        Note n1 = new Note();
+        n1.setPatientId(7);
+        when(noteRepository.findByPatientIdAndActiveTrueOrderByUpdatedAtDesc(7)).thenReturn(List.of(n1));
+
+        List<Note> result = noteService.list("John", "Doe");
+
+        assertEquals(1, result.size());
+        verify(noteRepository, never()).findByFirstNameAndLastNameAndActiveTrueOrderByUpdatedAtDesc(any(), any());
+    }
+
+    @Test
+    public void listByPatients_groupsSingleQueryResults_andSkipsUnknownPatients() {
+        when(patientRegistry.patientId("John", "Doe")).thenReturn(1);
+        when(patientClient.findPatientId("Jane", "Doe")).thenReturn(2);
+        when(patientIdBackfill.isComplete()).thenReturn(true);
+        Note john = new Note();
+        john.setPatientId(1);
+        Note jane = new Note();
+        jane.setPatientId(2);
+        when(noteRepository.findActiveByPatientIds(argThat(ids -> List.copyOf(ids).equals(List.of(1, 2))), eq(true))).thenReturn(List.of(jane, john));
+
+        Map<PatientName, List<Note>> result = noteService.listByPatients(List.of(
+                new PatientName("John", "Doe"), new PatientName("Ghost", "User"), new PatientName("Jane", "Doe")), true);
+
+        assertEquals(List.of(new PatientName("John", "Doe"), new PatientName("Jane", "Doe")), List.copyOf(result.keySet()));
+        assertEquals(List.of(john), result.get(new PatientName("John", "Doe")));
+        assertEquals(List.of(jane), result.get(new PatientName("Jane", "Doe")));
+        verify(noteRepository, times(1)).findActiveByPatientIds(any(), eq(true));
+    }
+
+    @Test
+    public void listByPatients_queriesByName_untilBackfillComplete() {
+        when(patientRegistry.patientId("John", "Doe")).thenReturn(1);
+        Note john = new Note();
+        john.setFirstName("John");
+        john.setLastName("Doe");
+        when(noteRepository.findActiveByPatientNames(any(), eq(false))).thenReturn(List.of(john));
+
+        Map<PatientName, List<Note>> result = noteService.listByPatients(List.of(new PatientName("John", "Doe")), false);
+
+        assertEquals(List.of(john), result.get(new PatientName("John", "Doe")));
+        verify(noteRepository, never()).findActiveByPatientIds(any(), anyBoolean());
+    }
+
+    @Test
+    public void stream_readsReactively_byPatientId() {
+        when(patientRegistry.patientId("John", "Doe")).thenReturn(7);
+        when(patientIdBackfill.isComplete()).thenReturn(true);
+        Note n1 = new Note();
+        n1.setNote("a");
+        Note n2 = new Note();
+        n2.setNote("b");
+        when(reactiveNoteRepository.findByPatientIdAndActiveTrueOrderByUpdatedAtDesc(7)).thenReturn(Flux.just(n1, n2));
+
+        List<Note> result = noteService.stream("John", "Doe").collectList().block();
+
+        assertEquals(List.of(n1, n2), result);
+        verifyNoInteractions(noteRepository);
+    }
+
+    @Test
+    public void stream_throws404_beforeSubscription_whenPatientMissing() {
+        assertThrows(PatientNotFoundException.class, () -> noteService.stream("Jane", "Smith"));
+        verifyNoInteractions(reactiveNoteRepository);
+    }
+
+    @Test
+    public void listNotes_skipsRemoteCheck_whenPatientInRegistry() {
+        when(patientRegistry.patientId("John", "Doe")).thenReturn(7);
+        when(noteRepository.findByFirstNameAndLastNameAndActiveTrueOrderByUpdatedAtDesc("John", "Doe"))
+                .thenReturn(List.of());
+
+        noteService.list("John", "Doe");
+
+        verifyNoInteractions(patientClient);
+    }
+
     @Test
     public void listNotes_throws404_whenPatientMissing() {
-        when(patientClient.exists("Jane", "Smith")).thenReturn(false);
+        when(patientClient.findPatientId("Jane", "Smith")).thenReturn(null);
         assertThrows(PatientNotFoundException.class, () -> noteService.list("Jane", "Smith"));
     }
 
+    @Test
+    public void listETag_changesWithListVersion() {
+        when(patientClient.findPatientId("John", "Doe")).thenReturn(7);
+        when(noteRepository.listVersion("John", "Doe"))
+                .thenReturn(new NoteListVersion(2, new Date(1000)))
+                .thenReturn(new NoteListVersion(2, new Date(1001)));
+
+        String first = noteService.listETag("John", "Doe");
+        String second = noteService.listETag("John", "Doe");
+
+        assertEquals("\"2-3e8\"", first);
+        assertNotEquals(first, second);
+    }
+
+    @Test
+    public void listETag_throws404_whenPatientMissing() {
+        when(patientClient.findPatientId("Jane", "Smith")).thenReturn(null);
+        assertThrows(PatientNotFoundException.class, () -> noteService.listETag("Jane", "Smith"));
+        verify(noteRepository, never()).listVersion(any(), any());
+    }
+
     @Test
     public void addNote_persistsWithTimestamps_whenPatientExists() {
-        when(patientClient.exists("John", "Doe")).thenReturn(true);
+        when(patientClient.findPatientId("John", "Doe")).thenReturn(7);
         when(noteRepository.save(any(Note.class))).thenAnswer(inv -> inv.getArgument(0));
 
         Note created = noteService.add("John", "Doe", "Observation text");
@@ -64,9 +206,11 @@ public class NoteServiceTest {
         assertNotNull(created.getCreatedAt());
         assertNotNull(created.getUpdatedAt());
         assertEquals(Boolean.TRUE, created.getActive());
+        assertEquals(7, created.getPatientId());
         assertEquals("John", created.getFirstName());
         assertEquals("Doe", created.getLastName());
         assertEquals("Observation text", created.getNote());
+        assertEquals("7bbbb74c70366d88477d41e58a2b8c5169cb12d27cf1901b8fde173c621cb025", created.getContentHash());
 
         ArgumentCaptor<Note> captor = ArgumentCaptor.forClass(Note.class);
         verify(noteRepository).save(captor.capture());
@@ -75,9 +219,21 @@ public class NoteServiceTest {
         assertNotNull(saved.getUpdatedAt());
     }
 
+    @Test
+    public void addNote_goesThroughBatcher_whenEnabled() {
+        when(patientClient.findPatientId("John", "Doe")).thenReturn(7);
+        when(noteInsertBatcher.isEnabled()).thenReturn(true);
+        when(noteInsertBatcher.insert(any(Note.class))).thenAnswer(inv -> inv.getArgument(0));
+
+        Note created = noteService.add("John", "Doe", "Observation text");
+
+        assertEquals("Observation text", created.getNote());
+        verify(noteRepository, never()).save(any());
+    }
+
     @Test
     public void addNote_throws404_whenPatientMissing() {
-        when(patientClient.exists("Ghost", "User")).thenReturn(false);
+        when(patientClient.findPatientId("Ghost", "User")).thenReturn(null);
         assertThrows(PatientNotFoundException.class, () -> noteService.add("Ghost", "User", "text"));
     }
 
@@ -99,37 +255,49 @@ public class NoteServiceTest {
 
     @Test
     public void update_updatesNoteText_andTimestamp() {
-        Note existing = new Note();
-        existing.setNote("old");
-        existing.setUpdatedAt(new Date(0));
-        existing.setActive(true);
-        when(noteRepository.findById("id1")).thenReturn(Optional.of(existing));
-        when(noteRepository.save(any(Note.class))).thenAnswer(inv -> inv.getArgument(0));
+        Note updated = new Note();
+        updated.setNote("new");
+        updated.setUpdatedAt(new Date());
+        when(noteRepository.updateActiveNote(eq("id1"), eq("new"), isNull(), any(Date.class))).thenReturn(updated);
 
-        Note res = noteService.update("id1", "new");
+        Note res = noteService.update("id1", "new", null);
         assertEquals("new", res.getNote());
-        assertTrue(res.getUpdatedAt().getTime() >= new Date().getTime() - 2000); // updated recently
+
+        ArgumentCaptor<Date> captor = ArgumentCaptor.forClass(Date.class);
+        verify(noteRepository).updateActiveNote(eq("id1"), eq("new"), isNull(), captor.capture());
+        assertTrue(captor.getValue().getTime() >= new Date().getTime() - 2000); // updated recently
+        verify(noteRepository, never()).findById(any());
+        verify(noteRepository, never()).save(any());
+    }
+
+    @Test
+    public void update_throws409_whenVersionStale() {
+        when(noteRepository.updateActiveNote(eq("id1"), eq("new"), eq(3L), any(Date.class))).thenReturn(null);
+        when(noteRepository.existsByIdAndActiveTrue("id1")).thenReturn(true);
+        assertThrows(NoteVersionConflictException.class, () -> noteService.update("id1", "new", 3L));
+    }
+
+    @Test
+    public void update_throws404_whenVersionGivenButNoteMissing() {
+        when(noteRepository.updateActiveNote(eq("id1"), eq("new"), eq(3L), any(Date.class))).thenReturn(null);
+        when(noteRepository.existsByIdAndActiveTrue("id1")).thenReturn(false);
+        assertThrows(NoteNotFoundException.class, () -> noteService.update("id1", "new", 3L));
     }
 
     @Test
     public void delete_throws404_whenMissing() {
-        when(noteRepository.findById("id1")).thenReturn(Optional.empty());
+        when(noteRepository.deactivate(eq("id1"), any(Date.class))).thenReturn(false);
         assertThrows(NoteNotFoundException.class, () -> noteService.delete("id1"));
     }
 
     @Test
     public void delete_callsRepository_whenExists() {
-        Note existing = new Note();
-        existing.setActive(true);
-        when(noteRepository.findById("id1")).thenReturn(Optional.of(existing));
-        when(noteRepository.save(any(Note.class))).thenAnswer(inv -> inv.getArgument(0));
+        when(noteRepository.deactivate(eq("id1"), any(Date.class))).thenReturn(true);
 
         noteService.delete("id1");
 
-        ArgumentCaptor<Note> captor = ArgumentCaptor.forClass(Note.class);
-        verify(noteRepository).save(captor.capture());
-        Note saved = captor.getValue();
-        assertEquals(Boolean.FALSE, saved.getActive());
+        verify(noteRepository).deactivate(eq("id1"), any(Date.class));
+        verify(noteRepository, never()).save(any());
     }
 
     @Test
@@ -142,17 +310,56 @@ public class NoteServiceTest {
 
     @Test
     public void update_throws404_whenInactive() {
-        Note existing = new Note();
-        existing.setActive(false);
-        when(noteRepository.findById("id1")).thenReturn(Optional.of(existing));
-        assertThrows(NoteNotFoundException.class, () -> noteService.update("id1", "x"));
+        // the atomic update only matches active notes
+        when(noteRepository.updateActiveNote(eq("id1"), eq("x"), isNull(), any(Date.class))).thenReturn(null);
+        assertThrows(NoteNotFoundException.class, () -> noteService.update("id1", "x", null));
     }
 
     @Test
     public void delete_throws404_whenInactive() {
-        Note existing = new Note();
-        existing.setActive(false);
-        when(noteRepository.findById("id1")).thenReturn(Optional.of(existing));
+        // the atomic deactivation only matches active notes
+        when(noteRepository.deactivate(eq("id1"), any(Date.class))).thenReturn(false);
         assertThrows(NoteNotFoundException.class, () -> noteService.delete("id1"));
     }
+
+    @Test
+    public void search_queriesTextIndex_forActiveNotes() {
+        Note hit = new Note();
+        hit.setNote("Microalbumine élevée");
+        PageRequest pageable = PageRequest.of(0, 20);
+        when(noteRepository.findByActiveTrueOrderByScoreDesc(any(TextCriteria.class), eq(pageable)))
+                .thenReturn(new SliceImpl<>(List.of(hit), pageable, false));
+
+        Slice<Note> result = noteService.search("Microalbumine", pageable);
+
+        assertEquals(List.of(hit), result.getContent());
+        ArgumentCaptor<TextCriteria> captor = ArgumentCaptor.forClass(TextCriteria.class);
+        verify(noteRepository).findByActiveTrueOrderByScoreDesc(captor.capture(), eq(pageable));
+        assertTrue(captor.getValue().getCriteriaObject().toJson().contains("Microalbumine"));
+        verify(noteRepository, never()).countByActiveTrue(any(TextCriteria.class));
+    }
+
+    @Test
+    public void countSearch_countsActiveMatches() {
+        when(noteRepository.countByActiveTrue(any(TextCriteria.class))).thenReturn(6L);
+
+        assertEquals(6, noteService.countSearch("Microalbumine"));
+        ArgumentCaptor<TextCriteria> captor = ArgumentCaptor.forClass(TextCriteria.class);
+        verify(noteRepository).countByActiveTrue(captor.capture());
+        assertTrue(captor.getValue().getCriteriaObject().toJson().contains("Microalbumine"));
+    }
+
+    @Test
+    public void listArchived_readsArchive_withoutPatientCheck() {
+        Note n = new Note();
+        n.setNote("archived");
+        PageRequest pageable = PageRequest.of(0, 20);
+        when(noteRepository.findArchived("John", "Doe", pageable)).thenReturn(new PageImpl<>(List.of(n), pageable, 1));
+
+        Page<Note> res = noteService.listArchived("John", "Doe", pageable);
+
+        assertEquals(1, res.getTotalElements());
+        assertEquals("archived", res.getContent().get(0).getNote());
+        verifyNoInteractions(patientClient, patientRegistry);
+    }
 }
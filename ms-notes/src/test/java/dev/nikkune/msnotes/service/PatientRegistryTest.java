@@ -0,0 +1,188 @@
+package dev.nikkune.msnotes.service;
+
+import dev.nikkune.msnotes.client.PatientClient;
+import dev.nikkune.msnotes.dto.PatientEventBatchDTO;
+import dev.nikkune.msnotes.dto.PatientEventDTO;
+import dev.nikkune.msnotes.dto.PatientEventHeadDTO;
+import dev.nikkune.msnotes.dto.PatientPageDTO;
+import dev.nikkune.msnotes.dto.PatientSummaryDTO;
+import dev.nikkune.msnotes.model.PatientEventType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+public class PatientRegistryTest {
+
+    private PatientClient patientClient;
+    private PatientRegistry registry;
+
+    @BeforeEach
+    public void setUp() {
+        patientClient = Mockito.mock(PatientClient.class);
+        registry = new PatientRegistry(patientClient, 2);
+    }
+
+    private PatientEventDTO event(long id, PatientEventType type, String firstName, String lastName) {
+        PatientEventDTO event = new PatientEventDTO();
+        event.setId(id);
+        event.setType(type);
+        event.setPatientId((firstName + lastName).hashCode());
+        event.setFirstName(firstName);
+        event.setLastName(lastName);
+        return event;
+    }
+
+    private PatientEventBatchDTO batch(String epoch, PatientEventDTO... events) {
+        return new PatientEventBatchDTO(epoch, List.of(events));
+    }
+
+    private void outbox(String epoch, long lastId, PatientSummaryDTO... patients) {
+        PatientEventHeadDTO head = new PatientEventHeadDTO();
+        head.setEpoch(epoch);
+        head.setLastId(lastId);
+        PatientPageDTO page = new PatientPageDTO();
+        page.setContent(List.of(patients));
+        when(patientClient.eventHead()).thenReturn(head);
+        when(patientClient.activePatients(0, PatientRegistry.SNAPSHOT_PAGE_SIZE)).thenReturn(page);
+        when(patientClient.events(anyLong(), anyInt())).thenReturn(batch(epoch));
+    }
+
+    @Test
+    public void apply_tracksCreatedAndDeletedPatients() {
+        registry.apply(event(1, PatientEventType.CREATED, "John", "Doe"));
+        assertTrue(registry.contains("John", "Doe"));
+        assertEquals("JohnDoe".hashCode(), registry.patientId("John", "Doe"));
+
+        registry.apply(event(2, PatientEventType.DELETED, "John", "Doe"));
+        assertFalse(registry.contains("John", "Doe"));
+        assertNull(registry.patientId("John", "Doe"));
+        assertEquals(2, registry.lastEventId());
+        verify(patientClient, times(2)).evict("John", "Doe");
+    }
+
+    @Test
+    public void apply_ignoresEventsAlreadyApplied() {
+        registry.apply(event(1, PatientEventType.CREATED, "John", "Doe"));
+        registry.apply(event(2, PatientEventType.DELETED, "John", "Doe"));
+
+        registry.apply(event(1, PatientEventType.CREATED, "John", "Doe"));
+
+        assertFalse(registry.contains("John", "Doe"));
+        verify(patientClient, times(2)).evict("John", "Doe");
+    }
+
+    @Test
+    public void poll_buildsFromSnapshot_andReplaysWindowBelowHead() {
+        outbox("e1", 3, new PatientSummaryDTO(1, "John", "Doe"));
+        when(patientClient.events(0, 2)).thenReturn(batch("e1",
+                event(2, PatientEventType.CREATED, "Jane", "Doe"),
+                event(3, PatientEventType.UPDATED, "John", "Doe")));
+
+        registry.poll();
+
+        assertTrue(registry.contains("John", "Doe"));
+        assertTrue(registry.contains("Jane", "Doe"));
+        assertEquals(3, registry.lastEventId());
+        verify(patientClient).evictAll();
+        verify(patientClient).events(3, 2);
+    }
+
+    @Test
+    public void poll_appliesEventCommittedAfterHigherIds() {
+        outbox("e1", 0);
+        when(patientClient.events(0, 2)).thenReturn(batch("e1",
+                event(1, PatientEventType.CREATED, "John", "Doe"),
+                event(3, PatientEventType.CREATED, "Jane", "Doe")));
+        registry.poll();
+        assertFalse(registry.contains("Bob", "Smith"));
+        assertEquals(1, registry.pendingEventIds());
+
+        when(patientClient.events(1, 2)).thenReturn(batch("e1",
+                event(2, PatientEventType.CREATED, "Bob", "Smith"),
+                event(3, PatientEventType.CREATED, "Jane", "Doe")));
+        registry.poll();
+
+        assertTrue(registry.contains("Bob", "Smith"));
+        assertEquals(0, registry.pendingEventIds());
+        assertEquals(3, registry.lastEventId());
+        verify(patientClient, times(1)).evict("Jane", "Doe");
+    }
+
+    @Test
+    public void poll_stopsWaitingForSkippedIds_afterGapTimeout() {
+        registry = new PatientRegistry(patientClient, 2, Duration.ZERO, 1000);
+        outbox("e1", 0);
+        when(patientClient.events(0, 2)).thenReturn(batch("e1",
+                event(1, PatientEventType.CREATED, "John", "Doe"),
+                event(3, PatientEventType.CREATED, "Jane", "Doe")));
+        registry.poll();
+
+        registry.poll();
+
+        assertEquals(0, registry.pendingEventIds());
+        verify(patientClient, never()).events(1, 2);
+    }
+
+    @Test
+    public void poll_rebuilds_whenEpochChanges() {
+        outbox("e1", 5, new PatientSummaryDTO(4, "John", "Doe"));
+        registry.poll();
+        assertTrue(registry.contains("John", "Doe"));
+
+        when(patientClient.events(anyLong(), anyInt())).thenReturn(batch("e2", event(1, PatientEventType.CREATED, "Jane", "Doe")));
+        PatientEventHeadDTO head = new PatientEventHeadDTO();
+        head.setEpoch("e2");
+        head.setLastId(1);
+        when(patientClient.eventHead()).thenReturn(head);
+        PatientPageDTO page = new PatientPageDTO();
+        page.setContent(List.of(new PatientSummaryDTO(1, "Jane", "Doe")));
+        when(patientClient.activePatients(0, PatientRegistry.SNAPSHOT_PAGE_SIZE)).thenReturn(page);
+        registry.poll();
+
+        assertFalse(registry.contains("John", "Doe"));
+        assertEquals(1, registry.patientId("Jane", "Doe"));
+        assertEquals(0, registry.lastEventId());
+        verify(patientClient, times(2)).evictAll();
+    }
+
+    @Test
+    public void poll_readsSnapshotPages() {
+        PatientEventHeadDTO head = new PatientEventHeadDTO();
+        head.setEpoch("e1");
+        when(patientClient.eventHead()).thenReturn(head);
+        PatientPageDTO first = new PatientPageDTO();
+        first.setContent(List.of(new PatientSummaryDTO(1, "John", "Doe")));
+        first.setNextAfter(1);
+        PatientPageDTO second = new PatientPageDTO();
+        second.setContent(List.of(new PatientSummaryDTO(2, "Jane", "Doe")));
+        when(patientClient.activePatients(0, PatientRegistry.SNAPSHOT_PAGE_SIZE)).thenReturn(first);
+        when(patientClient.activePatients(1, PatientRegistry.SNAPSHOT_PAGE_SIZE)).thenReturn(second);
+        when(patientClient.events(anyLong(), anyInt())).thenReturn(batch("e1"));
+
+        registry.poll();
+
+        assertEquals(1, registry.patientId("John", "Doe"));
+        assertEquals(2, registry.patientId("Jane", "Doe"));
+    }
+
+    @Test
+    public void poll_keepsState_whenPatientServiceFails() {
+        outbox("e1", 0);
+        when(patientClient.events(0, 2)).thenReturn(batch("e1", event(1, PatientEventType.CREATED, "John", "Doe")));
+        registry.poll();
+        when(patientClient.events(1, 2)).thenThrow(new RuntimeException("down"));
+
+        registry.poll();
+
+        assertTrue(registry.contains("John", "Doe"));
+        assertEquals(1, registry.lastEventId());
+    }
+}
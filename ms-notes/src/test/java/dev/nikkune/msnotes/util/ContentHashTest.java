@@ -0,0 +1,30 @@
+package dev.nikkune.msnotes.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ContentHashTest {
+
+    @Test
+    public void of_returnsTheSha256OfTheUtf8Text() {
+        assertEquals("e3b0c44298fc1c149afbf4c8996fb92427ae41e4649b934ca495991b7852b855", ContentHash.of(""));
+        assertEquals("7bbbb74c70366d88477d41e58a2b8c5169cb12d27cf1901b8fde173c621cb025", ContentHash.of("Observation text"));
+    }
+
+    @Test
+    public void of_isEqualForIdenticalTexts_andDiffersOtherwise() {
+        String text = "Le patient déclare qu'il fume depuis peu";
+
+        assertEquals(ContentHash.of(text), ContentHash.of(new String(text.toCharArray())));
+        assertNotEquals(ContentHash.of(text), ContentHash.of(text + " "));
+        // accented characters are hashed as UTF-8, not as the platform charset
+        assertNotEquals(ContentHash.of("déclare"), ContentHash.of("declare"));
+        assertEquals(64, ContentHash.of(text).length());
+    }
+
+    @Test
+    public void of_returnsNull_forNull() {
+        assertNull(ContentHash.of(null));
+    }
+}
@@ -0,0 +1,77 @@
+package dev.nikkune.mspatient.config;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * DataSource routing the connections of read-only transactions to a replica database and every
+ * other connection to the primary database.
+ * <p>
+ * The route is chosen when the connection is first used, so this data source must be wrapped in a
+ * {@link org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy}: the transaction
+ * managers obtain their connection before the read-only flag of the transaction is published.
+ * <p>
+ * Replicas lag behind the primary. Once a thread has used the primary in a read-write
+ * transaction, it is pinned to the primary, so the reads following a write see it, until
+ * {@link #unpin()} is called at the end of the request. Reads whose result outlives the request,
+ * such as cache loads, go to the primary through {@link #readFromPrimary}.
+ */
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource {
+    private static final ThreadLocal<Boolean> PINNED_TO_PRIMARY = ThreadLocal.withInitial(() -> false);
+
+    enum Route {
+        PRIMARY, REPLICA
+    }
+
+    /**
+     * Constructs a ReplicaRoutingDataSource.
+     *
+     * @param primary the data source of the primary database, used for writes
+     * @param replica the data source of the replica database, used for read-only transactions
+     */
+    public ReplicaRoutingDataSource(DataSource primary, DataSource replica) {
+        setTargetDataSources(Map.of(Route.PRIMARY, primary, Route.REPLICA, replica));
+        setDefaultTargetDataSource(primary);
+    }
+
+    /**
+     * Releases the pin of the current thread to the primary database.
+     */
+    public static void unpin() {
+        PINNED_TO_PRIMARY.remove();
+    }
+
+    /**
+     * Runs a read on the primary database, even inside a read-only transaction, without pinning the
+     * thread to it afterwards. The connection must not have been obtained yet by an enclosing
+     * transaction, which is the case when {@code read} opens the transaction itself.
+     *
+     * @param read the read to run
+     * @param <T>  the type of the result
+     * @return the result of the read
+     */
+    public static <T> T readFromPrimary(Supplier<T> read) {
+        boolean pinned = PINNED_TO_PRIMARY.get();
+        PINNED_TO_PRIMARY.set(true);
+        try {
+            return read.get();
+        } finally {
+            PINNED_TO_PRIMARY.set(pinned);
+        }
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            return PINNED_TO_PRIMARY.get() ? Route.PRIMARY : Route.REPLICA;
+        }
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            PINNED_TO_PRIMARY.set(true);
+        }
+        return Route.PRIMARY;
+    }
+}
@@ -1,19 +1,50 @@
 package dev.nikkune.mspatient.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.nikkune.mspatient.dto.BulkRegistrationDTO;
+import dev.nikkune.mspatient.dto.BulkRegistrationRequestDTO;
+import dev.nikkune.mspatient.dto.BulkRiskDTO;
+import dev.nikkune.mspatient.dto.BulkRiskRequestDTO;
+import dev.nikkune.mspatient.dto.PatientCacheStatsDTO;
 import dev.nikkune.mspatient.dto.PatientDTO;
+import dev.nikkune.mspatient.dto.PatientKeyDTO;
+import dev.nikkune.mspatient.dto.PatientPageDTO;
+import dev.nikkune.mspatient.dto.PatientRiskDTO;
+import dev.nikkune.mspatient.dto.PatientSuggestionDTO;
 import dev.nikkune.mspatient.dto.RiskDTO;
 import dev.nikkune.mspatient.model.Patient;
+import dev.nikkune.mspatient.model.PatientName;
+import dev.nikkune.mspatient.model.PatientSearchCriteria;
 import dev.nikkune.mspatient.service.IPatientService;
 import dev.nikkune.mspatient.validation.ValidationGroups;
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.Pattern;
 import jakarta.validation.groups.Default;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Date;
 import java.util.List;
+import java.util.Map;
 
 /**
  * PatientController is a REST controller that provides endpoints to perform
@@ -25,27 +56,154 @@ import java.util.List;
 @Validated
 public class PatientController {
     private static final Logger logger = LogManager.getLogger(PatientController.class);
+    private static final MediaType CSV = new MediaType("text", "csv", StandardCharsets.UTF_8);
+    public static final String PATIENT_ID_HEADER = "X-Patient-Id";
+    private static final String[] CSV_HEADER = {"id", "lastName", "firstName", "birthDate", "gender", "address", "phoneNumber"};
     private final IPatientService patientService;
+    private final ObjectMapper objectMapper;
 
-    public PatientController(IPatientService patientService) {
+    public PatientController(IPatientService patientService, ObjectMapper objectMapper) {
         this.patientService = patientService;
+        this.objectMapper = objectMapper;
     }
 
     /**
-     * Retrieves all patients from the system.
+     * Retrieves one page of active patients, in id order.
      * <p>
-     * This method handles an HTTP GET request and interacts with the PatientService
-     * to fetch all the available patients from the underlying data store. It then
-     * returns the list of patients wrapped in a ResponseEntity.
+     * Pages are chained by id: the first page is requested with {@code after=0} and each
+     * following page with the {@code nextAfter} value of the previous one, until it is null.
      *
-     * @return a ResponseEntity containing a list of all patients
+     * @param after the id of the last patient of the previous page, 0 for the first page
+     * @param size  the maximum number of patients in the page, at most 500
+     * @param count whether to include the total number of active patients
+     * @return the page of patients
      */
     @GetMapping("/all")
-    public List<PatientDTO> getAllPatients() {
-        logger.debug("Received request to get all patients");
-        List<PatientDTO> patients = patientService.findAll();
-        logger.info("Retrieved {} patients", patients.size());
-        return patients;
+    public PatientPageDTO getAllPatients(@RequestParam(defaultValue = "0") @Min(0) int after,
+                                         @RequestParam(defaultValue = "50") @Min(1) @Max(500) int size,
+                                         @RequestParam(defaultValue = "false") boolean count) {
+        logger.debug("Received request to get patients after {}", after);
+        PatientPageDTO page = patientService.findPage(after, size, count);
+        logger.info("Retrieved {} patients after {}", page.getContent().size(), after);
+        return page;
+    }
+
+    /**
+     * Searches patients with optional filters, one page at a time in id order. Filters left out
+     * do not restrict the result; pages are chained by id as for {@code /all}.
+     *
+     * @param lastName  a prefix of the last name
+     * @param firstName a prefix of the first name
+     * @param gender    the gender
+     * @param bornFrom  the earliest birth date, inclusive, as {@code yyyy-MM-dd}
+     * @param bornTo    the latest birth date, inclusive, as {@code yyyy-MM-dd}
+     * @param active    whether to search the active (default) or the deleted patients
+     * @param after     the id of the last patient of the previous page, 0 for the first page
+     * @param size      the maximum number of patients in the page, at most 500
+     * @param count     whether to include the total number of matching patients
+     * @return the page of matching patients
+     */
+    @GetMapping("/search")
+    public PatientPageDTO searchPatients(@RequestParam(required = false) String lastName,
+                                         @RequestParam(required = false) String firstName,
+                                         @RequestParam(required = false) String gender,
+                                         @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) Date bornFrom,
+                                         @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) Date bornTo,
+                                         @RequestParam(defaultValue = "true") boolean active,
+                                         @RequestParam(defaultValue = "0") @Min(0) int after,
+                                         @RequestParam(defaultValue = "50") @Min(1) @Max(500) int size,
+                                         @RequestParam(defaultValue = "false") boolean count) {
+        PatientSearchCriteria criteria = new PatientSearchCriteria(lastName, firstName, gender, bornFrom, bornTo, active);
+        logger.debug("Received request to search patients matching {} after {}", criteria, after);
+        PatientPageDTO page = patientService.search(criteria, after, size, count);
+        logger.info("Found {} patients matching {} after {}", page.getContent().size(), criteria, after);
+        return page;
+    }
+
+    /**
+     * Suggests active patients as their name is typed, from an in-memory index of the names.
+     * Words may be given in any order, the last one may be incomplete and small typos are tolerated.
+     *
+     * @param q     the text typed so far
+     * @param limit the maximum number of patients to return, at most 50
+     * @return the best matching patients, best first
+     */
+    @GetMapping("/suggest")
+    public List<PatientSuggestionDTO> suggestPatients(@RequestParam String q,
+                                                      @RequestParam(defaultValue = "10") @Min(1) @Max(50) int limit) {
+        logger.debug("Received request to suggest patients for {}", q);
+        List<PatientSuggestionDTO> suggestions = patientService.suggest(q, limit);
+        logger.info("Suggested {} patients for {}", suggestions.size(), q);
+        return suggestions;
+    }
+
+    /**
+     * Exports every active patient, in id order, as newline-delimited JSON or as CSV.
+     * <p>
+     * The response is written while patients are read from the database, one record per line,
+     * so it can be consumed incrementally and the service never holds the whole table in memory.
+     * In CSV, the birth date is written as the calendar date stored for the patient, {@code yyyy-MM-dd}.
+     *
+     * @param format the output format, {@code ndjson} (default) or {@code csv}
+     * @return the streamed export
+     */
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportPatients(@RequestParam(defaultValue = "ndjson") @Pattern(regexp = "ndjson|csv") String format) {
+        logger.debug("Received request to export patients as {}", format);
+        boolean csv = format.equals("csv");
+        StreamingResponseBody body = outputStream -> {
+            Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+            if (csv) {
+                writer.write(csvLine(CSV_HEADER));
+            }
+            long[] exported = {0};
+            patientService.exportActive(patient -> {
+                try {
+                    writer.write(csv ? csvLine(csvFields(patient)) : objectMapper.writeValueAsString(patient) + "\n");
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                exported[0]++;
+            });
+            writer.flush();
+            logger.info("Exported {} patients as {}", exported[0], format);
+        };
+        return ResponseEntity.ok()
+                .contentType(csv ? CSV : MediaType.APPLICATION_NDJSON)
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"patients." + format + "\"")
+                .body(body);
+    }
+
+    private static String[] csvFields(PatientDTO patient) {
+        return new String[]{
+                String.valueOf(patient.getId()),
+                patient.getLastName(),
+                patient.getFirstName(),
+                patient.getBirthDate() == null ? null
+                        : LocalDate.ofInstant(Instant.ofEpochMilli(patient.getBirthDate().getTime()), ZoneId.systemDefault()).toString(),
+                patient.getGender(),
+                patient.getAddress(),
+                patient.getPhoneNumber()
+        };
+    }
+
+    private static String csvLine(String[] fields) {
+        StringBuilder line = new StringBuilder();
+        for (int i = 0; i < fields.length; i++) {
+            if (i > 0) {
+                line.append(',');
+            }
+            String field = fields[i];
+            if (field == null) {
+                continue;
+            }
+            if (field.contains(",") || field.contains("\"") || field.contains("\n") || field.contains("\r")) {
+                line.append('"').append(field.replace("\"", "\"\"")).append('"');
+            } else {
+                line.append(field);
+            }
+        }
+        return line.append("\r\n").toString();
     }
 
     /**
@@ -77,6 +235,28 @@ public class PatientController {
         return patient;
     }
 
+    /**
+     * Checks whether an active patient exists, without sending the patient itself. The answer
+     * is carried by the status alone: 204 No Content with the identifier of the patient in the
+     * {@value #PATIENT_ID_HEADER} header, or 404 Not Found with no body. Both {@code HEAD} and
+     * {@code GET} are accepted.
+     *
+     * @param firstName the first name of the patient
+     * @param lastName  the last name of the patient
+     * @return an empty response whose status tells whether the patient exists
+     */
+    @RequestMapping(path = "/exists", method = {RequestMethod.HEAD, RequestMethod.GET})
+    public ResponseEntity<Void> patientExists(@RequestParam @Valid String firstName, @RequestParam @Valid String lastName) {
+        logger.debug("Received request to check existence of patient with first name {} and last name {}", firstName, lastName);
+        Integer id = patientService.findActiveId(firstName, lastName);
+        if (id == null) {
+            logger.info("Patient with first name {} and last name {} does not exist", firstName, lastName);
+            return ResponseEntity.notFound().build();
+        }
+        logger.info("Patient with first name {} and last name {} exists", firstName, lastName);
+        return ResponseEntity.noContent().header(PATIENT_ID_HEADER, String.valueOf(id)).build();
+    }
+
     @GetMapping("/riskInfo")
     public RiskDTO getPatientRiskInfo(@RequestParam @Valid String firstName, @RequestParam @Valid String lastName) {
         logger.debug("Received request to get rist info of patient with first name {} and last name {}", firstName, lastName);
@@ -85,6 +265,48 @@ public class PatientController {
         return riskInfo;
     }
 
+    /**
+     * Retrieves the risk information of several patients in a single call, in request order.
+     * Patients that do not exist are listed under {@code notFound}.
+     *
+     * @param request the patients whose risk information to retrieve, at most {@value BulkRiskRequestDTO#MAX_PATIENTS}
+     * @return the risk information of each existing patient and the keys of the patients not found
+     */
+    @PostMapping("/riskInfo")
+    public BulkRiskDTO getPatientsRiskInfo(@RequestBody @Valid BulkRiskRequestDTO request) {
+        logger.debug("Received request to get risk info of {} patients", request.getPatients().size());
+        List<PatientName> patients = request.getPatients().stream()
+                .map(key -> new PatientName(key.getFirstName(), key.getLastName()))
+                .toList();
+        Map<PatientName, RiskDTO> riskInfo = patientService.getRiskInfo(patients);
+
+        BulkRiskDTO response = new BulkRiskDTO();
+        response.setPatients(riskInfo.entrySet().stream().map(entry -> {
+            PatientRiskDTO patientRisk = new PatientRiskDTO();
+            patientRisk.setFirstName(entry.getKey().firstName());
+            patientRisk.setLastName(entry.getKey().lastName());
+            patientRisk.setRisk(entry.getValue());
+            return patientRisk;
+        }).toList());
+        response.setNotFound(patients.stream()
+                .distinct()
+                .filter(patient -> !riskInfo.containsKey(patient))
+                .map(patient -> new PatientKeyDTO(patient.firstName(), patient.lastName()))
+                .toList());
+        logger.info("Retrieved risk info of {} patients, {} not found", response.getPatients().size(), response.getNotFound().size());
+        return response;
+    }
+
+    /**
+     * Retrieves the size and hit statistics of the cache serving single patient lookups.
+     *
+     * @return the statistics of the lookups by identifier and by name
+     */
+    @GetMapping("/cache/stats")
+    public PatientCacheStatsDTO getCacheStats() {
+        return patientService.cacheStats();
+    }
+
     /**
      * Handles the creation of a new patient and saves it to the database.
      *
@@ -100,6 +322,28 @@ public class PatientController {
         return savedPatient;
     }
 
+    /**
+     * Registers several patients in a single call. Patients whose name is already used by an
+     * active patient, or appears earlier in the request, are not registered and are listed
+     * under {@code duplicates}.
+     * <p>
+     * Patients are committed in chunks. If the registration stops early, the chunks already
+     * committed stay registered and a 207 Multi-Status is returned, reporting the number of
+     * patients at the end of the request that were not processed.
+     *
+     * @param request the patients to register, at most {@value BulkRegistrationRequestDTO#MAX_PATIENTS}
+     * @return the number of patients registered, the names of the duplicates and, if the
+     * registration stopped early, the number of patients not processed and the reason
+     */
+    @PostMapping("/bulk")
+    public ResponseEntity<BulkRegistrationDTO> createPatients(@RequestBody @Validated({Default.class, ValidationGroups.Create.class}) BulkRegistrationRequestDTO request) {
+        logger.debug("Received request to create {} patients", request.getPatients().size());
+        BulkRegistrationDTO result = patientService.registerPatients(request.getPatients());
+        logger.info("Created {} patients, {} duplicates, {} not processed", result.getRegistered(), result.getDuplicates().size(),
+                result.getNotProcessed());
+        return ResponseEntity.status(result.getNotProcessed() == 0 ? HttpStatus.OK : HttpStatus.MULTI_STATUS).body(result);
+    }
+
     /**
      * Updates the details of an existing patient.
      * <p>
@@ -0,0 +1,38 @@
+package dev.nikkune.mspatient.controller;
+
+import dev.nikkune.mspatient.dto.DemographicsDTO;
+import dev.nikkune.mspatient.service.IPatientDemographicsService;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * PatientDemographicsController exposes statistics of the active patients, computed by the
+ * database, so that reports do not have to retrieve and aggregate every patient.
+ */
+@RestController
+@RequestMapping("/demographics")
+public class PatientDemographicsController {
+    private static final Logger logger = LogManager.getLogger(PatientDemographicsController.class);
+    private final IPatientDemographicsService demographicsService;
+
+    public PatientDemographicsController(IPatientDemographicsService demographicsService) {
+        this.demographicsService = demographicsService;
+    }
+
+    /**
+     * Retrieves the number of active patients by gender and by age bucket. The statistics may be
+     * up to a minute old.
+     *
+     * @return the demographic statistics of the active patients
+     */
+    @GetMapping
+    public DemographicsDTO getDemographics() {
+        logger.debug("Received request to get patient demographics");
+        DemographicsDTO demographics = demographicsService.getDemographics();
+        logger.debug("Retrieved demographics of {} patients", demographics.getTotal());
+        return demographics;
+    }
+}
@@ -0,0 +1,63 @@
+package dev.nikkune.mspatient.controller;
+
+import dev.nikkune.mspatient.dto.PatientEventDTO;
+import dev.nikkune.mspatient.dto.PatientEventHeadDTO;
+import dev.nikkune.mspatient.service.IPatientEventService;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.http.ResponseEntity;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+/**
+ * PatientEventController exposes the patient change outbox so that other services
+ * can poll it and maintain a local view of the active patients.
+ */
+@RestController
+@RequestMapping("/events")
+@Validated
+public class PatientEventController {
+    public static final String EPOCH_HEADER = "X-Event-Epoch";
+    private static final Logger logger = LogManager.getLogger(PatientEventController.class);
+    private final IPatientEventService patientEventService;
+
+    public PatientEventController(IPatientEventService patientEventService) {
+        this.patientEventService = patientEventService;
+    }
+
+    /**
+     * Retrieves the patient events published after the given event id, oldest first. The epoch
+     * of the outbox is returned in the {@value #EPOCH_HEADER} header.
+     *
+     * @param after the id of the last event already consumed, 0 to start from the beginning
+     * @param limit the maximum number of events to return
+     * @return the next events in publication order
+     */
+    @GetMapping
+    public ResponseEntity<List<PatientEventDTO>> getEvents(@RequestParam(defaultValue = "0") @Min(0) long after,
+                                           @RequestParam(defaultValue = "500") @Min(1) @Max(1000) int limit) {
+        logger.debug("Received request to get patient events after {}", after);
+        List<PatientEventDTO> events = patientEventService.findAfter(after, limit);
+        logger.debug("Retrieved {} patient events after {}", events.size(), after);
+        return ResponseEntity.ok()
+                .header(EPOCH_HEADER, patientEventService.epoch())
+                .body(events);
+    }
+
+    /**
+     * Retrieves the epoch of the outbox and the id of its most recent event.
+     *
+     * @return the head of the outbox
+     */
+    @GetMapping("/head")
+    public PatientEventHeadDTO getHead() {
+        return patientEventService.head();
+    }
+}
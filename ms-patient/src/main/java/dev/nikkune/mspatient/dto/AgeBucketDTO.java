@@ -0,0 +1,13 @@
+package dev.nikkune.mspatient.dto;
+
+import lombok.Data;
+
+import java.util.Map;
+
+@Data
+public class AgeBucketDTO {
+    private int minAge;
+    private Integer maxAge;
+    private long total;
+    private Map<String, Long> byGender;
+}
@@ -0,0 +1,20 @@
+package dev.nikkune.mspatient.dto;
+
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class BulkRegistrationDTO {
+    private int registered;
+    private List<PatientKeyDTO> duplicates;
+    /**
+     * Number of patients at the end of the request that were not processed because the
+     * registration stopped early, 0 when every patient was processed.
+     */
+    private int notProcessed;
+    /**
+     * Why the registration stopped early, null when every patient was processed.
+     */
+    private String error;
+}
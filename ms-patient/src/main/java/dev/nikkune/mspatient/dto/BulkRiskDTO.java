@@ -0,0 +1,11 @@
+package dev.nikkune.mspatient.dto;
+
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class BulkRiskDTO {
+    private List<PatientRiskDTO> patients;
+    private List<PatientKeyDTO> notFound;
+}
@@ -0,0 +1,13 @@
+package dev.nikkune.mspatient.dto;
+
+import lombok.Data;
+
+@Data
+public class CacheStatsDTO {
+    private long size;
+    private long hitCount;
+    private long missCount;
+    private double hitRate;
+    private long loadCount;
+    private long evictionCount;
+}
@@ -0,0 +1,15 @@
+package dev.nikkune.mspatient.dto;
+
+import lombok.Data;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+@Data
+public class DemographicsDTO {
+    private LocalDate asOf;
+    private long total;
+    private Map<String, Long> byGender;
+    private List<AgeBucketDTO> ageBuckets;
+}
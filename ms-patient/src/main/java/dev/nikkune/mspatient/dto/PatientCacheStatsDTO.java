@@ -0,0 +1,9 @@
+package dev.nikkune.mspatient.dto;
+
+import lombok.Data;
+
+@Data
+public class PatientCacheStatsDTO {
+    private CacheStatsDTO byId;
+    private CacheStatsDTO byName;
+}
@@ -37,6 +37,17 @@ import java.util.Date;
  */
 @Data
 public class PatientDTO {
+    /**
+     * Identifier of the patient. Only ever set in responses; ignored when creating or updating a patient.
+     */
+    private Integer id;
+
+    /**
+     * Version of the patient, set in responses and ignored when creating a patient. When given in an
+     * update, the update is rejected if the patient has changed since this version was read.
+     */
+    private Integer version;
+
     @NotBlank(message = "Last name must be provided")
     @Size(min = 3, max = 100)
     private String lastName;
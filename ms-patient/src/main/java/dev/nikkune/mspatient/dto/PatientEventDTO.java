@@ -0,0 +1,16 @@
+package dev.nikkune.mspatient.dto;
+
+import dev.nikkune.mspatient.model.PatientEventType;
+import lombok.Data;
+
+import java.util.Date;
+
+@Data
+public class PatientEventDTO {
+    private Long id;
+    private PatientEventType type;
+    private Integer patientId;
+    private String lastName;
+    private String firstName;
+    private Date createdAt;
+}
@@ -0,0 +1,9 @@
+package dev.nikkune.mspatient.dto;
+
+import lombok.Data;
+
+@Data
+public class PatientEventHeadDTO {
+    private String epoch;
+    private long lastId;
+}
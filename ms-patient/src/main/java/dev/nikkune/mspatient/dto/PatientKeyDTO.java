@@ -0,0 +1,16 @@
+package dev.nikkune.mspatient.dto;
+
+import jakarta.validation.constraints.NotBlank;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PatientKeyDTO {
+    @NotBlank
+    private String firstName;
+    @NotBlank
+    private String lastName;
+}
@@ -0,0 +1,21 @@
+package dev.nikkune.mspatient.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * One page of active patients, read in identifier order.
+ * <p>
+ * The next page is requested with {@code after} set to {@code nextAfter}; a null
+ * {@code nextAfter} means this is the last page. {@code totalElements} is only present
+ * when the count was requested.
+ */
+@Data
+public class PatientPageDTO {
+    private List<PatientDTO> content;
+    private Integer nextAfter;
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Long totalElements;
+}
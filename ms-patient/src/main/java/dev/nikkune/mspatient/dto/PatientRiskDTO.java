@@ -0,0 +1,13 @@
+package dev.nikkune.mspatient.dto;
+
+import lombok.Data;
+
+/**
+ * Risk information of one patient in a bulk response, together with the name it was requested by.
+ */
+@Data
+public class PatientRiskDTO {
+    private String firstName;
+    private String lastName;
+    private RiskDTO risk;
+}
@@ -0,0 +1,14 @@
+package dev.nikkune.mspatient.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PatientSuggestionDTO {
+    private Integer id;
+    private String firstName;
+    private String lastName;
+}
@@ -5,6 +5,7 @@ import jakarta.validation.ConstraintViolationException;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.springframework.context.annotation.Import;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.FieldError;
@@ -59,6 +60,26 @@ public class GlobalExceptionHandler {
         return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
     }
 
+    /**
+     * Handles OptimisticLockingFailureExceptions, raised when a patient is updated from a version
+     * that is no longer current, by returning a 409 Conflict status.
+     *
+     * @param e the OptimisticLockingFailureException to handle
+     * @return a ResponseEntity with a 409 status and the exception message
+     */
+    @ExceptionHandler(OptimisticLockingFailureException.class)
+    public ResponseEntity<Map<String, Object>> handleOptimisticLockingFailure(OptimisticLockingFailureException e) {
+        logger.error(e.getMessage());
+
+        // Create response
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", false);
+        response.put("message", "Conflict");
+        response.put("error", e.getMessage());
+
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(response);
+    }
+
     /**
      * Handle MethodArgumentNotValidException exceptions by returning a
      * ResponseEntity containing a map of errors.
@@ -1,9 +1,13 @@
 package dev.nikkune.mspatient.mapper;
 
 import dev.nikkune.mspatient.dto.PatientDTO;
+import dev.nikkune.mspatient.dto.PatientEventDTO;
 import dev.nikkune.mspatient.dto.RiskDTO;
 import dev.nikkune.mspatient.model.Patient;
+import dev.nikkune.mspatient.model.PatientEvent;
+import dev.nikkune.mspatient.model.PatientRiskView;
 import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
 import org.mapstruct.MappingTarget;
 import org.mapstruct.NullValuePropertyMappingStrategy;
 
@@ -23,12 +27,21 @@ public interface PatientMapper {
      * @param patientDTO the data transfer object containing patient details to be mapped to a Patient entity
      * @return a {@link Patient} entity containing the mapped properties of the given {@link PatientDTO}
      */
+    @Mapping(target = "id", ignore = true)
+    @Mapping(target = "activeName", ignore = true)
+    @Mapping(target = "version", ignore = true)
     Patient toPatient(PatientDTO patientDTO);
 
     PatientDTO toDTO(Patient patient);
 
     RiskDTO toRiskDTO(Patient patient);
 
+    RiskDTO toRiskDTO(PatientRiskView view);
+
+    RiskDTO toRiskDTO(PatientDTO patient);
+
+    PatientEventDTO toEventDTO(PatientEvent event);
+
     /**
      * Updates the fields of an existing Patient entity with the provided
      * data from the PatientDTO. Only non-null fields from the PatientDTO
@@ -37,5 +50,8 @@ public interface PatientMapper {
      * @param patientDTO the data transfer object containing the updated patient details
      * @param patient    the target Patient entity to be updated
      */
+    @Mapping(target = "id", ignore = true)
+    @Mapping(target = "activeName", ignore = true)
+    @Mapping(target = "version", ignore = true)
     void updatePatient(PatientDTO patientDTO, @MappingTarget Patient patient);
 }
@@ -0,0 +1,13 @@
+package dev.nikkune.mspatient.model;
+
+/**
+ * Read-only projection of one group of an aggregation of the active patients: how many
+ * patients of a gender fall in an age bucket.
+ */
+public interface DemographicCount {
+    String getGender();
+
+    Integer getAgeBucket();
+
+    Long getPatients();
+}
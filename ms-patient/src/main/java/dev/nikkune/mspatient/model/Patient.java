@@ -11,13 +11,37 @@ import java.util.Date;
  * A Patient object contains personal information including name, birth date,
  * gender, contact details, and other relevant attributes for identifying and managing
  * patients in a healthcare or related system.
+ * <p>
+ * Lookups by name go through the {@code idx_patient_name_active} index. At most one active
+ * patient may carry a given name: {@code activeName} is true for active rows and null for
+ * inactive ones, so the unique index on it ignores deleted patients. Searches by gender and
+ * birth date range use {@code idx_patient_active_gender_birth_date} and {@code idx_patient_birth_date};
+ * the former also covers the demographic aggregation, which reads no table row.
+ * <p>
+ * Identifiers come from the {@code patient_seq} sequence, {@value #ID_ALLOCATION_SIZE} at a
+ * time, so they are known before the insert and Hibernate can send inserts as JDBC batches.
+ * The sequence starts after the identifiers used by {@code data.sql}.
+ * <p>
+ * {@code version} is checked and incremented by Hibernate when a loaded patient is saved, and
+ * incremented by the bulk update queries of {@link dev.nikkune.mspatient.repository.PatientRepository},
+ * so a change made since a patient was read is detected in both cases.
  */
 @Data
 @Entity
-@Table(name = "patient")
+@Table(name = "patient",
+        indexes = {
+                @Index(name = "idx_patient_name_active", columnList = "last_name, first_name, active"),
+                @Index(name = "idx_patient_active_gender_birth_date", columnList = "active, gender, birth_date"),
+                @Index(name = "idx_patient_birth_date", columnList = "birth_date")
+        },
+        uniqueConstraints = @UniqueConstraint(name = Patient.UNIQUE_ACTIVE_NAME, columnNames = {"last_name", "first_name", "active_name"}))
 public class Patient {
+    public static final String UNIQUE_ACTIVE_NAME = "uk_patient_active_name";
+    public static final int ID_ALLOCATION_SIZE = 50;
+
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "patient_seq")
+    @SequenceGenerator(name = "patient_seq", sequenceName = "patient_seq", initialValue = 100, allocationSize = ID_ALLOCATION_SIZE)
     private Integer id;
 
     @Column(nullable = false)
@@ -40,4 +64,15 @@ public class Patient {
 
     @Column(nullable = false, columnDefinition = "boolean default true")
     private Boolean active;
+
+    @Version
+    @Column(nullable = false, columnDefinition = "integer default 0")
+    private Integer version;
+
+    /**
+     * Computed by the database from {@code active}; never written by the application.
+     */
+    @Column(insertable = false, updatable = false,
+            columnDefinition = "boolean generated always as (case when active then true end)")
+    private Boolean activeName;
 }
\ No newline at end of file
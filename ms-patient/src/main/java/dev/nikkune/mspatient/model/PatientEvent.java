@@ -0,0 +1,38 @@
+package dev.nikkune.mspatient.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.util.Date;
+
+/**
+ * Represents a change made to a patient, stored in an outbox table.
+ * <p>
+ * Events are written in the same transaction as the patient change they describe and
+ * are read in id order by the other services, which keep their own view of the
+ * active patients up to date from them.
+ */
+@Data
+@Entity
+@Table(name = "patient_event")
+public class PatientEvent {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private PatientEventType type;
+
+    @Column(nullable = false)
+    private Integer patientId;
+
+    @Column(nullable = false)
+    private String lastName;
+
+    @Column(nullable = false)
+    private String firstName;
+
+    @Column(nullable = false)
+    private Date createdAt;
+}
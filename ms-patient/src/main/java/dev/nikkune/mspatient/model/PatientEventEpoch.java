@@ -0,0 +1,26 @@
+package dev.nikkune.mspatient.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.Data;
+
+/**
+ * The single row identifying the current lifetime of the {@link PatientEvent} outbox.
+ * <p>
+ * The row is created with the outbox table and shared by every instance of the service, so
+ * they all report the same epoch. It is recreated, with a new epoch, whenever the outbox is.
+ */
+@Data
+@Entity
+@Table(name = "patient_event_epoch")
+public class PatientEventEpoch {
+    public static final int ID = 1;
+
+    @Id
+    private Integer id;
+
+    @Column(nullable = false)
+    private String epoch;
+}
@@ -0,0 +1,10 @@
+package dev.nikkune.mspatient.model;
+
+/**
+ * Kinds of change published for a patient through the {@link PatientEvent} outbox.
+ */
+public enum PatientEventType {
+    CREATED,
+    UPDATED,
+    DELETED
+}
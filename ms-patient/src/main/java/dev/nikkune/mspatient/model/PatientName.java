@@ -0,0 +1,33 @@
+package dev.nikkune.mspatient.model;
+
+import java.text.Normalizer;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * First and last name identifying an active patient.
+ *
+ * @param firstName the first name of the patient
+ * @param lastName  the last name of the patient
+ */
+public record PatientName(String firstName, String lastName) {
+    private static final Pattern MARKS = Pattern.compile("\\p{M}");
+
+    /**
+     * Returns this name as the database compares names. The name columns use a case and accent
+     * insensitive collation, so the unique index and the lookups by name treat
+     * {@code Hélène Martin} and {@code helene MARTIN} as the same patient; so do the keys returned here.
+     *
+     * @return the name without accents, in lower case
+     */
+    public PatientName collationKey() {
+        return new PatientName(fold(firstName), fold(lastName));
+    }
+
+    private static String fold(String name) {
+        if (name == null) {
+            return null;
+        }
+        return MARKS.matcher(Normalizer.normalize(name, Normalizer.Form.NFD)).replaceAll("").toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,18 @@
+package dev.nikkune.mspatient.model;
+
+import java.util.Date;
+
+/**
+ * Read-only projection of a patient on the columns needed to compute a risk level, along with
+ * the name used to match it to a request. Queries returning it select only these columns and
+ * do not load a managed {@link Patient}.
+ */
+public interface PatientRiskView {
+    String getFirstName();
+
+    String getLastName();
+
+    Date getBirthDate();
+
+    String getGender();
+}
@@ -0,0 +1,17 @@
+package dev.nikkune.mspatient.model;
+
+import java.util.Date;
+
+/**
+ * Optional filters of a patient search. Null or blank values do not filter.
+ *
+ * @param lastName  a prefix of the last name
+ * @param firstName a prefix of the first name
+ * @param gender    the gender
+ * @param bornFrom  the earliest birth date, inclusive
+ * @param bornTo    the latest birth date, inclusive
+ * @param active    whether to search the active or the deleted patients
+ */
+public record PatientSearchCriteria(String lastName, String firstName, String gender, Date bornFrom, Date bornTo,
+                                    boolean active) {
+}
@@ -0,0 +1,36 @@
+package dev.nikkune.mspatient.repository;
+
+import dev.nikkune.mspatient.model.PatientEventEpoch;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Optional;
+
+/**
+ * Repository interface for the epoch of the {@link dev.nikkune.mspatient.model.PatientEvent} outbox.
+ */
+public interface PatientEventEpochRepository extends JpaRepository<PatientEventEpoch, Integer> {
+    /**
+     * Reads the epoch of the outbox.
+     *
+     * @return the epoch, or empty if it has not been created yet
+     */
+    @Query("select e.epoch from PatientEventEpoch e where e.id = " + PatientEventEpoch.ID)
+    Optional<String> findEpoch();
+
+    /**
+     * Creates the epoch of the outbox unless an instance has already created it. Instances starting
+     * together do not fail on each other's row.
+     *
+     * @param epoch the epoch to store if there is none yet
+     * @return 1 if the epoch was created, 0 if it already existed
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "insert ignore into patient_event_epoch (id, epoch) values (" + PatientEventEpoch.ID + ", :epoch)",
+            nativeQuery = true)
+    int insertIfAbsent(@Param("epoch") String epoch);
+}
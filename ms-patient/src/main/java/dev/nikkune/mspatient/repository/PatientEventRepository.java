@@ -0,0 +1,47 @@
+package dev.nikkune.mspatient.repository;
+
+import dev.nikkune.mspatient.model.PatientEvent;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Repository interface for reading and writing {@link PatientEvent} outbox entries.
+ */
+public interface PatientEventRepository extends JpaRepository<PatientEvent, Long> {
+    /**
+     * Retrieves the events published after the given event id, oldest first.
+     *
+     * @param id    the id of the last event already consumed
+     * @param limit the maximum number of events to return
+     * @return the next events in publication order
+     */
+    List<PatientEvent> findByIdGreaterThanOrderByIdAsc(Long id, Limit limit);
+
+    /**
+     * Reads the id of the most recent event.
+     *
+     * @return the highest event id, 0 if no event was published yet
+     */
+    @Query("select coalesce(max(e.id), 0) from PatientEvent e")
+    long findLastId();
+
+    /**
+     * Appends one event per given patient, in patient id order, with a single statement. The
+     * patients must already be flushed to the database.
+     *
+     * @param type       the kind of change, as stored in the {@code type} column
+     * @param patientIds the ids of the changed patients
+     * @return the number of events written
+     */
+    @Modifying
+    @Query(value = "insert into patient_event (type, patient_id, last_name, first_name, created_at) "
+            + "select :type, id, last_name, first_name, current_timestamp from patient where id in (:patientIds) order by id",
+            nativeQuery = true)
+    int insertForPatients(@Param("type") String type, @Param("patientIds") Collection<Integer> patientIds);
+}
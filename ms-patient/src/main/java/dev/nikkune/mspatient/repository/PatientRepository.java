@@ -1,10 +1,24 @@
 package dev.nikkune.mspatient.repository;
 
+import dev.nikkune.mspatient.model.DemographicCount;
 import dev.nikkune.mspatient.model.Patient;
+import dev.nikkune.mspatient.model.PatientName;
+import dev.nikkune.mspatient.model.PatientRiskView;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
+import java.util.Date;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 /**
  * Repository interface for performing CRUD and custom operations on {@link Patient} entities.
@@ -13,7 +27,121 @@ import java.util.List;
  * and {@link JpaSpecificationExecutor} for executing specification-based queries.
  */
 public interface PatientRepository extends JpaRepository<Patient, Integer>, JpaSpecificationExecutor<Patient> {
-    List<Patient> findAllByActiveTrue();
+    int EXPORT_FETCH_SIZE = 1000;
 
-    Patient findByFirstNameAndLastNameAndActiveTrue(String firstName, String lastName);
+    /**
+     * Retrieves the active patients whose id is greater than the given one, in id order.
+     *
+     * @param id    the id of the last patient already read
+     * @param limit the maximum number of patients to return
+     * @return the next active patients in id order
+     */
+    List<Patient> findByActiveTrueAndIdGreaterThanOrderByIdAsc(Integer id, Limit limit);
+
+    long countByActiveTrue();
+
+    /**
+     * Retrieves the name, birth date and gender of the active patients whose last name and first
+     * name are each in the given sets, without loading the entities. The result may contain name combinations that were not
+     * asked for and must be filtered by the caller.
+     *
+     * @param lastNames  the last names to look for
+     * @param firstNames the first names to look for
+     * @return the matching active patients, projected on their risk columns
+     */
+    @Query("select p.firstName as firstName, p.lastName as lastName, p.birthDate as birthDate, p.gender as gender "
+            + "from Patient p where p.active = true and p.lastName in :lastNames and p.firstName in :firstNames")
+    List<PatientRiskView> findRiskViewsByActiveTrueAndLastNameInAndFirstNameIn(@Param("lastNames") Collection<String> lastNames,
+                                                                             @Param("firstNames") Collection<String> firstNames);
+
+    /**
+     * Retrieves the names of the active patients whose last name and first name are each in the
+     * given sets. The result may contain name combinations that were not asked for and must be
+     * filtered by the caller.
+     *
+     * @param lastNames  the last names to look for
+     * @param firstNames the first names to look for
+     * @return the names of the matching active patients
+     */
+    @Query("select new dev.nikkune.mspatient.model.PatientName(p.firstName, p.lastName) from Patient p "
+            + "where p.active = true and p.lastName in :lastNames and p.firstName in :firstNames")
+    List<PatientName> findActiveNames(@Param("lastNames") Collection<String> lastNames, @Param("firstNames") Collection<String> firstNames);
+
+    /**
+     * Probes for an active patient by name, reading only their identifier.
+     *
+     * @param firstName the first name of the patient
+     * @param lastName  the last name of the patient
+     * @return the identifier of the patient, or empty if no active patient has this name
+     */
+    @Query("select p.id from Patient p where p.firstName = :firstName and p.lastName = :lastName and p.active = true")
+    Optional<Integer> findActiveId(@Param("firstName") String firstName, @Param("lastName") String lastName);
+
+    /**
+     * Streams every active patient in id order. Rows are fetched from the database
+     * {@value #EXPORT_FETCH_SIZE} at a time rather than all at once; with MySQL this needs
+     * {@code useCursorFetch=true} on the connection URL. The stream must be consumed and
+     * closed inside a transaction.
+     *
+     * @return a stream of the active patients
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "" + EXPORT_FETCH_SIZE))
+    @Query("select p from Patient p where p.active = true order by p.id")
+    Stream<Patient> streamAllActive();
+
+    /**
+     * Counts the active patients by gender and age bucket. Each limit is the birth date of the
+     * patients turning the corresponding age today: bucket 0 holds the patients born after
+     * {@code limit0}, bucket 1 those born after {@code limit1} but not after {@code limit0}, and so
+     * on up to bucket 5, which holds the patients born on or before {@code limit4}.
+     *
+     * @return the non-empty groups, one per gender and age bucket
+     */
+    @Query("select p.gender as gender, "
+            + "case when p.birthDate > :limit0 then 0 when p.birthDate > :limit1 then 1 when p.birthDate > :limit2 then 2 "
+            + "when p.birthDate > :limit3 then 3 when p.birthDate > :limit4 then 4 else 5 end as ageBucket, "
+            + "count(p) as patients "
+            + "from Patient p where p.active = true group by p.gender, ageBucket")
+    List<DemographicCount> countActiveByGenderAndAgeBucket(@Param("limit0") Date limit0, @Param("limit1") Date limit1,
+                                                           @Param("limit2") Date limit2, @Param("limit3") Date limit3,
+                                                           @Param("limit4") Date limit4);
+
+    /**
+     * Overwrites, in a single statement, the given non-null fields of an active patient and increments
+     * their version. Fields passed as null keep their current value.
+     *
+     * @param firstName the first name of the patient
+     * @param lastName  the last name of the patient
+     * @return the number of patients updated, 0 if no active patient has this name
+     */
+    @Modifying(clearAutomatically = true)
+    @Query("update Patient p set p.birthDate = coalesce(:birthDate, p.birthDate), p.gender = coalesce(:gender, p.gender), "
+            + "p.address = coalesce(:address, p.address), p.phoneNumber = coalesce(:phoneNumber, p.phoneNumber), "
+            + "p.version = p.version + 1 "
+            + "where p.firstName = :firstName and p.lastName = :lastName and p.active = true")
+    int patchActive(@Param("firstName") String firstName, @Param("lastName") String lastName,
+                    @Param("birthDate") Date birthDate, @Param("gender") String gender,
+                    @Param("address") String address, @Param("phoneNumber") String phoneNumber);
+
+    /**
+     * Marks an active patient as deleted, in a single statement, and increments their version.
+     *
+     * @param id the identifier of the patient
+     * @return the number of patients deleted, 0 if the patient does not exist or is already deleted
+     */
+    @Modifying(clearAutomatically = true)
+    @Query("update Patient p set p.active = false, p.version = p.version + 1 where p.id = :id and p.active = true")
+    int deactivate(@Param("id") Integer id);
+
+    /**
+     * Retrieves the active patient with the given name. The query is declared rather than derived
+     * from the method name: Spring Data builds a new criteria query for every call of a derived
+     * query, which costs more than the lookup itself.
+     *
+     * @param firstName the first name of the patient
+     * @param lastName  the last name of the patient
+     * @return the active patient, or null if no active patient has this name
+     */
+    @Query("select p from Patient p where p.firstName = :firstName and p.lastName = :lastName and p.active = true")
+    Patient findByFirstNameAndLastNameAndActiveTrue(@Param("firstName") String firstName, @Param("lastName") String lastName);
 }
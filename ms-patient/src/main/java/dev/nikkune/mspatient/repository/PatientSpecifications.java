@@ -0,0 +1,77 @@
+package dev.nikkune.mspatient.repository;
+
+import dev.nikkune.mspatient.model.Patient;
+import dev.nikkune.mspatient.model.PatientSearchCriteria;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.util.StringUtils;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Factory of the {@link Specification}s used to search patients through
+ * {@link PatientRepository}.
+ * <p>
+ * Every filter is a plain comparison on a column, so the database can serve it from an index:
+ * name prefixes become {@code LIKE 'prefix%'} on {@code idx_patient_name_active}, and gender and
+ * birth date ranges use {@code idx_patient_active_gender_birth_date} or {@code idx_patient_birth_date}.
+ */
+public final class PatientSpecifications {
+    private static final char LIKE_ESCAPE = '\\';
+
+    private PatientSpecifications() {
+    }
+
+    /**
+     * Combines the filters set in the given criteria.
+     *
+     * @param criteria the search criteria
+     * @return a specification matching the patients satisfying every filter that is set
+     */
+    public static Specification<Patient> matching(PatientSearchCriteria criteria) {
+        List<Specification<Patient>> filters = new ArrayList<>();
+        filters.add(isActive(criteria.active()));
+        if (StringUtils.hasText(criteria.lastName())) {
+            filters.add(startsWith("lastName", criteria.lastName()));
+        }
+        if (StringUtils.hasText(criteria.firstName())) {
+            filters.add(startsWith("firstName", criteria.firstName()));
+        }
+        if (StringUtils.hasText(criteria.gender())) {
+            filters.add(hasGender(criteria.gender()));
+        }
+        if (criteria.bornFrom() != null) {
+            filters.add(bornOnOrAfter(criteria.bornFrom()));
+        }
+        if (criteria.bornTo() != null) {
+            filters.add(bornOnOrBefore(criteria.bornTo()));
+        }
+        return Specification.allOf(filters);
+    }
+
+    public static Specification<Patient> isActive(boolean active) {
+        return (root, query, cb) -> cb.equal(root.get("active"), active);
+    }
+
+    public static Specification<Patient> hasGender(String gender) {
+        return (root, query, cb) -> cb.equal(root.get("gender"), gender);
+    }
+
+    public static Specification<Patient> bornOnOrAfter(Date date) {
+        return (root, query, cb) -> cb.greaterThanOrEqualTo(root.get("birthDate"), date);
+    }
+
+    public static Specification<Patient> bornOnOrBefore(Date date) {
+        return (root, query, cb) -> cb.lessThanOrEqualTo(root.get("birthDate"), date);
+    }
+
+    public static Specification<Patient> idGreaterThan(Integer id) {
+        return (root, query, cb) -> cb.greaterThan(root.get("id"), id);
+    }
+
+    private static Specification<Patient> startsWith(String attribute, String prefix) {
+        String pattern = prefix.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_") + "%";
+        return (root, query, cb) -> cb.like(root.get(attribute), pattern, LIKE_ESCAPE);
+    }
+}
@@ -0,0 +1,7 @@
+package dev.nikkune.mspatient.service;
+
+import dev.nikkune.mspatient.dto.DemographicsDTO;
+
+public interface IPatientDemographicsService {
+    DemographicsDTO getDemographics();
+}
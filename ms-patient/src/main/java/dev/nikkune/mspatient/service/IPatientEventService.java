@@ -0,0 +1,21 @@
+package dev.nikkune.mspatient.service;
+
+import dev.nikkune.mspatient.dto.PatientEventDTO;
+import dev.nikkune.mspatient.dto.PatientEventHeadDTO;
+import dev.nikkune.mspatient.model.Patient;
+import dev.nikkune.mspatient.model.PatientEventType;
+
+import java.util.Collection;
+import java.util.List;
+
+public interface IPatientEventService {
+    void record(PatientEventType type, Patient patient);
+
+    void recordAll(PatientEventType type, Collection<Integer> patientIds);
+
+    List<PatientEventDTO> findAfter(long after, int limit);
+
+    String epoch();
+
+    PatientEventHeadDTO head();
+}
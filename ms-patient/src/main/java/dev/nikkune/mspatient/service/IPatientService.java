@@ -1,22 +1,45 @@
 package dev.nikkune.mspatient.service;
 
+import dev.nikkune.mspatient.dto.BulkRegistrationDTO;
+import dev.nikkune.mspatient.dto.PatientCacheStatsDTO;
 import dev.nikkune.mspatient.dto.PatientDTO;
+import dev.nikkune.mspatient.dto.PatientPageDTO;
+import dev.nikkune.mspatient.dto.PatientSuggestionDTO;
 import dev.nikkune.mspatient.dto.RiskDTO;
+import dev.nikkune.mspatient.model.PatientName;
+import dev.nikkune.mspatient.model.PatientSearchCriteria;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
 
 public interface IPatientService {
-    List<PatientDTO> findAll();
+    PatientPageDTO findPage(int after, int size, boolean count);
+
+    PatientPageDTO search(PatientSearchCriteria criteria, int after, int size, boolean count);
+
+    void exportActive(Consumer<PatientDTO> consumer);
 
     PatientDTO findById(Integer id);
 
+    List<PatientSuggestionDTO> suggest(String query, int limit);
+
     PatientDTO findByFirstNameAndLastName(String firstName, String lastName);
 
+    Integer findActiveId(String firstName, String lastName);
+
     RiskDTO getRiskInfo(String firstName, String lastName);
 
+    Map<PatientName, RiskDTO> getRiskInfo(Collection<PatientName> patients);
+
     PatientDTO registerPatient(PatientDTO patient);
 
+    BulkRegistrationDTO registerPatients(List<PatientDTO> patients);
+
     PatientDTO update(PatientDTO patientDTO);
 
     void delete(String firstName, String lastName);
+
+    PatientCacheStatsDTO cacheStats();
 }
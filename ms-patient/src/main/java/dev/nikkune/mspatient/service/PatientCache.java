@@ -0,0 +1,131 @@
+package dev.nikkune.mspatient.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import dev.nikkune.mspatient.dto.CacheStatsDTO;
+import dev.nikkune.mspatient.dto.PatientCacheStatsDTO;
+import dev.nikkune.mspatient.dto.PatientDTO;
+import dev.nikkune.mspatient.model.PatientName;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Bounded in-memory cache of active patients, looked up by identifier or by name.
+ * <p>
+ * Only active patients are cached; a lookup that finds nothing always goes to the database.
+ * Entries are evicted when the patient changes. When the change happens in a transaction, the
+ * eviction is repeated after the commit, so a read running concurrently with the transaction
+ * cannot leave the old state in the cache.
+ */
+@Component
+public class PatientCache {
+    private final Cache<Integer, PatientDTO> byId;
+    private final Cache<PatientName, PatientDTO> byName;
+
+    /**
+     * Constructs a PatientCache.
+     *
+     * @param maxSize the maximum number of patients kept in each cache. Defaults to 10000.
+     * @param ttl     how long a patient is cached after being loaded. Defaults to 10 minutes.
+     */
+    public PatientCache(@Value("${ms.patient.cache.max-size:10000}") long maxSize,
+                        @Value("${ms.patient.cache.ttl:PT10M}") Duration ttl) {
+        this.byId = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        this.byName = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * Returns the cached patient with the given identifier, loading it on a miss.
+     *
+     * @param id     the identifier of the patient
+     * @param loader loads the active patient, or returns null if there is none
+     * @return the patient, or null if the loader found none
+     */
+    public PatientDTO get(Integer id, Function<Integer, PatientDTO> loader) {
+        return byId.get(id, loader);
+    }
+
+    /**
+     * Returns the cached patient with the given name, loading it on a miss.
+     *
+     * @param name   the name of the patient
+     * @param loader loads the active patient, or returns null if there is none
+     * @return the patient, or null if the loader found none
+     */
+    public PatientDTO get(PatientName name, Supplier<PatientDTO> loader) {
+        return byName.get(name, key -> loader.get());
+    }
+
+    /**
+     * Returns the cached patient with the given name, without loading it on a miss.
+     *
+     * @param name the name of the patient
+     * @return the patient, or null if it is not cached
+     */
+    public PatientDTO getIfPresent(PatientName name) {
+        return byName.getIfPresent(name);
+    }
+
+    /**
+     * Removes a patient from the cache, and again after the current transaction commits if there is one.
+     *
+     * @param id   the identifier of the patient, may be null for a patient not yet saved
+     * @param name the name of the patient
+     */
+    public void evict(Integer id, PatientName name) {
+        Runnable eviction = () -> {
+            if (id != null) {
+                byId.invalidate(id);
+            }
+            byName.invalidate(name);
+        };
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    eviction.run();
+                }
+            });
+        }
+        eviction.run();
+    }
+
+    /**
+     * Returns a snapshot of the size and statistics (hits, misses, loads, evictions) of both caches.
+     *
+     * @return the current statistics of the lookups by identifier and by name
+     */
+    public PatientCacheStatsDTO stats() {
+        PatientCacheStatsDTO stats = new PatientCacheStatsDTO();
+        stats.setById(toDTO(byId));
+        stats.setByName(toDTO(byName));
+        return stats;
+    }
+
+    private static CacheStatsDTO toDTO(Cache<?, ?> cache) {
+        CacheStats stats = cache.stats();
+        CacheStatsDTO dto = new CacheStatsDTO();
+        dto.setSize(cache.estimatedSize());
+        dto.setHitCount(stats.hitCount());
+        dto.setMissCount(stats.missCount());
+        dto.setHitRate(stats.hitRate());
+        dto.setLoadCount(stats.loadCount());
+        dto.setEvictionCount(stats.evictionCount());
+        return dto;
+    }
+}
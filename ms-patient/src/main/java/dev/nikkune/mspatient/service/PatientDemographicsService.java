@@ -0,0 +1,99 @@
+package dev.nikkune.mspatient.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import dev.nikkune.mspatient.dto.AgeBucketDTO;
+import dev.nikkune.mspatient.dto.DemographicsDTO;
+import dev.nikkune.mspatient.model.DemographicCount;
+import dev.nikkune.mspatient.repository.PatientRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Service class computing demographic statistics of the active patients.
+ * <p>
+ * Patients are counted by gender and age bucket with a single {@code GROUP BY} query run by the
+ * database, which reads the {@code idx_patient_active_gender_birth_date} index only. Ages are
+ * compared through birth date limits computed for the current day, so the query needs no date
+ * arithmetic per row. The result is cached for a short time, per day.
+ */
+@Service
+public class PatientDemographicsService implements IPatientDemographicsService {
+    /**
+     * Lower bounds, in years, of the age buckets after the first one; they must match the
+     * buckets of {@link PatientRepository#countActiveByGenderAndAgeBucket}.
+     */
+    static final int[] AGE_BUCKET_LIMITS = {18, 30, 45, 60, 75};
+
+    private final PatientRepository patientRepository;
+    private final Cache<LocalDate, DemographicsDTO> demographics;
+
+    /**
+     * Constructs a PatientDemographicsService.
+     *
+     * @param patientRepository the repository the statistics are computed from
+     * @param ttl               how long computed statistics are served before being computed again. Defaults to 1 minute.
+     */
+    public PatientDemographicsService(PatientRepository patientRepository,
+                                      @Value("${ms.patient.demographics.ttl:PT1M}") Duration ttl) {
+        this.patientRepository = patientRepository;
+        this.demographics = Caffeine.newBuilder()
+                .maximumSize(2)
+                .expireAfterWrite(ttl)
+                .build();
+    }
+
+    /**
+     * Retrieves the number of active patients by gender and by age bucket, as of today.
+     *
+     * @return the demographic statistics, possibly computed up to the configured time to live ago
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public DemographicsDTO getDemographics() {
+        return demographics.get(LocalDate.now(), this::compute);
+    }
+
+    private DemographicsDTO compute(LocalDate today) {
+        Date[] limits = new Date[AGE_BUCKET_LIMITS.length];
+        for (int i = 0; i < limits.length; i++) {
+            limits[i] = Date.from(today.minusYears(AGE_BUCKET_LIMITS[i]).atStartOfDay(ZoneId.systemDefault()).toInstant());
+        }
+        List<DemographicCount> counts = patientRepository.countActiveByGenderAndAgeBucket(limits[0], limits[1], limits[2], limits[3], limits[4]);
+
+        List<AgeBucketDTO> buckets = new ArrayList<>();
+        for (int i = 0; i <= AGE_BUCKET_LIMITS.length; i++) {
+            AgeBucketDTO bucket = new AgeBucketDTO();
+            bucket.setMinAge(i == 0 ? 0 : AGE_BUCKET_LIMITS[i - 1]);
+            bucket.setMaxAge(i == AGE_BUCKET_LIMITS.length ? null : AGE_BUCKET_LIMITS[i] - 1);
+            bucket.setByGender(new TreeMap<>());
+            buckets.add(bucket);
+        }
+        Map<String, Long> byGender = new TreeMap<>();
+        long total = 0;
+        for (DemographicCount count : counts) {
+            AgeBucketDTO bucket = buckets.get(count.getAgeBucket());
+            bucket.getByGender().merge(count.getGender(), count.getPatients(), Long::sum);
+            bucket.setTotal(bucket.getTotal() + count.getPatients());
+            byGender.merge(count.getGender(), count.getPatients(), Long::sum);
+            total += count.getPatients();
+        }
+
+        DemographicsDTO result = new DemographicsDTO();
+        result.setAsOf(today);
+        result.setTotal(total);
+        result.setByGender(byGender);
+        result.setAgeBuckets(buckets);
+        return result;
+    }
+}
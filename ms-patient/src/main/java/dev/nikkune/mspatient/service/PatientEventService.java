@@ -0,0 +1,136 @@
+package dev.nikkune.mspatient.service;
+
+import dev.nikkune.mspatient.dto.PatientEventDTO;
+import dev.nikkune.mspatient.dto.PatientEventHeadDTO;
+import dev.nikkune.mspatient.mapper.PatientMapper;
+import dev.nikkune.mspatient.model.Patient;
+import dev.nikkune.mspatient.model.PatientEvent;
+import dev.nikkune.mspatient.model.PatientEventType;
+import dev.nikkune.mspatient.repository.PatientEventEpochRepository;
+import dev.nikkune.mspatient.repository.PatientEventRepository;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Service class responsible for the patient change outbox.
+ * <p>
+ * Events are recorded inside the transaction that modifies the patient, so an event is
+ * visible to consumers if and only if the change it describes has been committed.
+ * <p>
+ * Event ids come from an auto-increment column and are assigned at insert time, so events
+ * can become visible out of id order when transactions commit out of order; consumers must
+ * expect late events below ids they have already read. The outbox is also recreated with the
+ * schema when the service starts, which restarts its ids. Each lifetime of the outbox therefore has
+ * its own {@linkplain #epoch() epoch}, and consumers seeing another epoch must rebuild their view.
+ * The epoch is stored next to the outbox and created by the first instance to start on it, so
+ * every instance behind the gateway reports the same one.
+ */
+@Service
+public class PatientEventService implements IPatientEventService, SmartInitializingSingleton {
+
+    private final PatientEventRepository patientEventRepository;
+    private final PatientEventEpochRepository epochRepository;
+    private final PatientMapper mapper;
+
+    public PatientEventService(PatientEventRepository patientEventRepository, PatientEventEpochRepository epochRepository,
+                               PatientMapper mapper) {
+        this.patientEventRepository = patientEventRepository;
+        this.epochRepository = epochRepository;
+        this.mapper = mapper;
+    }
+
+    /**
+     * Creates the epoch of the outbox at startup, unless another instance already has.
+     */
+    @Override
+    public void afterSingletonsInstantiated() {
+        epochRepository.insertIfAbsent(UUID.randomUUID().toString());
+    }
+
+    /**
+     * Appends an event describing a change of the given patient to the outbox.
+     * Must be called from within the transaction performing the change.
+     *
+     * @param type    the kind of change
+     * @param patient the patient after the change
+     */
+    @Override
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void record(PatientEventType type, Patient patient) {
+        PatientEvent event = new PatientEvent();
+        event.setType(type);
+        event.setPatientId(patient.getId());
+        event.setFirstName(patient.getFirstName());
+        event.setLastName(patient.getLastName());
+        event.setCreatedAt(new Date());
+        patientEventRepository.save(event);
+    }
+
+    /**
+     * Appends an event of the same kind for each of the given patients to the outbox, with a
+     * single insert reading the names from the patient table. Used by bulk operations, which
+     * would otherwise pay one insert and one generated-key round trip per event, and by the
+     * update statements, which leave no loaded patient to build the event from.
+     * Must be called from within the transaction performing the changes, after they are flushed.
+     *
+     * @param type       the kind of change
+     * @param patientIds the ids of the changed patients
+     */
+    @Override
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordAll(PatientEventType type, Collection<Integer> patientIds) {
+        if (!patientIds.isEmpty()) {
+            patientEventRepository.insertForPatients(type.name(), patientIds);
+        }
+    }
+
+    /**
+     * Retrieves the events published after the given event id, oldest first.
+     *
+     * @param after the id of the last event already consumed, 0 to start from the beginning
+     * @param limit the maximum number of events to return
+     * @return the next events in publication order
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public List<PatientEventDTO> findAfter(long after, int limit) {
+        return patientEventRepository.findByIdGreaterThanOrderByIdAsc(after, Limit.of(limit)).stream()
+                .map(mapper::toEventDTO)
+                .toList();
+    }
+
+    /**
+     * Returns the identifier of the current lifetime of the outbox. Event ids of different
+     * epochs are unrelated.
+     *
+     * @return the epoch of the outbox
+     */
+    @Override
+    public String epoch() {
+        return epochRepository.findEpoch()
+                .orElseThrow(() -> new IllegalStateException("The patient event outbox has no epoch"));
+    }
+
+    /**
+     * Retrieves the epoch of the outbox and the id of its most recent event, which consumers
+     * read before taking a snapshot of the patients.
+     *
+     * @return the epoch and the last event id
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public PatientEventHeadDTO head() {
+        PatientEventHeadDTO head = new PatientEventHeadDTO();
+        head.setEpoch(epoch());
+        head.setLastId(patientEventRepository.findLastId());
+        return head;
+    }
+}
@@ -0,0 +1,330 @@
+package dev.nikkune.mspatient.service;
+
+import dev.nikkune.mspatient.dto.PatientSuggestionDTO;
+import dev.nikkune.mspatient.model.PatientName;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+/**
+ * In-memory trigram index of the names of the active patients, used for as-you-type search.
+ * <p>
+ * Names are lower-cased, stripped of accents and split into words. Each word is padded with two
+ * leading spaces and one trailing space and cut into trigrams, so that short prefixes and word
+ * boundaries have trigrams of their own. For each trigram, the index keeps the sorted
+ * identifiers of the patients whose name contains it in a primitive {@code int} array, and the
+ * names themselves in an array indexed by patient id. A search walks the sorted postings of the
+ * query trigrams side by side, {@value #WINDOW} consecutive identifiers at a time, counting hits
+ * per identifier of the window in a small per-thread array. The space a search needs is thus
+ * fixed, however high the identifiers go.
+ * <p>
+ * A query is cut the same way, except that its last word is treated as a prefix. Patients
+ * sharing at least a third of the query trigrams, and at least half as many as the best match,
+ * are returned, those sharing the most first and, among equals, the oldest patients first; the
+ * result is then listed by name. This tolerates a typo or two in longer names
+ * without listing every name that merely starts with the same letter.
+ * <p>
+ * Changes made in a transaction are applied after the commit, so a rolled back change never
+ * shows up in the index.
+ */
+@Component
+public class PatientNameIndex {
+    private static final Pattern MARKS = Pattern.compile("\\p{M}");
+    private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{N}]+");
+    private static final Comparator<Match> RANKING = Comparator.comparingInt(Match::shared).reversed()
+            .thenComparingInt(Match::id);
+    private static final Comparator<Match> DISPLAY_ORDER = Comparator.comparingInt(Match::shared).reversed()
+            .thenComparing(match -> match.name().lastName(), String.CASE_INSENSITIVE_ORDER)
+            .thenComparing(match -> match.name().firstName(), String.CASE_INSENSITIVE_ORDER)
+            .thenComparingInt(Match::id);
+
+    static final int WINDOW = 1 << 14;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<String, Postings> postings = new HashMap<>();
+    private final ThreadLocal<Scratch> scratch = ThreadLocal.withInitial(Scratch::new);
+    private PatientName[] names = new PatientName[0];
+    private int size;
+
+    /**
+     * Indexes the name of a patient, replacing the name indexed for them before if any.
+     * Applied after the current transaction commits if there is one.
+     *
+     * @param id   the identifier of the patient
+     * @param name the name of the patient
+     */
+    public void put(int id, PatientName name) {
+        putAll(Map.of(id, name));
+    }
+
+    /**
+     * Indexes the names of several patients, as {@link #put} does for one.
+     *
+     * @param patients the names of the patients, by identifier
+     */
+    public void putAll(Map<Integer, PatientName> patients) {
+        afterCommit(() -> {
+            lock.writeLock().lock();
+            try {
+                patients.forEach((id, name) -> {
+                    unindex(id);
+                    if (id >= names.length) {
+                        names = Arrays.copyOf(names, Math.max(id + 1, names.length + (names.length >> 1)));
+                    }
+                    names[id] = name;
+                    size++;
+                    for (String gram : trigrams(name.firstName() + " " + name.lastName(), false)) {
+                        postings.computeIfAbsent(gram, key -> new Postings()).add(id);
+                    }
+                });
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+    }
+
+    /**
+     * Removes a patient from the index. Applied after the current transaction commits if there is one.
+     *
+     * @param id the identifier of the patient
+     */
+    public void remove(int id) {
+        afterCommit(() -> {
+            lock.writeLock().lock();
+            try {
+                unindex(id);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+    }
+
+    /**
+     * Releases the spare capacity of the postings, typically once the index has been loaded.
+     */
+    public void compact() {
+        lock.writeLock().lock();
+        try {
+            postings.values().forEach(Postings::trim);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the number of patients in the index.
+     *
+     * @return the number of indexed patients
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Finds the patients whose name best matches the given text, typically what has been typed so far.
+     *
+     * @param query the text to match against the first and last names
+     * @param limit the maximum number of patients to return
+     * @return the best matching patients, best first; empty if the query has no letter or digit
+     */
+    public List<PatientSuggestionDTO> search(String query, int limit) {
+        Set<String> grams = trigrams(query, true);
+        if (grams.isEmpty()) {
+            return List.of();
+        }
+        int minShared = (grams.size() + 2) / 3;
+
+        PriorityQueue<Match> best = new PriorityQueue<>(limit + 1, RANKING.reversed());
+        lock.readLock().lock();
+        try {
+            List<Postings> lists = new ArrayList<>(grams.size());
+            for (String gram : grams) {
+                Postings list = postings.get(gram);
+                if (list != null) {
+                    lists.add(list);
+                }
+            }
+            int[] positions = new int[lists.size()];
+            Scratch scratch = this.scratch.get();
+            byte[] shared = scratch.shared;
+            int[] candidates = scratch.candidates;
+
+            // The best candidates are kept whatever their count; those sharing less than half as
+            // many trigrams as the best match are dropped once every count is known.
+            int mostShared = 0;
+            while (true) {
+                int start = Integer.MAX_VALUE;
+                for (int l = 0; l < positions.length; l++) {
+                    if (positions[l] < lists.get(l).size) {
+                        start = Math.min(start, lists.get(l).ids[positions[l]]);
+                    }
+                }
+                if (start == Integer.MAX_VALUE) {
+                    break;
+                }
+
+                int windowCandidates = 0;
+                for (int l = 0; l < positions.length; l++) {
+                    Postings list = lists.get(l);
+                    int position = positions[l];
+                    for (; position < list.size && list.ids[position] - start < WINDOW; position++) {
+                        int offset = list.ids[position] - start;
+                        if (shared[offset] == 0) {
+                            candidates[windowCandidates++] = offset;
+                        }
+                        if (shared[offset] < Byte.MAX_VALUE) {
+                            shared[offset]++;
+                        }
+                    }
+                    positions[l] = position;
+                }
+
+                for (int i = 0; i < windowCandidates; i++) {
+                    int offset = candidates[i];
+                    int count = shared[offset];
+                    shared[offset] = 0;
+                    if (count < minShared) {
+                        continue;
+                    }
+                    int id = start + offset;
+                    mostShared = Math.max(mostShared, count);
+                    Match worst = best.size() < limit ? null : best.peek();
+                    if (worst == null || count > worst.shared() || (count == worst.shared() && id < worst.id())) {
+                        best.add(new Match(id, count, names[id]));
+                        if (best.size() > limit) {
+                            best.poll();
+                        }
+                    }
+                }
+            }
+            int threshold = Math.max(minShared, (mostShared + 1) / 2);
+            best.removeIf(match -> match.shared() < threshold);
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        List<Match> matches = new ArrayList<>(best);
+        matches.sort(DISPLAY_ORDER);
+        return matches.stream()
+                .map(match -> new PatientSuggestionDTO(match.id(), match.name().firstName(), match.name().lastName()))
+                .toList();
+    }
+
+    private void unindex(int id) {
+        PatientName name = id < names.length ? names[id] : null;
+        if (name == null) {
+            return;
+        }
+        names[id] = null;
+        size--;
+        for (String gram : trigrams(name.firstName() + " " + name.lastName(), false)) {
+            Postings list = postings.get(gram);
+            if (list != null && list.remove(id) && list.size == 0) {
+                postings.remove(gram);
+            }
+        }
+    }
+
+    static Set<String> trigrams(String text, boolean lastWordIsPrefix) {
+        Set<String> grams = new LinkedHashSet<>();
+        if (text == null) {
+            return grams;
+        }
+        String normalized = MARKS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("").toLowerCase(Locale.ROOT);
+        String[] words = SEPARATORS.split(normalized.strip());
+        for (int w = 0; w < words.length; w++) {
+            if (words[w].isEmpty()) {
+                continue;
+            }
+            String padded = "  " + words[w] + (lastWordIsPrefix && w == words.length - 1 ? "" : " ");
+            for (int i = 0; i + 3 <= padded.length(); i++) {
+                grams.add(padded.substring(i, i + 3));
+            }
+        }
+        return grams;
+    }
+
+    private static void afterCommit(Runnable change) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    change.run();
+                }
+            });
+        } else {
+            change.run();
+        }
+    }
+
+    private record Match(int id, int shared, PatientName name) {
+    }
+
+    /**
+     * Per-thread search state: the number of query trigrams shared by each identifier of the
+     * current window, and the offsets counted so far in it. Counts are reset as each window is
+     * ranked, so nothing is allocated per window.
+     */
+    private static final class Scratch {
+        private final byte[] shared = new byte[WINDOW];
+        private final int[] candidates = new int[WINDOW];
+    }
+
+    /**
+     * Sorted identifiers of the patients whose name contains a trigram.
+     */
+    private static final class Postings {
+        private int[] ids = new int[2];
+        private int size;
+
+        void add(int id) {
+            int index = size == 0 || ids[size - 1] < id ? -size - 1 : Arrays.binarySearch(ids, 0, size, id);
+            if (index >= 0) {
+                return;
+            }
+            index = -index - 1;
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size + (size >> 1) + 1);
+            }
+            System.arraycopy(ids, index, ids, index + 1, size - index);
+            ids[index] = id;
+            size++;
+        }
+
+        boolean remove(int id) {
+            int index = Arrays.binarySearch(ids, 0, size, id);
+            if (index < 0) {
+                return false;
+            }
+            System.arraycopy(ids, index + 1, ids, index, size - index - 1);
+            size--;
+            return true;
+        }
+
+        void trim() {
+            if (ids.length > size) {
+                ids = Arrays.copyOf(ids, size);
+            }
+        }
+    }
+}
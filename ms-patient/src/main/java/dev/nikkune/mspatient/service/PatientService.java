@@ -1,58 +1,224 @@
 package dev.nikkune.mspatient.service;
 
+import dev.nikkune.mspatient.config.ReplicaRoutingDataSource;
+import dev.nikkune.mspatient.dto.BulkRegistrationDTO;
+import dev.nikkune.mspatient.dto.PatientCacheStatsDTO;
 import dev.nikkune.mspatient.dto.PatientDTO;
+import dev.nikkune.mspatient.dto.PatientKeyDTO;
+import dev.nikkune.mspatient.dto.PatientPageDTO;
+import dev.nikkune.mspatient.dto.PatientSuggestionDTO;
 import dev.nikkune.mspatient.dto.RiskDTO;
 import dev.nikkune.mspatient.mapper.PatientMapper;
 import dev.nikkune.mspatient.model.Patient;
+import dev.nikkune.mspatient.model.PatientEventType;
+import dev.nikkune.mspatient.model.PatientName;
+import dev.nikkune.mspatient.model.PatientRiskView;
+import dev.nikkune.mspatient.model.PatientSearchCriteria;
 import dev.nikkune.mspatient.repository.PatientRepository;
+import dev.nikkune.mspatient.repository.PatientSpecifications;
+import jakarta.persistence.EntityManager;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.hibernate.exception.ConstraintViolationException;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * Service class responsible for managing patient-related operations.
  * <p>
  * This class acts as an intermediary between the controller layer and the data access layer,
  * providing methods to perform CRUD (Create, Read, Update, Delete) operations for Patient entities.
+ * Lookups of a single active patient by identifier or name are served from {@link PatientCache},
+ * which every change evicts. Names of the active patients are also kept in {@link PatientNameIndex}
+ * for as-you-type search; it is loaded once the application has started and updated by every change.
  */
 @Service
-public class PatientService implements IPatientService {
+public class PatientService implements IPatientService, SmartInitializingSingleton {
+    private static final Logger logger = LogManager.getLogger(PatientService.class);
+    static final int RISK_LOOKUP_CHUNK_SIZE = 500;
+    static final int NAME_INDEX_LOAD_CHUNK_SIZE = 1000;
+    static final int REGISTRATION_CHUNK_SIZE = 500;
 
     private final PatientRepository patientRepository;
     private final PatientMapper mapper;
+    private final IPatientEventService patientEventService;
+    private final EntityManager entityManager;
+    private final PatientCache patientCache;
+    private final PatientNameIndex nameIndex;
+    private final TransactionTemplate chunkTransaction;
+    private final TransactionTemplate readOnlyTransaction;
 
-    private PatientService(PatientRepository patientRepository, PatientMapper mapper) {
+    public PatientService(PatientRepository patientRepository, PatientMapper mapper, IPatientEventService patientEventService,
+                          EntityManager entityManager, PatientCache patientCache, PatientNameIndex nameIndex,
+                          PlatformTransactionManager transactionManager) {
         this.patientRepository = patientRepository;
         this.mapper = mapper;
+        this.patientEventService = patientEventService;
+        this.entityManager = entityManager;
+        this.patientCache = patientCache;
+        this.nameIndex = nameIndex;
+        this.chunkTransaction = new TransactionTemplate(transactionManager);
+        this.chunkTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
     }
 
     /**
-     * Retrieves a list of all patients from the repository.
+     * Loads the names of every active patient into the name index, reading them
+     * {@value #NAME_INDEX_LOAD_CHUNK_SIZE} at a time in id order.
+     * <p>
+     * Runs once every singleton has been created, before the web server is started, so that no
+     * patient can be registered or deleted while the index is loaded: a deletion committed between
+     * the read of a chunk and its indexing would otherwise be undone.
+     */
+    @Override
+    public void afterSingletonsInstantiated() {
+        loadNameIndex();
+    }
+
+    void loadNameIndex() {
+        long start = System.nanoTime();
+        int after = 0;
+        List<Patient> patients;
+        do {
+            patients = patientRepository.findByActiveTrueAndIdGreaterThanOrderByIdAsc(after, Limit.of(NAME_INDEX_LOAD_CHUNK_SIZE));
+            for (Patient patient : patients) {
+                nameIndex.put(patient.getId(), new PatientName(patient.getFirstName(), patient.getLastName()));
+                after = patient.getId();
+            }
+        } while (patients.size() == NAME_INDEX_LOAD_CHUNK_SIZE);
+        nameIndex.compact();
+        logger.info("Loaded {} patient names into the name index in {} ms", nameIndex.size(), (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * Retrieves one page of active patients, in id order, starting after the given id.
+     * <p>
+     * Pages are read with a keyset condition on the primary key rather than an offset, so
+     * every page costs the same whatever its position. One extra row is read to know
+     * whether another page follows. Counting every active patient is optional, as it
+     * is the only part of the request that grows with the table.
+     *
+     * @param after the id of the last patient of the previous page, 0 for the first page
+     * @param size  the maximum number of patients in the page
+     * @param count whether to include the total number of active patients
+     * @return the page of patients, with the id to continue from if another page follows
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public PatientPageDTO findPage(int after, int size, boolean count) {
+        List<Patient> patients = patientRepository.findByActiveTrueAndIdGreaterThanOrderByIdAsc(after, Limit.of(size + 1));
+        PatientPageDTO page = toPage(patients, size);
+        if (count) {
+            page.setTotalElements(patientRepository.countByActiveTrue());
+        }
+        return page;
+    }
+
+    /**
+     * Retrieves one page of the patients matching the given criteria, in id order, starting
+     * after the given id.
+     * <p>
+     * The filters are turned into a {@link Specification} and evaluated by the database on
+     * indexed columns. Pages are chained by id as in {@link #findPage}.
      *
-     * @return a list of all {@link Patient} entities stored in the repository
+     * @param criteria the filters to apply
+     * @param after    the id of the last patient of the previous page, 0 for the first page
+     * @param size     the maximum number of patients in the page
+     * @param count    whether to include the total number of matching patients
+     * @return the page of patients, with the id to continue from if another page follows
      */
     @Override
-    public List<PatientDTO> findAll() {
-        List<Patient> patients = patientRepository.findAllByActiveTrue();
-        return patients.stream().map(mapper::toDTO).toList();
+    @Transactional(readOnly = true)
+    public PatientPageDTO search(PatientSearchCriteria criteria, int after, int size, boolean count) {
+        Specification<Patient> filter = PatientSpecifications.matching(criteria);
+        List<Patient> patients = patientRepository.findBy(filter.and(PatientSpecifications.idGreaterThan(after)),
+                query -> query.sortBy(Sort.by("id")).limit(size + 1).all());
+        PatientPageDTO page = toPage(patients, size);
+        if (count) {
+            page.setTotalElements(patientRepository.count(filter));
+        }
+        return page;
+    }
+
+    /**
+     * Hands every active patient, in id order, to the given consumer one at a time.
+     * <p>
+     * Patients are read through a database cursor in a read-only transaction and each one is
+     * detached from the persistence context once consumed, so memory use stays constant
+     * however many patients are exported.
+     *
+     * @param consumer receives the patients one by one, typically writing them to a response
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public void exportActive(Consumer<PatientDTO> consumer) {
+        try (Stream<Patient> patients = patientRepository.streamAllActive()) {
+            patients.forEach(patient -> {
+                consumer.accept(mapper.toDTO(patient));
+                entityManager.detach(patient);
+            });
+        }
     }
 
     /**
-     * Retrieves a patient identified by their unique ID.
+     * Retrieves a patient identified by their unique ID, through the patient cache. A miss is
+     * loaded from the primary database, as a lagging replica would keep an outdated patient
+     * cached for the whole lifetime of the entry.
      *
      * @param id the unique identifier of the patient to be retrieved
      * @return the Patient object if found, or null if no patient exists with the specified ID
      */
     @Override
     public PatientDTO findById(Integer id) {
-        Patient patient = patientRepository.findById(id).orElse(null);
-        if (patient == null || patient.getActive() == false)
+        PatientDTO patient = patientCache.get(id, key -> loadActive(() -> patientRepository.findById(key)
+                .filter(entity -> Boolean.TRUE.equals(entity.getActive()))
+                .orElse(null)));
+        if (patient == null)
             throw new RuntimeException("Patient with ID " + id + " does not exist");
-        return mapper.toDTO(patient);
+        return patient;
+    }
+
+    /**
+     * Suggests the active patients whose name best matches what has been typed so far, from the
+     * in-memory name index. Small typos are tolerated.
+     *
+     * @param query the beginning of the first and/or last name of the patient
+     * @param limit the maximum number of patients to return
+     * @return the best matching patients, best first
+     */
+    @Override
+    public List<PatientSuggestionDTO> suggest(String query, int limit) {
+        return nameIndex.search(query, limit);
     }
 
     /**
-     * Finds a patient by their first name and last name.
+     * Finds a patient by their first name and last name, through the patient cache. Like a lookup
+     * by ID, a miss is loaded from the primary database, so the entries of a patient under their
+     * ID and under their name come from the same source.
      *
      * @param firstName the first name of the patient
      * @param lastName  the last name of the patient
@@ -60,81 +226,328 @@ public class PatientService implements IPatientService {
      */
     @Override
     public PatientDTO findByFirstNameAndLastName(String firstName, String lastName) {
-        Patient patient = patientRepository.findByFirstNameAndLastNameAndActiveTrue(firstName, lastName);
+        PatientDTO patient = findCachedByName(firstName, lastName);
         if (patient == null)
             throw new RuntimeException("Patient with first name " + firstName + " and last name " + lastName + " does not exist");
-        return mapper.toDTO(patient);
+        return patient;
+    }
+
+    /**
+     * Resolves the identifier of an active patient from their name, to check their existence.
+     * A patient already in the cache is served from it; otherwise only the identifier is read,
+     * through the name index, without loading the entity.
+     * <p>
+     * The identifier is read from the replica when there is one. A patient it does not know yet,
+     * such as one registered a moment ago, is looked up again on the primary, so a lagging
+     * replica never reports an existing patient as missing.
+     *
+     * @param firstName the first name of the patient
+     * @param lastName  the last name of the patient
+     * @return the identifier of the patient, or null if no active patient has this name
+     */
+    @Override
+    public Integer findActiveId(String firstName, String lastName) {
+        PatientDTO cached = patientCache.getIfPresent(new PatientName(firstName, lastName));
+        if (cached != null)
+            return cached.getId();
+        Integer id = readOnlyTransaction.execute(status -> patientRepository.findActiveId(firstName, lastName).orElse(null));
+        if (id != null)
+            return id;
+        return ReplicaRoutingDataSource.readFromPrimary(() -> patientRepository.findActiveId(firstName, lastName).orElse(null));
     }
 
+    /**
+     * Retrieves the birth date and gender of an active patient through the patient cache, so a
+     * patient whose risk is assessed repeatedly is read from the database once per cache lifetime.
+     *
+     * @param firstName the first name of the patient
+     * @param lastName  the last name of the patient
+     * @return the risk information of the patient
+     * @throws RuntimeException if no active patient has this name
+     */
     @Override
     public RiskDTO getRiskInfo(String firstName, String lastName) {
-        Patient patient = patientRepository.findByFirstNameAndLastNameAndActiveTrue(firstName, lastName);
-        if (patient == null)
-            throw new RuntimeException("Patient with first name " + firstName + " and last name " + lastName + " does not exist");
-        return mapper.toRiskDTO(patient);
+        return mapper.toRiskDTO(findByFirstNameAndLastName(firstName, lastName));
+    }
+
+    /**
+     * Retrieves the risk information of several active patients. Names are looked up
+     * {@value #RISK_LOOKUP_CHUNK_SIZE} at a time, each chunk with a single query reading only
+     * the birth date and gender, instead of one query per patient. The rows read are matched back to
+     * the requested names as the database compares names, ignoring case and accents, so a name found
+     * by the single lookup is found here too.
+     *
+     * @param patients the names of the patients
+     * @return the risk information of each patient found, in request order; patients that
+     * do not exist are absent from the map
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public Map<PatientName, RiskDTO> getRiskInfo(Collection<PatientName> patients) {
+        List<PatientName> names = List.copyOf(new LinkedHashSet<>(patients));
+        Map<PatientName, RiskDTO> found = new HashMap<>();
+        for (int from = 0; from < names.size(); from += RISK_LOOKUP_CHUNK_SIZE) {
+            List<PatientName> chunk = names.subList(from, Math.min(from + RISK_LOOKUP_CHUNK_SIZE, names.size()));
+            Set<PatientName> keys = chunk.stream().map(PatientName::collationKey).collect(Collectors.toSet());
+            Set<String> lastNames = chunk.stream().map(PatientName::lastName).collect(Collectors.toSet());
+            Set<String> firstNames = chunk.stream().map(PatientName::firstName).collect(Collectors.toSet());
+            for (PatientRiskView view : patientRepository.findRiskViewsByActiveTrueAndLastNameInAndFirstNameIn(lastNames, firstNames)) {
+                PatientName key = new PatientName(view.getFirstName(), view.getLastName()).collationKey();
+                if (keys.contains(key)) {
+                    found.put(key, mapper.toRiskDTO(view));
+                }
+            }
+        }
+
+        Map<PatientName, RiskDTO> riskInfo = new LinkedHashMap<>();
+        for (PatientName name : names) {
+            RiskDTO risk = found.get(name.collationKey());
+            if (risk != null) {
+                riskInfo.put(name, risk);
+            }
+        }
+        return riskInfo;
     }
 
     /**
      * Registers a new patient in the system.
      * <p>
      * This method converts the provided PatientRegistrationDTO into a Patient entity,
-     * marks the entity as active, and persists it in the repository.
+     * marks the entity as active, and persists it in the repository. A {@code CREATED}
+     * event is published in the same transaction. An active patient with the same name is
+     * rejected by the unique index on the table, so concurrent registrations cannot both succeed.
      *
      * @param patient the PatientRegistrationDTO containing the details of the patient to be registered
      * @return the saved Patient entity after registration
+     * @throws RuntimeException if an active patient with the same name already exists
      */
     @Override
+    @Transactional
     public PatientDTO registerPatient(PatientDTO patient) {
         Patient patientEntity = mapper.toPatient(patient);
-        if (patientRepository.findByFirstNameAndLastNameAndActiveTrue(patientEntity.getFirstName(), patientEntity.getLastName()) != null) {
-            throw new RuntimeException("Patient with first name " + patientEntity.getFirstName() + " and last name " + patientEntity.getLastName() + " already exists");
-        }
         patientEntity.setActive(true);
-        Patient registeredPatient = patientRepository.save(patientEntity);
+        Patient registeredPatient;
+        try {
+            registeredPatient = patientRepository.saveAndFlush(patientEntity);
+        } catch (DataIntegrityViolationException e) {
+            if (!violates(e, Patient.UNIQUE_ACTIVE_NAME)) {
+                throw e;
+            }
+            throw new RuntimeException("Patient with first name " + patientEntity.getFirstName() + " and last name " + patientEntity.getLastName() + " already exists", e);
+        }
+        patientEventService.record(PatientEventType.CREATED, registeredPatient);
+        evict(registeredPatient);
+        nameIndex.put(registeredPatient.getId(), new PatientName(registeredPatient.getFirstName(), registeredPatient.getLastName()));
         return mapper.toDTO(registeredPatient);
     }
 
     /**
-     * Updates the information of an existing patient identified by their unique ID.
+     * Registers several new patients, committing {@value #REGISTRATION_CHUNK_SIZE} patients at a time.
+     * <p>
+     * Each chunk runs in its own transaction, so row locks are held for one chunk rather than for
+     * the whole request, and the {@code CREATED} events of a chunk become visible when it commits.
+     * For each chunk, the names already taken by active patients are read with one query, the
+     * remaining patients are inserted as JDBC batches and their events are written with one
+     * statement. A patient whose name is already taken, by an active patient or earlier in the
+     * request, is skipped and reported as a duplicate. Names are compared as the database compares
+     * them, ignoring case and accents, so a variant of a taken name does not fail the chunk on the
+     * unique index.
+     * <p>
+     * A chunk that fails because one of its names was registered concurrently is retried once, which
+     * reports that name as a duplicate. Any other failure stops the registration: the chunks already
+     * committed stay registered, and the result reports how many patients, from the failed chunk on,
+     * were not processed.
+     *
+     * @param patients the patients to register
+     * @return the number of patients registered, the names of the duplicates in request order, and
+     * the number of patients not processed with the reason, if the registration stopped early
+     */
+    @Override
+    public BulkRegistrationDTO registerPatients(List<PatientDTO> patients) {
+        Set<PatientName> requested = new HashSet<>();
+        List<PatientKeyDTO> duplicates = new ArrayList<>();
+        int registered = 0;
+        BulkRegistrationDTO result = new BulkRegistrationDTO();
+        for (int from = 0; from < patients.size(); from += REGISTRATION_CHUNK_SIZE) {
+            List<PatientDTO> chunk = patients.subList(from, Math.min(from + REGISTRATION_CHUNK_SIZE, patients.size()));
+            Set<PatientName> requestedBefore = Set.copyOf(requested);
+            int duplicatesBefore = duplicates.size();
+            Map<Integer, PatientName> names;
+            try {
+                try {
+                    names = chunkTransaction.execute(status -> registerChunk(chunk, requested, duplicates));
+                } catch (RuntimeException e) {
+                    if (!isNameConflict(e)) {
+                        throw e;
+                    }
+                    logger.info("A patient of the chunk starting at {} was registered concurrently, retrying the chunk", from);
+                    requested.retainAll(requestedBefore);
+                    duplicates.subList(duplicatesBefore, duplicates.size()).clear();
+                    names = chunkTransaction.execute(status -> registerChunk(chunk, requested, duplicates));
+                }
+            } catch (RuntimeException e) {
+                String error = isNameConflict(e) ? "A patient of the request already exists" : e.getMessage();
+                logger.error("Bulk registration stopped after {} of {} patients: {}", from, patients.size(), error);
+                duplicates.subList(duplicatesBefore, duplicates.size()).clear();
+                result.setNotProcessed(patients.size() - from);
+                result.setError(error);
+                break;
+            }
+            nameIndex.putAll(names);
+            registered += names.size();
+        }
+
+        result.setRegistered(registered);
+        result.setDuplicates(duplicates);
+        return result;
+    }
+
+    /**
+     * Registers one chunk of a bulk registration in the current transaction.
+     *
+     * @return the names of the patients registered, by identifier
+     */
+    private Map<Integer, PatientName> registerChunk(List<PatientDTO> chunk, Set<PatientName> requested, List<PatientKeyDTO> duplicates) {
+        Set<String> lastNames = chunk.stream().map(PatientDTO::getLastName).collect(Collectors.toSet());
+        Set<String> firstNames = chunk.stream().map(PatientDTO::getFirstName).collect(Collectors.toSet());
+        Set<PatientName> taken = patientRepository.findActiveNames(lastNames, firstNames).stream()
+                .map(PatientName::collationKey)
+                .collect(Collectors.toSet());
+
+        List<Patient> entities = new ArrayList<>(chunk.size());
+        for (PatientDTO patient : chunk) {
+            PatientName name = new PatientName(patient.getFirstName(), patient.getLastName());
+            PatientName key = name.collationKey();
+            if (taken.contains(key) || !requested.add(key)) {
+                duplicates.add(new PatientKeyDTO(name.firstName(), name.lastName()));
+                continue;
+            }
+            Patient entity = mapper.toPatient(patient);
+            entity.setActive(true);
+            entities.add(entity);
+        }
+        if (entities.isEmpty()) {
+            return Map.of();
+        }
+
+        patientRepository.saveAllAndFlush(entities);
+        patientEventService.recordAll(PatientEventType.CREATED, entities.stream().map(Patient::getId).toList());
+        Map<Integer, PatientName> names = entities.stream().collect(Collectors.toMap(Patient::getId,
+                entity -> new PatientName(entity.getFirstName(), entity.getLastName())));
+        entityManager.clear();
+        return names;
+    }
+
+    /**
+     * Updates the information of an existing active patient identified by their name. Only the
+     * non-null fields of the provided PatientDTO are changed.
      * <p>
-     * This method retrieves the patient using the provided ID. If the patient exists,
-     * it updates the patient entity with the new values from the provided PatientDTO
-     * and saves the updated entity to the repository. If the patient does not exist,
-     * a RuntimeException is thrown.
+     * Without a version, the fields are overwritten by a single {@code UPDATE} guarded by
+     * {@code active = true}, so there is no window between reading and writing the patient in
+     * which a concurrent change could be lost. With a version, the patient is loaded and rejected
+     * if their version differs; Hibernate then checks the version again when writing. An
+     * {@code UPDATED} event is published in the same transaction.
      *
      * @param patientDTO the data transfer object containing the new patient details
-     * @return the updated {@link Patient} entity after saving to the repository
-     * @throws RuntimeException if no patient is found with the given ID
+     * @return the patient after the update
+     * @throws RuntimeException                  if no active patient has the given name
+     * @throws OptimisticLockingFailureException if the patient has changed since the given version
      */
     @Override
+    @Transactional
     public PatientDTO update(PatientDTO patientDTO) {
         String firstName = patientDTO.getFirstName();
         String lastName = patientDTO.getLastName();
-        Patient patient = patientRepository.findByFirstNameAndLastNameAndActiveTrue(firstName, lastName);
-        if (patient == null)
-            throw new RuntimeException("Patient with first name " + firstName + " and last name " + lastName + " does not exist");
-
-        mapper.updatePatient(patientDTO, patient);
+        Patient updatedPatient;
+        if (patientDTO.getVersion() == null) {
+            int updated = patientRepository.patchActive(firstName, lastName, patientDTO.getBirthDate(), patientDTO.getGender(),
+                    patientDTO.getAddress(), patientDTO.getPhoneNumber());
+            if (updated == 0)
+                throw new RuntimeException("Patient with first name " + firstName + " and last name " + lastName + " does not exist");
+            updatedPatient = patientRepository.findByFirstNameAndLastNameAndActiveTrue(firstName, lastName);
+        } else {
+            Patient patient = patientRepository.findByFirstNameAndLastNameAndActiveTrue(firstName, lastName);
+            if (patient == null)
+                throw new RuntimeException("Patient with first name " + firstName + " and last name " + lastName + " does not exist");
+            if (!patientDTO.getVersion().equals(patient.getVersion()))
+                throw new OptimisticLockingFailureException("Patient with first name " + firstName + " and last name " + lastName + " has been modified since it was read");
 
-        Patient updatedPatient = patientRepository.save(patient);
+            mapper.updatePatient(patientDTO, patient);
+            updatedPatient = patientRepository.saveAndFlush(patient);
+        }
+        patientEventService.record(PatientEventType.UPDATED, updatedPatient);
+        evict(updatedPatient);
 
         return mapper.toDTO(updatedPatient);
     }
 
     /**
-     * Deletes a patient entity from the repository by its unique identifier.
+     * Deletes an active patient identified by their name. The patient is marked as deleted by a
+     * single {@code UPDATE} guarded by {@code active = true}, so concurrent deletions cannot both
+     * succeed. A {@code DELETED} event is published in the same transaction.
      *
      * @param firstName the first name of the patient
      * @param lastName  the last name of the patient
+     * @throws RuntimeException if no active patient has the given name
      */
     @Override
+    @Transactional
     public void delete(String firstName, String lastName) {
-        Patient patient = patientRepository.findByFirstNameAndLastNameAndActiveTrue(firstName, lastName);
-        if (patient == null)
+        Integer id = patientRepository.findActiveId(firstName, lastName).orElse(null);
+        if (id == null || patientRepository.deactivate(id) == 0)
             throw new RuntimeException("Patient with first name " + firstName + " and last name " + lastName + " does not exist");
 
-        patient.setActive(false);
+        patientEventService.recordAll(PatientEventType.DELETED, List.of(id));
+        patientCache.evict(id, new PatientName(firstName, lastName));
+        nameIndex.remove(id);
+    }
+
+    /**
+     * Returns the cache statistics of the patient lookups by identifier and by name.
+     *
+     * @return the current size, hit and miss counts of the patient cache
+     */
+    @Override
+    public PatientCacheStatsDTO cacheStats() {
+        return patientCache.stats();
+    }
+
+    private PatientPageDTO toPage(List<Patient> patients, int size) {
+        boolean hasNext = patients.size() > size;
+        List<Patient> content = hasNext ? patients.subList(0, size) : patients;
+
+        PatientPageDTO page = new PatientPageDTO();
+        page.setContent(content.stream().map(mapper::toDTO).toList());
+        page.setNextAfter(hasNext ? content.get(size - 1).getId() : null);
+        return page;
+    }
+
+    private PatientDTO findCachedByName(String firstName, String lastName) {
+        return patientCache.get(new PatientName(firstName, lastName),
+                () -> loadActive(() -> patientRepository.findByFirstNameAndLastNameAndActiveTrue(firstName, lastName)));
+    }
+
+    /**
+     * Loads an active patient for the patient cache. Both caches are filled through here, from the
+     * primary database, so a patient cached under their ID and under their name is at the same
+     * version unless they changed in between, in which case the change evicts both entries.
+     */
+    private PatientDTO loadActive(Supplier<Patient> read) {
+        Patient patient = ReplicaRoutingDataSource.readFromPrimary(read);
+        return patient == null ? null : mapper.toDTO(patient);
+    }
+
+    private void evict(Patient patient) {
+        patientCache.evict(patient.getId(), new PatientName(patient.getFirstName(), patient.getLastName()));
+    }
+
+    private static boolean isNameConflict(RuntimeException e) {
+        return e instanceof DataIntegrityViolationException violation && violates(violation, Patient.UNIQUE_ACTIVE_NAME);
+    }
 
-        patientRepository.save(patient);
+    private static boolean violates(DataIntegrityViolationException e, String constraintName) {
+        return e.getCause() instanceof ConstraintViolationException violation
+                && violation.getConstraintName() != null
+                && violation.getConstraintName().toLowerCase().contains(constraintName);
     }
 }
@@ -7,4 +7,14 @@ VALUES (3, 'TestInDanger', 'Test', '2004-06-18', 'M', '3 Club Road', '300-444-55
 INSERT INTO patient (id, last_name, first_name, birth_date, gender, address, phone_number)
 VALUES (4, 'TestEarlyOnset', 'Test', '2002-06-28', 'F', '4 Valley Dr', '400-555-6666');
 INSERT INTO patient (id, last_name, first_name, birth_date, gender)
-VALUES (5, 'TestBase', 'Test', '2000-12-31', 'H');
\ No newline at end of file
+VALUES (5, 'TestBase', 'Test', '2000-12-31', 'H');
+INSERT INTO patient_event (type, patient_id, last_name, first_name, created_at)
+VALUES ('CREATED', 1, 'TestNone', 'Test', CURRENT_TIMESTAMP);
+INSERT INTO patient_event (type, patient_id, last_name, first_name, created_at)
+VALUES ('CREATED', 2, 'TestBorderline', 'Test', CURRENT_TIMESTAMP);
+INSERT INTO patient_event (type, patient_id, last_name, first_name, created_at)
+VALUES ('CREATED', 3, 'TestInDanger', 'Test', CURRENT_TIMESTAMP);
+INSERT INTO patient_event (type, patient_id, last_name, first_name, created_at)
+VALUES ('CREATED', 4, 'TestEarlyOnset', 'Test', CURRENT_TIMESTAMP);
+INSERT INTO patient_event (type, patient_id, last_name, first_name, created_at)
+VALUES ('CREATED', 5, 'TestBase', 'Test', CURRENT_TIMESTAMP);
\ No newline at end of file
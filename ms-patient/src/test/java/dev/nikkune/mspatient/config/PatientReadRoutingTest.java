@@ -0,0 +1,144 @@
+package dev.nikkune.mspatient.config;
+
+import dev.nikkune.mspatient.dto.PatientDTO;
+import dev.nikkune.mspatient.model.PatientName;
+import dev.nikkune.mspatient.model.PatientSearchCriteria;
+import dev.nikkune.mspatient.service.PatientService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks which database each read of {@link PatientService} uses. The replica is a copy of the
+ * primary taken before the change under test, so a read that returns the old value went to the
+ * replica and a read that returns the new one went to the primary.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:routing_primary;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+        "ms.patient.datasource.replica.url=jdbc:h2:mem:routing_replica;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1"
+})
+class PatientReadRoutingTest {
+
+    @Autowired
+    private PatientService patientService;
+
+    @Autowired
+    @Qualifier("primaryDataSource")
+    private DataSource primary;
+
+    @Autowired
+    @Qualifier("replicaDataSource")
+    private DataSource replica;
+
+    @AfterEach
+    void tearDown() {
+        ReplicaRoutingDataSource.unpin();
+    }
+
+    /**
+     * Registers a patient on the primary and copies the primary to the replica, as a new request would see them.
+     */
+    private PatientDTO registerAndReplicate(String firstName, String lastName) {
+        PatientDTO patient = new PatientDTO();
+        patient.setFirstName(firstName);
+        patient.setLastName(lastName);
+        patient.setBirthDate(new Date(0));
+        patient.setGender("F");
+        patient.setAddress("1 Old Road");
+        patient.setPhoneNumber("111-222-3333");
+        PatientDTO registered = patientService.registerPatient(patient);
+        ReplicaRoutingDataSource.unpin();
+
+        List<String> script = new JdbcTemplate(primary).queryForList("script", String.class);
+        JdbcTemplate copy = new JdbcTemplate(replica);
+        copy.execute("drop all objects");
+        script.forEach(copy::execute);
+        return registered;
+    }
+
+    /**
+     * Moves a patient on the primary only, leaving the replica behind, then ends the request.
+     */
+    private void moveOnPrimary(String firstName, String lastName) {
+        PatientDTO patch = new PatientDTO();
+        patch.setFirstName(firstName);
+        patch.setLastName(lastName);
+        patch.setAddress("2 New Road");
+        patientService.update(patch);
+        ReplicaRoutingDataSource.unpin();
+    }
+
+    @Test
+    void cacheLoads_shouldReadPrimary() {
+        PatientDTO patient = registerAndReplicate("Ada", "Routing");
+        moveOnPrimary("Ada", "Routing");
+
+        assertEquals("2 New Road", patientService.findById(patient.getId()).getAddress());
+        assertEquals("2 New Road", patientService.findByFirstNameAndLastName("Ada", "Routing").getAddress());
+    }
+
+    @Test
+    void update_shouldBeSeenAtTheSameVersionById_andByName() {
+        PatientDTO patient = registerAndReplicate("Edith", "Routing");
+        assertEquals(patient.getVersion(), patientService.findById(patient.getId()).getVersion());
+        assertEquals(patient.getVersion(), patientService.findByFirstNameAndLastName("Edith", "Routing").getVersion());
+
+        PatientDTO change = new PatientDTO();
+        change.setFirstName("Edith");
+        change.setLastName("Routing");
+        change.setPhoneNumber("999-888-7777");
+        change.setVersion(patient.getVersion());
+        patientService.update(change);
+        ReplicaRoutingDataSource.unpin();
+
+        PatientDTO byId = patientService.findById(patient.getId());
+        PatientDTO byName = patientService.findByFirstNameAndLastName("Edith", "Routing");
+        assertEquals(patient.getVersion() + 1, byId.getVersion());
+        assertEquals(byId.getVersion(), byName.getVersion());
+        assertEquals("999-888-7777", byId.getPhoneNumber());
+        assertEquals("999-888-7777", byName.getPhoneNumber());
+    }
+
+    @Test
+    void pageSearchAndBulkRiskReads_shouldReadReplica() {
+        registerAndReplicate("Grace", "Routing");
+        moveOnPrimary("Grace", "Routing");
+
+        PatientSearchCriteria criteria = new PatientSearchCriteria("Routing", "Grace", null, null, null, true);
+        assertEquals("1 Old Road", patientService.search(criteria, 0, 10, false).getContent().get(0).getAddress());
+        assertTrue(patientService.findPage(0, 500, false).getContent().stream()
+                .anyMatch(patient -> "Grace".equals(patient.getFirstName()) && "1 Old Road".equals(patient.getAddress())));
+
+        // Deleted on the primary only: the replica still knows the patient
+        patientService.delete("Grace", "Routing");
+        ReplicaRoutingDataSource.unpin();
+        assertTrue(patientService.getRiskInfo(List.of(new PatientName("Grace", "Routing"))).containsKey(new PatientName("Grace", "Routing")));
+    }
+
+    @Test
+    void findActiveId_shouldReadReplica_andFallBackToPrimary_whenReplicaHasNotCaughtUp() {
+        Integer replicated = registerAndReplicate("Alan", "Routing").getId();
+        patientService.delete("Alan", "Routing");
+        ReplicaRoutingDataSource.unpin();
+        assertEquals(replicated, patientService.findActiveId("Alan", "Routing"));
+
+        PatientDTO recent = new PatientDTO();
+        recent.setFirstName("Joan");
+        recent.setLastName("Routing");
+        recent.setBirthDate(new Date(0));
+        recent.setGender("F");
+        Integer id = patientService.registerPatient(recent).getId();
+        ReplicaRoutingDataSource.unpin();
+
+        assertEquals(id, patientService.findActiveId("Joan", "Routing"));
+    }
+}
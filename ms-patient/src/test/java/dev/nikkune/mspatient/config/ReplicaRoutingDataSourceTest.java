@@ -0,0 +1,78 @@
+package dev.nikkune.mspatient.config;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReplicaRoutingDataSourceTest {
+
+    private JdbcTemplate jdbcTemplate;
+    private TransactionTemplate readWrite;
+    private TransactionTemplate readOnly;
+
+    @BeforeEach
+    void setUp() {
+        ReplicaRoutingDataSource routing = new ReplicaRoutingDataSource(database("primary"), database("replica"));
+        routing.afterPropertiesSet();
+        DataSource dataSource = new LazyConnectionDataSourceProxy(routing);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(dataSource);
+        readWrite = new TransactionTemplate(transactionManager);
+        readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+    }
+
+    @AfterEach
+    void tearDown() {
+        ReplicaRoutingDataSource.unpin();
+    }
+
+    private DataSource database(String name) {
+        return new DriverManagerDataSource("jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1", "sa", "");
+    }
+
+    private String currentDatabase(TransactionTemplate transaction) {
+        return transaction.execute(status -> jdbcTemplate.queryForObject("select database()", String.class));
+    }
+
+    @Test
+    void readOnlyTransaction_shouldUseReplica() {
+        assertEquals("REPLICA", currentDatabase(readOnly));
+    }
+
+    @Test
+    void readWriteTransaction_shouldUsePrimary() {
+        assertEquals("PRIMARY", currentDatabase(readWrite));
+    }
+
+    @Test
+    void readOnlyTransaction_shouldUsePrimary_afterWriteUntilUnpinned() {
+        currentDatabase(readWrite);
+
+        assertEquals("PRIMARY", currentDatabase(readOnly));
+
+        ReplicaRoutingDataSource.unpin();
+        assertEquals("REPLICA", currentDatabase(readOnly));
+    }
+
+    @Test
+    void withoutTransaction_shouldUsePrimaryWithoutPinning() {
+        assertEquals("PRIMARY", jdbcTemplate.queryForObject("select database()", String.class));
+        assertEquals("REPLICA", currentDatabase(readOnly));
+    }
+
+    @Test
+    void readFromPrimary_shouldUsePrimaryInReadOnlyTransaction_withoutPinning() {
+        assertEquals("PRIMARY", ReplicaRoutingDataSource.readFromPrimary(() -> currentDatabase(readOnly)));
+        assertEquals("REPLICA", currentDatabase(readOnly));
+    }
+}
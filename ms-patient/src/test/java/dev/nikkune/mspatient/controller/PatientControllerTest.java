@@ -1,8 +1,17 @@
 package dev.nikkune.mspatient.controller;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.nikkune.mspatient.dto.BulkRegistrationDTO;
+import dev.nikkune.mspatient.dto.CacheStatsDTO;
+import dev.nikkune.mspatient.dto.PatientCacheStatsDTO;
 import dev.nikkune.mspatient.dto.PatientDTO;
+import dev.nikkune.mspatient.dto.PatientKeyDTO;
+import dev.nikkune.mspatient.dto.PatientPageDTO;
+import dev.nikkune.mspatient.dto.PatientSuggestionDTO;
+import dev.nikkune.mspatient.dto.RiskDTO;
 import dev.nikkune.mspatient.exception.GlobalExceptionHandler;
+import dev.nikkune.mspatient.model.PatientName;
+import dev.nikkune.mspatient.model.PatientSearchCriteria;
 import dev.nikkune.mspatient.service.IPatientService;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
@@ -14,17 +23,27 @@ import org.springframework.context.annotation.Import;
 import org.springframework.http.MediaType;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
+import java.time.LocalDate;
+import java.time.ZoneId;
 import java.util.Arrays;
 import java.util.Date;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.function.Consumer;
 
 import static org.hamcrest.Matchers.*;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.doAnswer;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
-import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
-import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
 @WebMvcTest(controllers = PatientController.class)
 @Import({GlobalExceptionHandler.class, PatientControllerTest.MockConfig.class})
@@ -52,16 +71,50 @@ class PatientControllerTest {
     }
 
     @Test
-    void getAllPatients_returnsList() throws Exception {
-        List<PatientDTO> list = Arrays.asList(sampleDto(), sampleDto());
-        given(patientService.findAll()).willReturn(list);
+    void getAllPatients_returnsPage() throws Exception {
+        PatientPageDTO page = new PatientPageDTO();
+        page.setContent(Arrays.asList(sampleDto(), sampleDto()));
+        page.setNextAfter(7);
+        given(patientService.findPage(0, 2, false)).willReturn(page);
 
-        mockMvc.perform(get("/all"))
+        mockMvc.perform(get("/all").param("size", "2"))
                 .andExpect(status().isOk())
-                .andExpect(jsonPath("$", hasSize(2)))
+                .andExpect(jsonPath("$.content", hasSize(2)))
+                .andExpect(jsonPath("$.content[0].lastName", is("Doe")))
+                .andExpect(jsonPath("$.nextAfter", is(7)))
+                .andExpect(jsonPath("$.totalElements").doesNotExist());
+    }
+
+    @Test
+    void searchPatients_bindsFilters() throws Exception {
+        PatientPageDTO page = new PatientPageDTO();
+        page.setContent(List.of(sampleDto()));
+        PatientSearchCriteria criteria = new PatientSearchCriteria("Do", null, "M",
+                java.sql.Date.valueOf("1950-01-01"), null, true);
+        given(patientService.search(criteria, 0, 50, false)).willReturn(page);
+
+        mockMvc.perform(get("/search").param("lastName", "Do").param("gender", "M").param("bornFrom", "1950-01-01"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content", hasSize(1)))
+                .andExpect(jsonPath("$.nextAfter").doesNotExist());
+    }
+
+    @Test
+    void suggestPatients_returnsSuggestions() throws Exception {
+        given(patientService.suggest("jo", 5)).willReturn(List.of(new PatientSuggestionDTO(1, "John", "Doe")));
+
+        mockMvc.perform(get("/suggest").param("q", "jo").param("limit", "5"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].id", is(1)))
                 .andExpect(jsonPath("$[0].lastName", is("Doe")));
     }
 
+    @Test
+    void getAllPatients_returns400_whenSizeTooLarge() throws Exception {
+        mockMvc.perform(get("/all").param("size", "501"))
+                .andExpect(status().isBadRequest());
+    }
+
     @Test
     void getPatientById_returnsPatient() throws Exception {
         given(patientService.findById(1)).willReturn(sampleDto());
@@ -90,6 +143,66 @@ class PatientControllerTest {
                 .andExpect(jsonPath("$.lastName", is("Doe")));
     }
 
+    @Test
+    void getPatientsRiskInfo_returnsFoundAndNotFound() throws Exception {
+        RiskDTO risk = new RiskDTO();
+        risk.setGender("F");
+        Map<PatientName, RiskDTO> riskInfo = new LinkedHashMap<>();
+        riskInfo.put(new PatientName("Jane", "Doe"), risk);
+        given(patientService.getRiskInfo(anyCollection())).willReturn(riskInfo);
+
+        mockMvc.perform(post("/riskInfo")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"patients\":[{\"firstName\":\"Jane\",\"lastName\":\"Doe\"},{\"firstName\":\"Ghost\",\"lastName\":\"User\"}]}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.patients", hasSize(1)))
+                .andExpect(jsonPath("$.patients[0].lastName", is("Doe")))
+                .andExpect(jsonPath("$.patients[0].risk.gender", is("F")))
+                .andExpect(jsonPath("$.notFound[0].firstName", is("Ghost")));
+    }
+
+    @Test
+    void patientExists_returnsIdHeaderWithoutBody() throws Exception {
+        given(patientService.findActiveId("John", "Doe")).willReturn(7);
+
+        mockMvc.perform(head("/exists").param("firstName", "John").param("lastName", "Doe"))
+                .andExpect(status().isNoContent())
+                .andExpect(header().string(PatientController.PATIENT_ID_HEADER, "7"))
+                .andExpect(content().string(""));
+    }
+
+    @Test
+    void patientExists_returns404_whenMissing() throws Exception {
+        given(patientService.findActiveId("Ghost", "User")).willReturn(null);
+
+        mockMvc.perform(get("/exists").param("firstName", "Ghost").param("lastName", "User"))
+                .andExpect(status().isNotFound())
+                .andExpect(content().string(""));
+    }
+
+    @Test
+    void getPatientsRiskInfo_returns400_whenNoPatients() throws Exception {
+        mockMvc.perform(post("/riskInfo")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"patients\":[]}"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void getCacheStats_returnsStats() throws Exception {
+        CacheStatsDTO byId = new CacheStatsDTO();
+        byId.setHitCount(3);
+        PatientCacheStatsDTO stats = new PatientCacheStatsDTO();
+        stats.setById(byId);
+        stats.setByName(new CacheStatsDTO());
+        given(patientService.cacheStats()).willReturn(stats);
+
+        mockMvc.perform(get("/cache/stats"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.byId.hitCount", is(3)))
+                .andExpect(jsonPath("$.byName.size", is(0)));
+    }
+
     @Test
     void createPatient_validPayload_returnsCreated() throws Exception {
         PatientDTO payload = sampleDto();
@@ -114,6 +227,47 @@ class PatientControllerTest {
                 .andExpect(jsonPath("$.errors", aMapWithSize(greaterThan(0))));
     }
 
+    @Test
+    void createPatients_returnsCountAndDuplicates() throws Exception {
+        BulkRegistrationDTO result = new BulkRegistrationDTO();
+        result.setRegistered(1);
+        result.setDuplicates(List.of(new PatientKeyDTO("John", "Doe")));
+        given(patientService.registerPatients(anyList())).willReturn(result);
+
+        mockMvc.perform(post("/bulk")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"patients\":[" + objectMapper.writeValueAsString(sampleDto()) + "," + objectMapper.writeValueAsString(sampleDto()) + "]}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.registered", is(1)))
+                .andExpect(jsonPath("$.duplicates[0].lastName", is("Doe")));
+    }
+
+    @Test
+    void createPatients_returns207_whenRegistrationStoppedEarly() throws Exception {
+        BulkRegistrationDTO result = new BulkRegistrationDTO();
+        result.setRegistered(1);
+        result.setDuplicates(List.of());
+        result.setNotProcessed(1);
+        result.setError("connection lost");
+        given(patientService.registerPatients(anyList())).willReturn(result);
+
+        mockMvc.perform(post("/bulk")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"patients\":[" + objectMapper.writeValueAsString(sampleDto()) + "," + objectMapper.writeValueAsString(sampleDto()) + "]}"))
+                .andExpect(status().isMultiStatus())
+                .andExpect(jsonPath("$.registered", is(1)))
+                .andExpect(jsonPath("$.notProcessed", is(1)))
+                .andExpect(jsonPath("$.error", is("connection lost")));
+    }
+
+    @Test
+    void createPatients_returns400_whenAPatientIsInvalid() throws Exception {
+        mockMvc.perform(post("/bulk")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"patients\":[" + objectMapper.writeValueAsString(new PatientDTO()) + "]}"))
+                .andExpect(status().isBadRequest());
+    }
+
     @Test
     void updatePatient_returnsUpdated() throws Exception {
         PatientDTO patch = new PatientDTO();
@@ -135,6 +289,65 @@ class PatientControllerTest {
                 .andExpect(status().isOk());
     }
 
+    @Test
+    @SuppressWarnings("unchecked")
+    void exportPatients_streamsCsv() throws Exception {
+        // east of UTC, a birth date stored at local midnight falls on the previous day in UTC
+        TimeZone defaultZone = TimeZone.getDefault();
+        TimeZone.setDefault(TimeZone.getTimeZone("Europe/Paris"));
+        try {
+            PatientDTO patient = sampleDto();
+            patient.setId(1);
+            patient.setBirthDate(Date.from(LocalDate.of(1966, 12, 31).atStartOfDay(ZoneId.systemDefault()).toInstant()));
+            patient.setAddress("1 Main St, Springfield");
+            doAnswer(invocation -> {
+                ((Consumer<PatientDTO>) invocation.getArgument(0)).accept(patient);
+                return null;
+            }).when(patientService).exportActive(any());
+
+            MvcResult result = mockMvc.perform(get("/export").param("format", "csv"))
+                    .andExpect(request().asyncStarted())
+                    .andReturn();
+
+            mockMvc.perform(asyncDispatch(result))
+                    .andExpect(status().isOk())
+                    .andExpect(content().contentTypeCompatibleWith("text/csv"))
+                    .andExpect(content().string("id,lastName,firstName,birthDate,gender,address,phoneNumber\r\n"
+                            + "1,Doe,John,1966-12-31,M,\"1 Main St, Springfield\",123-456-7890\r\n"));
+        } finally {
+            TimeZone.setDefault(defaultZone);
+        }
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void exportPatients_streamsNdjsonByDefault() throws Exception {
+        doAnswer(invocation -> {
+            Consumer<PatientDTO> consumer = invocation.getArgument(0);
+            consumer.accept(sampleDto());
+            consumer.accept(sampleDto());
+            return null;
+        }).when(patientService).exportActive(any());
+
+        MvcResult result = mockMvc.perform(get("/export"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        String body = mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON))
+                .andReturn().getResponse().getContentAsString();
+        String[] lines = body.split("\n");
+        assertEquals(2, lines.length);
+        assertEquals("Doe", objectMapper.readTree(lines[1]).get("lastName").asText());
+    }
+
+    @Test
+    void exportPatients_returns400_whenFormatUnknown() throws Exception {
+        mockMvc.perform(get("/export").param("format", "xml"))
+                .andExpect(status().isBadRequest());
+    }
+
     @TestConfiguration
     static class MockConfig {
         @Bean
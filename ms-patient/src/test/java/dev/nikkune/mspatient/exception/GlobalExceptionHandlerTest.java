@@ -6,6 +6,7 @@ import jakarta.validation.Validation;
 import jakarta.validation.Validator;
 import jakarta.validation.constraints.NotBlank;
 import org.junit.jupiter.api.Test;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 
@@ -45,6 +46,15 @@ class GlobalExceptionHandlerTest {
         assertEquals("Bad request", response.getBody().get("message"));
     }
 
+    @Test
+    void handleOptimisticLockingFailure_shouldReturn409() {
+        OptimisticLockingFailureException ex = new OptimisticLockingFailureException("Patient has been modified since it was read");
+        ResponseEntity<Map<String, Object>> response = handler.handleOptimisticLockingFailure(ex);
+        assertEquals(HttpStatus.CONFLICT, response.getStatusCode());
+        assertEquals(false, response.getBody().get("success"));
+        assertEquals("Conflict", response.getBody().get("message"));
+    }
+
     @Test
     void handleGenericException_shouldReturn500() {
         Exception ex = new Exception("Boom");
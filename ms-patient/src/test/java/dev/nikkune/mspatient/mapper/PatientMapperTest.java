@@ -22,10 +22,12 @@ class PatientMapperTest {
         dto.setGender("M");
         dto.setAddress("123 Main St");
         dto.setPhoneNumber("123-456-7890");
+        dto.setId(42);
 
         Patient entity = mapper.toPatient(dto);
 
         assertNotNull(entity);
+        assertNull(entity.getId()); // ids are never taken from the client
         assertEquals("Doe", entity.getLastName());
         assertEquals("John", entity.getFirstName());
         assertEquals(new Date(0), entity.getBirthDate());
@@ -49,6 +51,7 @@ class PatientMapperTest {
         PatientDTO dto = mapper.toDTO(entity);
 
         assertNotNull(dto);
+        assertEquals(1, dto.getId());
         assertEquals("Doe", dto.getLastName());
         assertEquals("Jane", dto.getFirstName());
         assertEquals(new Date(1000), dto.getBirthDate());
@@ -0,0 +1,99 @@
+package dev.nikkune.mspatient.repository;
+
+import dev.nikkune.mspatient.MsPatientApplication;
+import dev.nikkune.mspatient.mapper.PatientMapper;
+import dev.nikkune.mspatient.dto.RiskDTO;
+import dev.nikkune.mspatient.model.Patient;
+import dev.nikkune.mspatient.model.PatientName;
+import dev.nikkune.mspatient.service.IPatientService;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntFunction;
+import java.util.stream.IntStream;
+
+/**
+ * Stand-alone benchmark measuring, per lookup by name, the latency and the heap allocated by the
+ * risk information lookup on a cache miss (the entity query the patient cache loads through) and
+ * on a cache hit, by a bulk risk lookup of 100 patients, and by the existence probe.
+ * <p>
+ * It starts the application against the configured datasource, registers benchmark patients
+ * until there are {@value #PATIENTS} of them, then runs every lookup on the calling thread.
+ * Application arguments such as {@code --spring.datasource.url=...} are passed through. Run with
+ * {@code java -cp target/classes:target/test-classes:<dependencies> dev.nikkune.mspatient.repository.PatientLookupBenchmark}
+ * or from the IDE. It is not part of the test suite.
+ */
+public class PatientLookupBenchmark {
+    private static final int PATIENTS = 10_000;
+    private static final int WARMUP = 20_000;
+    private static final int ITERATIONS = 50_000;
+
+    public static void main(String[] args) {
+        try (ConfigurableApplicationContext context = SpringApplication.run(MsPatientApplication.class, args)) {
+            PatientRepository repository = context.getBean(PatientRepository.class);
+            PatientMapper mapper = context.getBean(PatientMapper.class);
+            IPatientService patientService = context.getBean(IPatientService.class);
+            seed(repository);
+
+            System.out.printf("%-22s %10s %14s%n", "lookup", "ns/op", "bytes/op");
+            run("riskInfo miss", i -> mapper.toRiskDTO(repository.findByFirstNameAndLastNameAndActiveTrue(firstName(i), lastName(i))));
+            run("riskInfo cache hit", i -> patientService.getRiskInfo(firstName(i), lastName(i)));
+            run("riskInfo bulk of 100", i -> {
+                Map<PatientName, RiskDTO> risks = patientService.getRiskInfo(IntStream.range(i, i + 100)
+                        .mapToObj(j -> new PatientName(firstName(j), lastName(j)))
+                        .toList());
+                if (risks.size() != 100) {
+                    throw new IllegalStateException(risks.size() + " patients found out of 100");
+                }
+                return risks;
+            });
+            run("exists projection", i -> repository.findActiveId(firstName(i), lastName(i)).isPresent());
+        }
+    }
+
+    private static void run(String name, IntFunction<Object> lookup) {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        for (int i = 0; i < WARMUP; i++) {
+            lookup.apply(i);
+        }
+        long allocatedBefore = threads.getCurrentThreadAllocatedBytes();
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            lookup.apply(i);
+        }
+        long elapsed = System.nanoTime() - start;
+        long allocated = threads.getCurrentThreadAllocatedBytes() - allocatedBefore;
+        System.out.printf("%-22s %10d %14d%n", name, elapsed / ITERATIONS, allocated / ITERATIONS);
+    }
+
+    private static void seed(PatientRepository repository) {
+        List<Patient> patients = new ArrayList<>();
+        for (int i = 0; i < PATIENTS; i++) {
+            if (repository.findActiveId(firstName(i), lastName(i)).isEmpty()) {
+                Patient patient = new Patient();
+                patient.setFirstName(firstName(i));
+                patient.setLastName(lastName(i));
+                patient.setBirthDate(new Date(0));
+                patient.setGender(i % 2 == 0 ? "F" : "M");
+                patient.setAddress(i + " Benchmark Street");
+                patient.setPhoneNumber("100-000-0000");
+                patient.setActive(true);
+                patients.add(patient);
+            }
+        }
+        repository.saveAll(patients);
+    }
+
+    private static String firstName(int i) {
+        return "Bench" + (i * 7919 % PATIENTS);
+    }
+
+    private static String lastName(int i) {
+        return "Patient" + (i * 7919 % PATIENTS);
+    }
+}
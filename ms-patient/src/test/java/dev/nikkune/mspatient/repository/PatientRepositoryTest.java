@@ -0,0 +1,107 @@
+package dev.nikkune.mspatient.repository;
+
+import dev.nikkune.mspatient.dto.PatientDTO;
+import dev.nikkune.mspatient.mapper.PatientMapperImpl;
+import dev.nikkune.mspatient.model.Patient;
+import dev.nikkune.mspatient.service.IPatientEventService;
+import dev.nikkune.mspatient.service.PatientCache;
+import dev.nikkune.mspatient.service.PatientNameIndex;
+import dev.nikkune.mspatient.service.PatientService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import java.util.Date;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@Import({PatientService.class, PatientMapperImpl.class, PatientCache.class, PatientNameIndex.class})
+class PatientRepositoryTest {
+
+    @Autowired
+    private PatientRepository patientRepository;
+
+    @Autowired
+    private PatientService patientService;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @MockitoBean
+    private IPatientEventService patientEventService;
+
+    private Patient patient;
+
+    @BeforeEach
+    void setUp() {
+        patient = new Patient();
+        patient.setFirstName("Ada");
+        patient.setLastName("Lovelace");
+        patient.setBirthDate(new Date(0));
+        patient.setGender("F");
+        patient.setAddress("12 St James's Square");
+        patient.setPhoneNumber("111-222-3333");
+        patient.setActive(true);
+        patient = entityManager.persistFlushFind(patient);
+    }
+
+    private Patient reload() {
+        entityManager.clear();
+        return entityManager.find(Patient.class, patient.getId());
+    }
+
+    @Test
+    void patchActive_overwritesOnlyGivenFields_andIncrementsVersion() {
+        int updated = patientRepository.patchActive("Ada", "Lovelace", null, null, "1 Baker St", null);
+
+        assertEquals(1, updated);
+        Patient patched = reload();
+        assertEquals("1 Baker St", patched.getAddress());
+        assertEquals("111-222-3333", patched.getPhoneNumber());
+        assertEquals("F", patched.getGender());
+        assertEquals(new Date(0).getTime(), patched.getBirthDate().getTime());
+        assertEquals(patient.getVersion() + 1, patched.getVersion());
+    }
+
+    @Test
+    void patchActive_updatesNothing_whenPatientIsInactive() {
+        assertEquals(1, patientRepository.deactivate(patient.getId()));
+
+        assertEquals(0, patientRepository.patchActive("Ada", "Lovelace", null, null, "1 Baker St", null));
+        assertEquals("12 St James's Square", reload().getAddress());
+    }
+
+    @Test
+    void deactivate_succeedsOnce_andIncrementsVersion() {
+        assertEquals(1, patientRepository.deactivate(patient.getId()));
+        assertEquals(0, patientRepository.deactivate(patient.getId()));
+
+        Patient deactivated = reload();
+        assertFalse(deactivated.getActive());
+        assertEquals(patient.getVersion() + 1, deactivated.getVersion());
+    }
+
+    @Test
+    void update_rejectsVersionReadBeforeAnUnversionedPatch() {
+        PatientDTO patch = new PatientDTO();
+        patch.setFirstName("Ada");
+        patch.setLastName("Lovelace");
+        patch.setAddress("1 Baker St");
+        assertEquals(patient.getVersion() + 1, patientService.update(patch).getVersion());
+
+        PatientDTO stale = new PatientDTO();
+        stale.setFirstName("Ada");
+        stale.setLastName("Lovelace");
+        stale.setPhoneNumber("999-888-7777");
+        stale.setVersion(patient.getVersion());
+
+        assertThrows(OptimisticLockingFailureException.class, () -> patientService.update(stale));
+        assertEquals("111-222-3333", reload().getPhoneNumber());
+    }
+}
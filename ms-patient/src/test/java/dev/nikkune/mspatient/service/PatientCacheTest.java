@@ -0,0 +1,84 @@
+package dev.nikkune.mspatient.service;
+
+import dev.nikkune.mspatient.dto.PatientDTO;
+import dev.nikkune.mspatient.model.PatientName;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PatientCacheTest {
+
+    private PatientCache cache;
+    private PatientDTO patient;
+
+    @BeforeEach
+    void setUp() {
+        cache = new PatientCache(100, Duration.ofMinutes(10));
+        patient = new PatientDTO();
+        patient.setId(1);
+        patient.setFirstName("John");
+        patient.setLastName("Doe");
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void get_loadsOnce_andRecordsHits() {
+        AtomicInteger loads = new AtomicInteger();
+
+        cache.get(1, id -> {
+            loads.incrementAndGet();
+            return patient;
+        });
+        assertSame(patient, cache.get(1, id -> fail("should be cached")));
+
+        assertEquals(1, loads.get());
+        assertEquals(1, cache.stats().getById().getHitCount());
+        assertEquals(1, cache.stats().getById().getMissCount());
+        assertEquals(1, cache.stats().getById().getSize());
+    }
+
+    @Test
+    void get_doesNotCacheMissingPatients() {
+        PatientName name = new PatientName("Ghost", "User");
+        assertNull(cache.get(name, () -> null));
+        assertSame(patient, cache.get(name, () -> patient));
+    }
+
+    @Test
+    void evict_removesBothEntries() {
+        PatientName name = new PatientName("John", "Doe");
+        cache.get(1, id -> patient);
+        cache.get(name, () -> patient);
+
+        cache.evict(1, name);
+
+        assertEquals(0, cache.stats().getById().getSize());
+        assertEquals(0, cache.stats().getByName().getSize());
+    }
+
+    @Test
+    void evict_isRepeatedAfterCommit() {
+        PatientName name = new PatientName("John", "Doe");
+        TransactionSynchronizationManager.initSynchronization();
+
+        cache.evict(1, name);
+        // A concurrent read caches the state from before the commit
+        cache.get(name, () -> patient);
+        TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+
+        assertEquals(0, cache.stats().getByName().getSize());
+    }
+}
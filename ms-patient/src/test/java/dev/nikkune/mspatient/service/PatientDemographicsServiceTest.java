@@ -0,0 +1,91 @@
+package dev.nikkune.mspatient.service;
+
+import dev.nikkune.mspatient.dto.AgeBucketDTO;
+import dev.nikkune.mspatient.dto.DemographicsDTO;
+import dev.nikkune.mspatient.model.DemographicCount;
+import dev.nikkune.mspatient.repository.PatientRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class PatientDemographicsServiceTest {
+
+    @Mock
+    private PatientRepository patientRepository;
+
+    private PatientDemographicsService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new PatientDemographicsService(patientRepository, Duration.ofMinutes(1));
+    }
+
+    private DemographicCount count(String gender, int ageBucket, long patients) {
+        return new DemographicCount() {
+            @Override
+            public String getGender() {
+                return gender;
+            }
+
+            @Override
+            public Integer getAgeBucket() {
+                return ageBucket;
+            }
+
+            @Override
+            public Long getPatients() {
+                return patients;
+            }
+        };
+    }
+
+    @Test
+    void getDemographics_shouldAssembleBucketsFromCounts() {
+        when(patientRepository.countActiveByGenderAndAgeBucket(any(), any(), any(), any(), any())).thenReturn(List.of(
+                count("F", 0, 2), count("M", 0, 1), count("F", 3, 4), count("M", 5, 3)));
+
+        DemographicsDTO result = service.getDemographics();
+
+        assertEquals(LocalDate.now(), result.getAsOf());
+        assertEquals(10, result.getTotal());
+        assertEquals(Map.of("F", 6L, "M", 4L), result.getByGender());
+
+        List<AgeBucketDTO> buckets = result.getAgeBuckets();
+        assertEquals(6, buckets.size());
+        assertEquals(0, buckets.get(0).getMinAge());
+        assertEquals(17, buckets.get(0).getMaxAge());
+        assertEquals(3, buckets.get(0).getTotal());
+        assertEquals(Map.of("F", 2L, "M", 1L), buckets.get(0).getByGender());
+        assertEquals(0, buckets.get(1).getTotal());
+        assertTrue(buckets.get(1).getByGender().isEmpty());
+        assertEquals(45, buckets.get(3).getMinAge());
+        assertEquals(59, buckets.get(3).getMaxAge());
+        assertEquals(Map.of("F", 4L), buckets.get(3).getByGender());
+        assertEquals(75, buckets.get(5).getMinAge());
+        assertNull(buckets.get(5).getMaxAge());
+        assertEquals(3, buckets.get(5).getTotal());
+    }
+
+    @Test
+    void getDemographics_shouldServeCachedResult() {
+        when(patientRepository.countActiveByGenderAndAgeBucket(any(), any(), any(), any(), any())).thenReturn(List.of(count("F", 2, 1)));
+
+        DemographicsDTO first = service.getDemographics();
+        DemographicsDTO second = service.getDemographics();
+
+        assertSame(first, second);
+        verify(patientRepository, times(1)).countActiveByGenderAndAgeBucket(any(), any(), any(), any(), any());
+    }
+}
@@ -0,0 +1,101 @@
+package dev.nikkune.mspatient.service;
+
+import dev.nikkune.mspatient.dto.PatientEventDTO;
+import dev.nikkune.mspatient.dto.PatientEventHeadDTO;
+import dev.nikkune.mspatient.mapper.PatientMapper;
+import dev.nikkune.mspatient.model.Patient;
+import dev.nikkune.mspatient.model.PatientEvent;
+import dev.nikkune.mspatient.model.PatientEventType;
+import dev.nikkune.mspatient.repository.PatientEventEpochRepository;
+import dev.nikkune.mspatient.repository.PatientEventRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Limit;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class PatientEventServiceTest {
+
+    @Mock
+    private PatientEventRepository patientEventRepository;
+
+    @Mock
+    private PatientEventEpochRepository epochRepository;
+
+    @Mock
+    private PatientMapper mapper;
+
+    @InjectMocks
+    private PatientEventService service;
+
+    @Test
+    void record_shouldSaveEventWithPatientKey() {
+        Patient patient = new Patient();
+        patient.setId(7);
+        patient.setFirstName("John");
+        patient.setLastName("Doe");
+
+        service.record(PatientEventType.DELETED, patient);
+
+        ArgumentCaptor<PatientEvent> captor = ArgumentCaptor.forClass(PatientEvent.class);
+        verify(patientEventRepository).save(captor.capture());
+        PatientEvent saved = captor.getValue();
+        assertEquals(PatientEventType.DELETED, saved.getType());
+        assertEquals(7, saved.getPatientId());
+        assertEquals("John", saved.getFirstName());
+        assertEquals("Doe", saved.getLastName());
+        assertNotNull(saved.getCreatedAt());
+    }
+
+    @Test
+    void findAfter_shouldMapEventsInOrder() {
+        PatientEvent event = new PatientEvent();
+        event.setId(4L);
+        event.setType(PatientEventType.CREATED);
+        event.setCreatedAt(new Date());
+        PatientEventDTO dto = new PatientEventDTO();
+        dto.setId(4L);
+        when(patientEventRepository.findByIdGreaterThanOrderByIdAsc(3L, Limit.of(10))).thenReturn(List.of(event));
+        when(mapper.toEventDTO(event)).thenReturn(dto);
+
+        List<PatientEventDTO> result = service.findAfter(3L, 10);
+
+        assertEquals(1, result.size());
+        assertEquals(4L, result.get(0).getId());
+    }
+
+    @Test
+    void head_shouldReturnEpochAndLastId() {
+        when(patientEventRepository.findLastId()).thenReturn(12L);
+        when(epochRepository.findEpoch()).thenReturn(Optional.of("epoch-1"));
+
+        PatientEventHeadDTO head = service.head();
+
+        assertEquals("epoch-1", head.getEpoch());
+        assertEquals(12L, head.getLastId());
+    }
+
+    @Test
+    void epoch_shouldBeCreatedOnce_andSharedByEveryInstance() {
+        PatientEventService otherInstance = new PatientEventService(patientEventRepository, epochRepository, mapper);
+        when(epochRepository.insertIfAbsent(anyString())).thenReturn(1, 0);
+        when(epochRepository.findEpoch()).thenReturn(Optional.of("epoch-1"));
+
+        service.afterSingletonsInstantiated();
+        otherInstance.afterSingletonsInstantiated();
+
+        verify(epochRepository, times(2)).insertIfAbsent(anyString());
+        assertEquals("epoch-1", service.epoch());
+        assertEquals("epoch-1", otherInstance.epoch());
+    }
+}
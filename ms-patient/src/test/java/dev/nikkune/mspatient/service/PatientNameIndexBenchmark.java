@@ -0,0 +1,84 @@
+package dev.nikkune.mspatient.service;
+
+import dev.nikkune.mspatient.model.PatientName;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Stand-alone benchmark of {@link PatientNameIndex}: heap used by the index and latency of
+ * as-you-type searches, over {@code -Dpatients=1000000} generated names.
+ * <p>
+ * Every query is typed one character at a time, as the front desk would, and each keystroke is
+ * one search. A third of the queries contain a typo. Run with
+ * {@code java -cp target/classes:target/test-classes:<dependencies> dev.nikkune.mspatient.service.PatientNameIndexBenchmark}
+ * or from the IDE. It is not part of the test suite.
+ */
+public class PatientNameIndexBenchmark {
+    private static final String[] ONSETS = {"", "b", "br", "c", "ch", "d", "f", "g", "gr", "h", "j", "k", "l", "m", "n",
+            "p", "r", "s", "st", "t", "tr", "v", "w", "z"};
+    private static final String[] VOWELS = {"a", "e", "i", "o", "u", "ou", "ai", "ie", "y"};
+    private static final String[] CODAS = {"", "", "", "n", "r", "l", "s", "m", "t", "rd", "nd", "x"};
+    private static final int QUERIES = 1_000;
+
+    public static void main(String[] args) {
+        int count = Integer.getInteger("patients", 1_000_000);
+        Random random = new Random(42);
+        PatientName[] names = new PatientName[count];
+        for (int i = 0; i < count; i++) {
+            names[i] = new PatientName(word(random, 2), word(random, 3));
+        }
+
+        long heapBefore = usedHeap();
+        long start = System.nanoTime();
+        PatientNameIndex index = new PatientNameIndex();
+        for (int i = 0; i < count; i++) {
+            index.put(i + 1, names[i]);
+        }
+        index.compact();
+        long loadMillis = (System.nanoTime() - start) / 1_000_000;
+        // The names themselves are kept by the caller and counted before the index is built
+        long heapAfter = usedHeap();
+        System.out.printf("indexed %d patients in %d ms, %d MB of heap%n", index.size(), loadMillis, (heapAfter - heapBefore) >> 20);
+
+        for (int warmup = 0; warmup < 2; warmup++) {
+            long[] latencies = new long[QUERIES * 12];
+            int searches = 0;
+            for (int q = 0; q < QUERIES; q++) {
+                PatientName target = names[random.nextInt(count)];
+                String query = target.lastName() + " " + target.firstName();
+                if (q % 3 == 0) {
+                    int typo = 1 + random.nextInt(query.length() - 2);
+                    query = query.substring(0, typo) + query.charAt(typo + 1) + query.charAt(typo) + query.substring(typo + 2);
+                }
+                for (int typed = 1; typed <= query.length() && searches < latencies.length; typed++) {
+                    long begin = System.nanoTime();
+                    index.search(query.substring(0, typed), 10);
+                    latencies[searches++] = System.nanoTime() - begin;
+                }
+            }
+            long[] measured = Arrays.copyOf(latencies, searches);
+            Arrays.sort(measured);
+            System.out.printf("%d searches: p50 %.2f ms, p99 %.2f ms, max %.2f ms%n", searches,
+                    measured[searches / 2] / 1e6, measured[searches * 99 / 100] / 1e6, measured[searches - 1] / 1e6);
+        }
+    }
+
+    private static String word(Random random, int syllables) {
+        StringBuilder word = new StringBuilder();
+        for (int i = 0; i < syllables; i++) {
+            word.append(ONSETS[random.nextInt(ONSETS.length)])
+                    .append(VOWELS[random.nextInt(VOWELS.length)])
+                    .append(CODAS[random.nextInt(CODAS.length)]);
+        }
+        return Character.toUpperCase(word.charAt(0)) + word.substring(1);
+    }
+
+    private static long usedHeap() {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,88 @@
+package dev.nikkune.mspatient.service;
+
+import dev.nikkune.mspatient.dto.PatientSuggestionDTO;
+import dev.nikkune.mspatient.model.PatientName;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PatientNameIndexTest {
+
+    private PatientNameIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new PatientNameIndex();
+        index.put(1, new PatientName("John", "Johnson"));
+        index.put(2, new PatientName("Jane", "Doe"));
+        index.put(3, new PatientName("Hélène", "Martin"));
+        index.put(4, new PatientName("Johanna", "Smith"));
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    private List<Integer> ids(String query) {
+        return index.search(query, 10).stream().map(PatientSuggestionDTO::getId).toList();
+    }
+
+    @Test
+    void search_matchesPrefixesOfEitherName_bestFirst() {
+        assertEquals(List.of(1, 4), ids("joh"));
+        assertEquals(List.of(2), ids("doe ja"));
+    }
+
+    @Test
+    void search_toleratesTyposAndAccents() {
+        assertEquals(1, ids("jonhson").get(0));
+        assertEquals(List.of(3), ids("helene"));
+    }
+
+    @Test
+    void search_respectsLimit_andIgnoresBlankQueries() {
+        assertEquals(1, index.search("j", 1).size());
+        assertTrue(index.search(" - ", 10).isEmpty());
+    }
+
+    @Test
+    void put_replacesPreviousName_andRemoveUnindexes() {
+        index.put(2, new PatientName("Jane", "Roe"));
+        index.remove(1);
+
+        assertTrue(ids("doe").isEmpty());
+        assertEquals(List.of(2), ids("roe"));
+        assertEquals(List.of(4), ids("joh"));
+        assertEquals(3, index.size());
+    }
+
+    @Test
+    void search_ranksByTrigramsSharedAcrossPostings_withSparseIds() {
+        index.put(5_000_000, new PatientName("John", "Jonson"));
+        index.put(7, new PatientName("Jon", "Smith"));
+
+        assertEquals(List.of(5_000_000, 1), ids("john jonson").subList(0, 2));
+        assertEquals(5_000_000, ids("jonson").get(0));
+        assertEquals(6, index.size());
+    }
+
+    @Test
+    void changes_areAppliedAfterCommit() {
+        TransactionSynchronizationManager.initSynchronization();
+
+        index.put(5, new PatientName("Zoe", "Zimmer"));
+        assertTrue(ids("zim").isEmpty());
+
+        TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        assertEquals(List.of(5), ids("zim"));
+    }
+}
@@ -0,0 +1,63 @@
+package dev.nikkune.mspatient.service;
+
+import dev.nikkune.mspatient.MsPatientApplication;
+import dev.nikkune.mspatient.dto.BulkRegistrationDTO;
+import dev.nikkune.mspatient.dto.PatientDTO;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Stand-alone benchmark comparing the throughput of registering patients one request at a time
+ * through {@link IPatientService#registerPatient} with a single call to
+ * {@link IPatientService#registerPatients}.
+ * <p>
+ * It starts the application against the configured datasource and registers
+ * {@code -Dpatients=100000} new patients with each method, under names not used by earlier runs.
+ * Application arguments such as {@code --spring.datasource.url=...} are passed through. Run with
+ * {@code java -cp target/classes:target/test-classes:<dependencies> dev.nikkune.mspatient.service.PatientRegistrationBenchmark}
+ * or from the IDE. It is not part of the test suite.
+ */
+public class PatientRegistrationBenchmark {
+
+    public static void main(String[] args) {
+        int count = Integer.getInteger("patients", 100_000);
+        try (ConfigurableApplicationContext context = SpringApplication.run(MsPatientApplication.class, args)) {
+            IPatientService patientService = context.getBean(IPatientService.class);
+            String run = Long.toString(System.currentTimeMillis(), 36);
+
+            long start = System.nanoTime();
+            for (PatientDTO patient : patients("Single" + run, count)) {
+                patientService.registerPatient(patient);
+            }
+            report("registerPatient", count, System.nanoTime() - start);
+
+            start = System.nanoTime();
+            BulkRegistrationDTO result = patientService.registerPatients(patients("Bulk" + run, count));
+            report("registerPatients", result.getRegistered(), System.nanoTime() - start);
+        }
+    }
+
+    private static List<PatientDTO> patients(String prefix, int count) {
+        List<PatientDTO> patients = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            PatientDTO patient = new PatientDTO();
+            patient.setFirstName(prefix + i);
+            patient.setLastName("Patient" + i);
+            patient.setBirthDate(new Date(0));
+            patient.setGender(i % 2 == 0 ? "F" : "M");
+            patient.setAddress(i + " Benchmark Street");
+            patient.setPhoneNumber("100-000-0000");
+            patients.add(patient);
+        }
+        return patients;
+    }
+
+    private static void report(String name, int registered, long elapsedNanos) {
+        System.out.printf("%-18s %8d patients %8d ms %10.0f patients/s%n",
+                name, registered, elapsedNanos / 1_000_000, registered * 1e9 / elapsedNanos);
+    }
+}
@@ -1,21 +1,45 @@
 package dev.nikkune.mspatient.service;
 
+import dev.nikkune.mspatient.dto.BulkRegistrationDTO;
 import dev.nikkune.mspatient.dto.PatientDTO;
+import dev.nikkune.mspatient.dto.PatientKeyDTO;
+import dev.nikkune.mspatient.dto.PatientPageDTO;
+import dev.nikkune.mspatient.dto.PatientSuggestionDTO;
+import dev.nikkune.mspatient.dto.RiskDTO;
 import dev.nikkune.mspatient.mapper.PatientMapper;
 import dev.nikkune.mspatient.model.Patient;
+import dev.nikkune.mspatient.model.PatientEventType;
+import dev.nikkune.mspatient.model.PatientName;
+import dev.nikkune.mspatient.model.PatientRiskView;
+import dev.nikkune.mspatient.model.PatientSearchCriteria;
 import dev.nikkune.mspatient.repository.PatientRepository;
+import jakarta.persistence.EntityManager;
+import org.hibernate.exception.ConstraintViolationException;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
-
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -29,6 +53,21 @@ class PatientServiceTest {
     @Mock
     private PatientMapper mapper;
 
+    @Mock
+    private IPatientEventService patientEventService;
+
+    @Mock
+    private EntityManager entityManager;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Spy
+    private PatientCache patientCache = new PatientCache(100, Duration.ofMinutes(10));
+
+    @Spy
+    private PatientNameIndex nameIndex = new PatientNameIndex();
+
     @InjectMocks
     private PatientService service;
 
@@ -68,15 +107,79 @@ class PatientServiceTest {
     }
 
     @Test
-    void findAll_shouldReturnMappedDTOs() {
-        when(patientRepository.findAllByActiveTrue()).thenReturn(Arrays.asList(activePatient));
+    void loadNameIndex_shouldIndexEveryActivePatientPageByPage() {
+        List<Patient> fullPage = new ArrayList<>();
+        for (int id = 1; id <= PatientService.NAME_INDEX_LOAD_CHUNK_SIZE; id++) {
+            Patient patient = new Patient();
+            patient.setId(id);
+            patient.setFirstName("First" + id);
+            patient.setLastName("Last" + id);
+            fullPage.add(patient);
+        }
+        when(patientRepository.findByActiveTrueAndIdGreaterThanOrderByIdAsc(0, Limit.of(PatientService.NAME_INDEX_LOAD_CHUNK_SIZE)))
+                .thenReturn(fullPage);
+        when(patientRepository.findByActiveTrueAndIdGreaterThanOrderByIdAsc(PatientService.NAME_INDEX_LOAD_CHUNK_SIZE, Limit.of(PatientService.NAME_INDEX_LOAD_CHUNK_SIZE)))
+                .thenReturn(List.of(activePatient));
+        activePatient.setId(PatientService.NAME_INDEX_LOAD_CHUNK_SIZE + 1);
+
+        service.loadNameIndex();
+
+        assertEquals(PatientService.NAME_INDEX_LOAD_CHUNK_SIZE + 1, nameIndex.size());
+        assertEquals(activePatient.getId(), service.suggest("john do", 1).get(0).getId());
+    }
+
+    @Test
+    void findPage_shouldReturnNextAfter_whenMorePatientsFollow() {
+        when(patientRepository.findByActiveTrueAndIdGreaterThanOrderByIdAsc(0, Limit.of(2)))
+                .thenReturn(Arrays.asList(activePatient, inactivePatient));
+        when(mapper.toDTO(any(Patient.class))).thenReturn(dto);
+
+        PatientPageDTO page = service.findPage(0, 1, false);
+
+        assertEquals(1, page.getContent().size());
+        assertEquals(1, page.getNextAfter());
+        assertNull(page.getTotalElements());
+        verify(patientRepository, never()).countByActiveTrue();
+    }
+
+    @Test
+    void findPage_shouldEndAndCount_onLastPage() {
+        when(patientRepository.findByActiveTrueAndIdGreaterThanOrderByIdAsc(1, Limit.of(11)))
+                .thenReturn(List.of(activePatient));
+        when(patientRepository.countByActiveTrue()).thenReturn(2L);
         when(mapper.toDTO(any(Patient.class))).thenReturn(dto);
 
-        List<PatientDTO> result = service.findAll();
+        PatientPageDTO page = service.findPage(1, 10, true);
 
-        assertEquals(1, result.size(), "Only active patients should be returned");
-        verify(patientRepository, times(1)).findAllByActiveTrue();
-        verify(mapper, times(1)).toDTO(any(Patient.class));
+        assertEquals(1, page.getContent().size());
+        assertNull(page.getNextAfter());
+        assertEquals(2L, page.getTotalElements());
+    }
+
+    @Test
+    void search_shouldPageAndCountMatchingPatients() {
+        when(patientRepository.findBy(any(Specification.class), any())).thenReturn(Arrays.asList(activePatient, inactivePatient));
+        when(patientRepository.count(any(Specification.class))).thenReturn(5L);
+        when(mapper.toDTO(any(Patient.class))).thenReturn(dto);
+
+        PatientPageDTO page = service.search(new PatientSearchCriteria("Do", null, "M", null, null, true), 0, 1, true);
+
+        assertEquals(1, page.getContent().size());
+        assertEquals(1, page.getNextAfter());
+        assertEquals(5L, page.getTotalElements());
+    }
+
+    @Test
+    void exportActive_shouldDetachEachPatientOnceConsumed() {
+        when(patientRepository.streamAllActive()).thenReturn(Stream.of(activePatient, inactivePatient));
+        when(mapper.toDTO(any(Patient.class))).thenReturn(dto);
+        List<PatientDTO> exported = new ArrayList<>();
+
+        service.exportActive(exported::add);
+
+        assertEquals(2, exported.size());
+        verify(entityManager).detach(activePatient);
+        verify(entityManager).detach(inactivePatient);
     }
 
     @Test
@@ -91,6 +194,33 @@ class PatientServiceTest {
         verify(mapper).toDTO(activePatient);
     }
 
+    @Test
+    void findById_shouldServeRepeatReadsFromCache() {
+        when(patientRepository.findById(1)).thenReturn(Optional.of(activePatient));
+        when(mapper.toDTO(activePatient)).thenReturn(dto);
+
+        service.findById(1);
+        PatientDTO result = service.findById(1);
+
+        assertSame(dto, result);
+        verify(patientRepository, times(1)).findById(1);
+        assertEquals(1, service.cacheStats().getById().getHitCount());
+    }
+
+    @Test
+    void findByFirstNameAndLastName_shouldReload_afterDelete() {
+        when(patientRepository.findByFirstNameAndLastNameAndActiveTrue("John", "Doe")).thenReturn(activePatient, (Patient) null);
+        when(mapper.toDTO(activePatient)).thenReturn(dto);
+        when(patientRepository.findActiveId("John", "Doe")).thenReturn(Optional.of(1));
+        when(patientRepository.deactivate(1)).thenReturn(1);
+
+        service.findByFirstNameAndLastName("John", "Doe");
+        service.delete("John", "Doe");
+
+        assertThrows(RuntimeException.class, () -> service.findByFirstNameAndLastName("John", "Doe"));
+        verify(patientCache).evict(1, new PatientName("John", "Doe"));
+    }
+
     @Test
     void findById_shouldThrow_whenNotFound() {
         when(patientRepository.findById(99)).thenReturn(Optional.empty());
@@ -122,12 +252,108 @@ class PatientServiceTest {
         assertThrows(RuntimeException.class, () -> service.findByFirstNameAndLastName("Ghost", "User"));
     }
 
+    private static PatientRiskView riskView(String firstName, String lastName, String gender) {
+        PatientRiskView view = mock(PatientRiskView.class);
+        lenient().when(view.getFirstName()).thenReturn(firstName);
+        lenient().when(view.getLastName()).thenReturn(lastName);
+        lenient().when(view.getGender()).thenReturn(gender);
+        return view;
+    }
+
+    @Test
+    void findActiveId_shouldReadIdOnly_whenNotCached() {
+        when(patientRepository.findActiveId("John", "Doe")).thenReturn(Optional.of(7));
+
+        assertEquals(7, service.findActiveId("John", "Doe"));
+        verify(patientRepository, never()).findByFirstNameAndLastNameAndActiveTrue(any(), any());
+    }
+
+    @Test
+    void findActiveId_shouldReturnNull_whenMissing() {
+        when(patientRepository.findActiveId("Ghost", "User")).thenReturn(Optional.empty());
+
+        assertNull(service.findActiveId("Ghost", "User"));
+    }
+
+    @Test
+    void getRiskInfo_shouldLoadThroughCache_onceForRepeatedLookups() {
+        when(patientRepository.findByFirstNameAndLastNameAndActiveTrue("John", "Doe")).thenReturn(activePatient);
+        when(mapper.toDTO(activePatient)).thenReturn(dto);
+        RiskDTO risk = new RiskDTO();
+        when(mapper.toRiskDTO(dto)).thenReturn(risk);
+
+        assertSame(risk, service.getRiskInfo("John", "Doe"));
+        assertSame(risk, service.getRiskInfo("John", "Doe"));
+        verify(patientRepository, times(1)).findByFirstNameAndLastNameAndActiveTrue("John", "Doe");
+    }
+
+    @Test
+    void getRiskInfo_shouldUseCachedPatient_whenPresent() {
+        when(patientRepository.findByFirstNameAndLastNameAndActiveTrue("John", "Doe")).thenReturn(activePatient);
+        when(mapper.toDTO(activePatient)).thenReturn(dto);
+        RiskDTO risk = new RiskDTO();
+        when(mapper.toRiskDTO(dto)).thenReturn(risk);
+        service.findByFirstNameAndLastName("John", "Doe");
+
+        assertSame(risk, service.getRiskInfo("John", "Doe"));
+        verify(patientRepository, times(1)).findByFirstNameAndLastNameAndActiveTrue("John", "Doe");
+    }
+
+    @Test
+    void getRiskInfo_shouldThrow_whenMissing() {
+        when(patientRepository.findByFirstNameAndLastNameAndActiveTrue("Ghost", "User")).thenReturn(null);
+        assertThrows(RuntimeException.class, () -> service.getRiskInfo("Ghost", "User"));
+    }
+
+    @Test
+    void getRiskInfo_bulk_shouldKeepRequestedPairsOnly_inRequestOrder() {
+        PatientRiskView johnDoe = riskView("John", "Doe", "M");
+        PatientRiskView janeDoe = riskView("Jane", "Doe", "F");
+        PatientRiskView johnRoe = riskView("John", "Roe", "M");
+        when(patientRepository.findRiskViewsByActiveTrueAndLastNameInAndFirstNameIn(Set.of("Doe", "Roe"), Set.of("John", "Jane")))
+                .thenReturn(List.of(johnDoe, janeDoe, johnRoe));
+        RiskDTO risk = new RiskDTO();
+        when(mapper.toRiskDTO(any(PatientRiskView.class))).thenReturn(risk);
+
+        Map<PatientName, RiskDTO> result = service.getRiskInfo(List.of(
+                new PatientName("Jane", "Roe"), new PatientName("John", "Roe"), new PatientName("John", "Doe")));
+
+        assertEquals(List.of(new PatientName("John", "Roe"), new PatientName("John", "Doe")), List.copyOf(result.keySet()));
+        verify(mapper, never()).toRiskDTO(janeDoe);
+    }
+
+    @Test
+    void getRiskInfo_bulk_shouldFindCaseAndAccentVariants_underTheRequestedName() {
+        PatientRiskView stored = riskView("Zoé", "Doe", "F");
+        when(patientRepository.findRiskViewsByActiveTrueAndLastNameInAndFirstNameIn(Set.of("DOE"), Set.of("zoe")))
+                .thenReturn(List.of(stored));
+        RiskDTO risk = new RiskDTO();
+        when(mapper.toRiskDTO(stored)).thenReturn(risk);
+
+        Map<PatientName, RiskDTO> result = service.getRiskInfo(List.of(new PatientName("zoe", "DOE")));
+
+        assertEquals(Map.of(new PatientName("zoe", "DOE"), risk), result);
+    }
+
+    @Test
+    void getRiskInfo_bulk_shouldQueryOncePerChunk() {
+        List<PatientName> names = new ArrayList<>();
+        for (int i = 0; i <= PatientService.RISK_LOOKUP_CHUNK_SIZE; i++) {
+            names.add(new PatientName("First" + i, "Last" + i));
+        }
+        when(patientRepository.findRiskViewsByActiveTrueAndLastNameInAndFirstNameIn(anyCollection(), anyCollection()))
+                .thenReturn(List.of());
+
+        assertTrue(service.getRiskInfo(names).isEmpty());
+        verify(patientRepository, times(2)).findRiskViewsByActiveTrueAndLastNameInAndFirstNameIn(anyCollection(), anyCollection());
+    }
+
     @Test
     void registerPatient_shouldSetActiveTrueAndReturnDTO() {
         // mapper to entity
         when(mapper.toPatient(dto)).thenReturn(activePatient);
         // repo save returns entity (assume active gets saved)
-        when(patientRepository.save(any(Patient.class))).thenAnswer(inv -> inv.getArgument(0));
+        when(patientRepository.saveAndFlush(any(Patient.class))).thenAnswer(inv -> inv.getArgument(0));
         when(mapper.toDTO(any(Patient.class))).thenReturn(dto);
 
         PatientDTO result = service.registerPatient(dto);
@@ -135,13 +361,193 @@ class PatientServiceTest {
         assertNotNull(result);
 
         ArgumentCaptor<Patient> captor = ArgumentCaptor.forClass(Patient.class);
-        verify(patientRepository).save(captor.capture());
+        verify(patientRepository).saveAndFlush(captor.capture());
         Patient saved = captor.getValue();
         assertTrue(saved.getActive(), "Active flag should be set to true on registration");
+        verify(patientEventService).record(PatientEventType.CREATED, saved);
+        verify(patientRepository, never()).findByFirstNameAndLastNameAndActiveTrue(any(), any());
+        verify(nameIndex).put(saved.getId(), new PatientName("John", "Doe"));
+    }
+
+    @Test
+    void registerPatient_shouldReportConflict_whenActiveNameIsTaken() {
+        when(mapper.toPatient(dto)).thenReturn(activePatient);
+        when(patientRepository.saveAndFlush(any(Patient.class))).thenThrow(new DataIntegrityViolationException("duplicate",
+                new ConstraintViolationException("duplicate", new SQLException(), "PATIENT.UK_PATIENT_ACTIVE_NAME")));
+
+        RuntimeException e = assertThrows(RuntimeException.class, () -> service.registerPatient(dto));
+
+        assertTrue(e.getMessage().contains("already exists"));
+        verifyNoInteractions(patientEventService);
+    }
+
+    @Test
+    void registerPatient_shouldRethrow_whenAnotherConstraintFails() {
+        when(mapper.toPatient(dto)).thenReturn(activePatient);
+        DataIntegrityViolationException failure = new DataIntegrityViolationException("not null",
+                new ConstraintViolationException("not null", new SQLException(), null));
+        when(patientRepository.saveAndFlush(any(Patient.class))).thenThrow(failure);
+
+        assertSame(failure, assertThrows(DataIntegrityViolationException.class, () -> service.registerPatient(dto)));
+    }
+
+    @Test
+    void registerPatients_shouldSkipDuplicates_andRecordEventsPerChunk() {
+        PatientDTO jane = new PatientDTO();
+        jane.setFirstName("Jane");
+        jane.setLastName("Doe");
+        PatientDTO janeAgain = new PatientDTO();
+        janeAgain.setFirstName("Jane");
+        janeAgain.setLastName("Doe");
+        when(patientRepository.findActiveNames(Set.of("Doe"), Set.of("John", "Jane"))).thenReturn(List.of(new PatientName("John", "Doe")));
+        Patient janeEntity = new Patient();
+        when(mapper.toPatient(jane)).thenReturn(janeEntity);
+        when(patientRepository.saveAllAndFlush(List.of(janeEntity))).thenAnswer(inv -> {
+            janeEntity.setId(9);
+            return inv.getArgument(0);
+        });
+
+        BulkRegistrationDTO result = service.registerPatients(List.of(dto, jane, janeAgain));
+
+        assertEquals(1, result.getRegistered());
+        assertEquals(List.of(new PatientKeyDTO("John", "Doe"), new PatientKeyDTO("Jane", "Doe")), result.getDuplicates());
+        assertEquals(0, result.getNotProcessed());
+        assertTrue(janeEntity.getActive());
+        verify(patientEventService).recordAll(PatientEventType.CREATED, List.of(9));
+        verify(entityManager).clear();
+        verify(transactionManager).commit(any());
+    }
+
+    @Test
+    void registerPatients_shouldReportCaseAndAccentVariantsAsDuplicates() {
+        PatientDTO heloise = new PatientDTO();
+        heloise.setFirstName("Héloïse");
+        heloise.setLastName("Doe");
+        PatientDTO heloiseVariant = new PatientDTO();
+        heloiseVariant.setFirstName("heloise");
+        heloiseVariant.setLastName("DOE");
+        when(patientRepository.findActiveNames(any(), any())).thenReturn(List.of(new PatientName("JOHN", "DOE")));
+        Patient heloiseEntity = new Patient();
+        when(mapper.toPatient(heloise)).thenReturn(heloiseEntity);
+        when(patientRepository.saveAllAndFlush(List.of(heloiseEntity))).thenAnswer(inv -> {
+            heloiseEntity.setId(9);
+            return inv.getArgument(0);
+        });
+
+        BulkRegistrationDTO result = service.registerPatients(List.of(dto, heloise, heloiseVariant));
+
+        assertEquals(1, result.getRegistered());
+        assertEquals(List.of(new PatientKeyDTO("John", "Doe"), new PatientKeyDTO("heloise", "DOE")), result.getDuplicates());
+        assertEquals(0, result.getNotProcessed());
+        verify(transactionManager, times(1)).commit(any());
+    }
+
+    @Test
+    void registerPatients_shouldRetryChunk_andReportDuplicate_whenNameIsRegisteredConcurrently() {
+        PatientDTO jane = new PatientDTO();
+        jane.setFirstName("Jane");
+        jane.setLastName("Doe");
+        when(patientRepository.findActiveNames(any(), any()))
+                .thenReturn(List.of())
+                .thenReturn(List.of(new PatientName("John", "Doe")));
+        when(mapper.toPatient(dto)).thenReturn(activePatient);
+        Patient janeEntity = new Patient();
+        janeEntity.setFirstName("Jane");
+        janeEntity.setLastName("Doe");
+        when(mapper.toPatient(jane)).thenReturn(janeEntity);
+        when(patientRepository.saveAllAndFlush(any()))
+                .thenThrow(nameConflict())
+                .thenAnswer(inv -> {
+                    janeEntity.setId(9);
+                    return inv.getArgument(0);
+                });
+
+        BulkRegistrationDTO result = service.registerPatients(List.of(dto, jane));
+
+        assertEquals(1, result.getRegistered());
+        assertEquals(List.of(new PatientKeyDTO("John", "Doe")), result.getDuplicates());
+        assertEquals(0, result.getNotProcessed());
+        assertEquals(List.of(9), nameIndex.search("jane", 10).stream().map(PatientSuggestionDTO::getId).toList());
+        verify(transactionManager).rollback(any());
+        verify(transactionManager).commit(any());
+    }
+
+    @Test
+    void registerPatients_shouldReportConflict_whenRetryConflictsAgain() {
+        when(patientRepository.findActiveNames(any(), any())).thenReturn(List.of());
+        when(mapper.toPatient(dto)).thenReturn(activePatient);
+        when(patientRepository.saveAllAndFlush(any())).thenThrow(nameConflict());
+
+        BulkRegistrationDTO result = service.registerPatients(List.of(dto));
+
+        assertEquals(0, result.getRegistered());
+        assertEquals(1, result.getNotProcessed());
+        assertTrue(result.getError().contains("already exists"));
+        assertEquals(List.of(), result.getDuplicates());
+        verify(patientRepository, times(2)).saveAllAndFlush(any());
+        verifyNoInteractions(patientEventService);
+    }
+
+    @Test
+    void registerPatients_shouldKeepCommittedChunks_andReportTheRest_whenAChunkFails() {
+        List<PatientDTO> patients = new ArrayList<>();
+        for (int i = 0; i <= PatientService.REGISTRATION_CHUNK_SIZE; i++) {
+            PatientDTO patient = new PatientDTO();
+            patient.setFirstName("Patient" + i);
+            patient.setLastName("Bulk");
+            patients.add(patient);
+        }
+        when(patientRepository.findActiveNames(any(), any())).thenReturn(List.of());
+        when(mapper.toPatient(any(PatientDTO.class))).thenAnswer(inv -> {
+            PatientDTO patient = inv.getArgument(0);
+            Patient entity = new Patient();
+            entity.setFirstName(patient.getFirstName());
+            entity.setLastName(patient.getLastName());
+            return entity;
+        });
+        when(patientRepository.saveAllAndFlush(any()))
+                .thenAnswer(inv -> {
+                    List<Patient> entities = inv.getArgument(0);
+                    for (int i = 0; i < entities.size(); i++) {
+                        entities.get(i).setId(100 + i);
+                    }
+                    return entities;
+                })
+                .thenThrow(new DataAccessResourceFailureException("connection lost"));
+
+        BulkRegistrationDTO result = service.registerPatients(patients);
+
+        assertEquals(PatientService.REGISTRATION_CHUNK_SIZE, result.getRegistered());
+        assertEquals(1, result.getNotProcessed());
+        assertEquals("connection lost", result.getError());
+        assertEquals(PatientService.REGISTRATION_CHUNK_SIZE, nameIndex.size());
+        verify(patientEventService, times(1)).recordAll(eq(PatientEventType.CREATED), any());
+        verify(transactionManager).commit(any());
+        verify(transactionManager).rollback(any());
+    }
+
+    @Test
+    void update_shouldPatchInOneStatement_whenNoVersion() {
+        PatientDTO patch = new PatientDTO();
+        patch.setFirstName("John");
+        patch.setLastName("Doe");
+        patch.setAddress("New Address");
+        when(patientRepository.patchActive("John", "Doe", null, null, "New Address", null)).thenReturn(1);
+        when(patientRepository.findByFirstNameAndLastNameAndActiveTrue("John", "Doe")).thenReturn(activePatient);
+        when(mapper.toDTO(activePatient)).thenReturn(dto);
+
+        PatientDTO result = service.update(patch);
+
+        assertSame(dto, result);
+        verify(mapper, never()).updatePatient(any(PatientDTO.class), any(Patient.class));
+        verify(patientRepository, never()).saveAndFlush(any(Patient.class));
+        verify(patientEventService).record(PatientEventType.UPDATED, activePatient);
+        verify(patientCache).evict(1, new PatientName("John", "Doe"));
     }
 
     @Test
-    void update_shouldPersistChanges_whenActive() {
+    void update_shouldPersistChanges_whenVersionMatches() {
+        activePatient.setVersion(3);
         when(patientRepository.findByFirstNameAndLastNameAndActiveTrue("John", "Doe")).thenReturn(activePatient);
         // mapper.updatePatient is void; we ensure it is invoked
         doAnswer(inv -> {
@@ -151,20 +557,37 @@ class PatientServiceTest {
             return null;
         }).when(mapper).updatePatient(any(PatientDTO.class), any(Patient.class));
 
-        when(patientRepository.save(activePatient)).thenReturn(activePatient);
+        when(patientRepository.saveAndFlush(activePatient)).thenReturn(activePatient);
         when(mapper.toDTO(activePatient)).thenReturn(dto);
 
         PatientDTO patch = new PatientDTO();
         patch.setFirstName("John");
         patch.setLastName("Doe");
+        patch.setVersion(3);
         patch.setAddress("New Address");
 
         PatientDTO result = service.update(patch);
         assertNotNull(result);
         verify(patientRepository).findByFirstNameAndLastNameAndActiveTrue("John", "Doe");
         verify(mapper).updatePatient(patch, activePatient);
-        verify(patientRepository).save(activePatient);
+        verify(patientRepository).saveAndFlush(activePatient);
         verify(mapper).toDTO(activePatient);
+        verify(patientEventService).record(PatientEventType.UPDATED, activePatient);
+    }
+
+    @Test
+    void update_shouldThrowConflict_whenVersionIsStale() {
+        activePatient.setVersion(4);
+        when(patientRepository.findByFirstNameAndLastNameAndActiveTrue("John", "Doe")).thenReturn(activePatient);
+
+        PatientDTO patch = new PatientDTO();
+        patch.setFirstName("John");
+        patch.setLastName("Doe");
+        patch.setVersion(3);
+
+        assertThrows(OptimisticLockingFailureException.class, () -> service.update(patch));
+        verify(patientRepository, never()).saveAndFlush(any(Patient.class));
+        verifyNoInteractions(patientEventService);
     }
 
     @Test
@@ -172,24 +595,45 @@ class PatientServiceTest {
         PatientDTO ghost = new PatientDTO();
         ghost.setFirstName("Ghost");
         ghost.setLastName("User");
-        when(patientRepository.findByFirstNameAndLastNameAndActiveTrue("Ghost", "User")).thenReturn(null);
-        assertThrows(RuntimeException.class, () -> service.update(ghost));
+        when(patientRepository.patchActive("Ghost", "User", null, null, null, null)).thenReturn(0);
+        RuntimeException e = assertThrows(RuntimeException.class, () -> service.update(ghost));
+        assertTrue(e.getMessage().contains("does not exist"));
+        verifyNoInteractions(patientEventService);
     }
 
     @Test
-    void delete_shouldSoftDelete_whenActive() {
-        when(patientRepository.findByFirstNameAndLastNameAndActiveTrue("John", "Doe")).thenReturn(activePatient);
-        when(patientRepository.save(any(Patient.class))).thenAnswer(inv -> inv.getArgument(0));
+    void delete_shouldSoftDeleteInOneStatement_whenActive() {
+        when(patientRepository.findActiveId("John", "Doe")).thenReturn(Optional.of(1));
+        when(patientRepository.deactivate(1)).thenReturn(1);
 
         service.delete("John", "Doe");
 
-        assertFalse(activePatient.getActive(), "Patient should be marked inactive on delete");
-        verify(patientRepository).save(activePatient);
+        verify(patientRepository, never()).save(any(Patient.class));
+        verify(patientEventService).recordAll(PatientEventType.DELETED, List.of(1));
+        verify(patientCache).evict(1, new PatientName("John", "Doe"));
+        verify(nameIndex).remove(1);
     }
 
     @Test
     void delete_shouldThrow_whenNotFound() {
-        when(patientRepository.findByFirstNameAndLastNameAndActiveTrue("Ghost", "User")).thenReturn(null);
+        when(patientRepository.findActiveId("Ghost", "User")).thenReturn(Optional.empty());
         assertThrows(RuntimeException.class, () -> service.delete("Ghost", "User"));
+        verifyNoInteractions(patientEventService);
+    }
+
+    @Test
+    void delete_shouldThrow_whenDeletedConcurrently() {
+        when(patientRepository.findActiveId("John", "Doe")).thenReturn(Optional.of(1));
+        when(patientRepository.deactivate(1)).thenReturn(0);
+
+        RuntimeException e = assertThrows(RuntimeException.class, () -> service.delete("John", "Doe"));
+        assertTrue(e.getMessage().contains("does not exist"));
+        verifyNoInteractions(patientEventService);
+        verify(nameIndex, never()).remove(1);
+    }
+
+    private static DataIntegrityViolationException nameConflict() {
+        return new DataIntegrityViolationException("duplicate",
+                new ConstraintViolationException("duplicate", new SQLException(), "PATIENT.UK_PATIENT_ACTIVE_NAME"));
     }
 }
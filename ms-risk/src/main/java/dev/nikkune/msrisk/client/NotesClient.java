@@ -5,6 +5,8 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Component;
 import org.springframework.web.client.HttpClientErrorException;
@@ -13,12 +15,18 @@ import org.springframework.web.util.UriComponentsBuilder;
 
 import java.nio.charset.StandardCharsets;
 import java.util.Base64;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Client class for interacting with the Notes microservice. This class provides
  * functionality to check the existence of a note based on their first and last name.
  * It uses a REST client to make requests to the configured note service API.
+ * <p>
+ * The last notes list received for each patient is kept with its {@code ETag}, so repeated
+ * requests are revalidated with {@code If-None-Match} and an unchanged list is not downloaded again.
  */
 @Component
 public class NotesClient {
@@ -27,6 +35,7 @@ public class NotesClient {
     private final RestClient restClient;
     private final String baseUrl;
     private final String authHeader;
+    private final Map<String, CachedNotes> notesByPatient;
 
     /**
      * Constructs a NotesClient instance for interacting with the Notes microservice.
@@ -35,11 +44,13 @@ public class NotesClient {
      * @param baseUrl  the base URL of the Notes microservice, loaded from application properties.
      * @param username the username for Basic authentication with the Notes microservice. Defaults to "medilabo".
      * @param password the password for Basic authentication with the Notes microservice. Defaults to "medilabo123".
+     * @param cacheSize the maximum number of patients whose last notes list is kept for revalidation. Defaults to 1000.
      */
     public NotesClient(
             @Value("${ms.notes.base-url}") String baseUrl,
             @Value("${ms.notes.username:medilabo}") String username,
-            @Value("${ms.notes.password:medilabo123}") String password) {
+            @Value("${ms.notes.password:medilabo123}") String password,
+            @Value("${ms.notes.etag-cache.max-size:1000}") int cacheSize) {
         this.baseUrl = baseUrl;
 
         // Créer l'en-tête Basic Auth
@@ -49,28 +60,59 @@ public class NotesClient {
         this.authHeader = "Basic " + encodedCredentials;
 
         this.restClient = RestClient.create();
+
+        this.notesByPatient = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedNotes> eldest) {
+                return size() > cacheSize;
+            }
+        });
     }
 
-    public List<String> allPatientNotes(String firstName, String lastName) {
+    /**
+     * Retrieves every active note of a patient. When a list was already received for this patient,
+     * the request is conditional and a 304 Not Modified answer reuses that list.
+     *
+     * @param firstName the first name of the patient
+     * @param lastName  the last name of the patient
+     * @return the notes of the patient, with their text and content hash
+     */
+    public List<NoteDTO> allPatientNotes(String firstName, String lastName) {
         String url = UriComponentsBuilder.fromHttpUrl(baseUrl)
                 .queryParam("firstName", firstName)
                 .queryParam("lastName", lastName)
                 .toUriString();
+        String key = firstName + '\u0000' + lastName;
+        CachedNotes cached = notesByPatient.get(key);
         try {
             ResponseEntity<List<NoteDTO>> response = restClient.get()
                     .uri(url)
                     .header("Authorization", authHeader)
+                    .headers(headers -> {
+                        if (cached != null) {
+                            headers.setIfNoneMatch(cached.eTag());
+                        }
+                    })
                     .retrieve()
                     .toEntity(new ParameterizedTypeReference<List<NoteDTO>>() {
                     });
 
+            if (cached != null && response.getStatusCode() == HttpStatus.NOT_MODIFIED) {
+                logger.debug("Notes of {} {} not modified", firstName, lastName);
+                return cached.notes();
+            }
             List<NoteDTO> notes = response.getBody();
             if (notes == null) {
                 logger.warn("No notes found for {} {}", firstName, lastName);
                 throw new RuntimeException("No notes found");
             }
-            return notes.stream().map(NoteDTO::getNote).toList();
+            String eTag = response.getHeaders().getFirst(HttpHeaders.ETAG);
+            if (eTag != null) {
+                notesByPatient.put(key, new CachedNotes(eTag, notes));
+            }
+            return notes;
         } catch (HttpClientErrorException.NotFound e) {
+            notesByPatient.remove(key);
             logger.warn("No notes found for {} {}", firstName, lastName);
             throw new RuntimeException("No notes found", e);
         } catch (HttpClientErrorException e) {
@@ -81,4 +123,7 @@ public class NotesClient {
             throw new RuntimeException("Failed to retrieve notes", e);
         }
     }
+
+    private record CachedNotes(String eTag, List<NoteDTO> notes) {
+    }
 }
@@ -8,6 +8,7 @@ import java.util.Date;
 public class NoteDTO {
     private String id;
     private String note;
+    private String contentHash;
     private Date createdAt;
     private Date updatedAt;
 }
@@ -2,12 +2,15 @@ package dev.nikkune.msrisk.service;
 
 import dev.nikkune.msrisk.client.NotesClient;
 import dev.nikkune.msrisk.client.PatientClient;
+import dev.nikkune.msrisk.dto.NoteDTO;
 import dev.nikkune.msrisk.dto.RiskDTO;
 import dev.nikkune.msrisk.model.RiskLevel;
 import dev.nikkune.msrisk.util.AgeCalculator;
 import org.springframework.stereotype.Service;
 
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 @Service
 public class RiskService implements IRiskService {
@@ -26,17 +29,7 @@ public class RiskService implements IRiskService {
         RiskDTO patient = patientClient.getPatientRiskInfo(firstName, lastName);
         int age = AgeCalculator.ageInYears(patient.getBirthDate());
         boolean isFemale = patient.getGender().equals("F");
-        List<String> notes = notesClient.allPatientNotes(firstName, lastName);
-        int triggerCount = 0;
-        for (String note : notes) {
-            String lowerCaseNote = note == null ? "" : note.toLowerCase();
-            for (String triggerWord : triggerWords) {
-                if (triggerWord == null || triggerWord.isBlank()) continue;
-                if (lowerCaseNote.contains(triggerWord.toLowerCase())) {
-                    triggerCount++;
-                }
-            }
-        }
+        int triggerCount = triggerCount(notesClient.allPatientNotes(firstName, lastName));
 
         if (triggerCount == 0) return RiskLevel.NONE;
 
@@ -56,4 +49,36 @@ public class RiskService implements IRiskService {
 
         return RiskLevel.NOT_APPLICABLE;
     }
+
+    /**
+     * Counts the trigger words found in the notes, once per note. Identical notes are common
+     * (imports, copy-paste), so each distinct text is scanned once and its count is multiplied
+     * by the number of notes sharing it. Notes are grouped by content hash; notes written before
+     * ms-notes hashed them are grouped by their text.
+     *
+     * @param notes the notes of a patient
+     * @return the number of trigger word occurrences, counted once per word and per note
+     */
+    int triggerCount(List<NoteDTO> notes) {
+        Map<String, Integer> occurrences = new HashMap<>();
+        Map<String, String> texts = new HashMap<>();
+        for (NoteDTO note : notes) {
+            String text = note.getNote() == null ? "" : note.getNote();
+            // a NUL prefix keeps text keys apart from the hexadecimal hashes
+            String key = note.getContentHash() != null ? note.getContentHash() : '\u0000' + text;
+            occurrences.merge(key, 1, Integer::sum);
+            texts.putIfAbsent(key, text);
+        }
+        int triggerCount = 0;
+        for (Map.Entry<String, Integer> entry : occurrences.entrySet()) {
+            String lowerCaseNote = texts.get(entry.getKey()).toLowerCase();
+            for (String triggerWord : triggerWords) {
+                if (triggerWord == null || triggerWord.isBlank()) continue;
+                if (lowerCaseNote.contains(triggerWord.toLowerCase())) {
+                    triggerCount += entry.getValue();
+                }
+            }
+        }
+        return triggerCount;
+    }
 }
@@ -0,0 +1,87 @@
+package dev.nikkune.msrisk.service;
+
+import dev.nikkune.msrisk.client.NotesClient;
+import dev.nikkune.msrisk.client.PatientClient;
+import dev.nikkune.msrisk.dto.NoteDTO;
+import dev.nikkune.msrisk.dto.RiskDTO;
+import dev.nikkune.msrisk.model.RiskLevel;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class RiskServiceTest {
+
+    private PatientClient patientClient;
+    private NotesClient notesClient;
+    private RiskService riskService;
+
+    @BeforeEach
+    public void setUp() {
+        patientClient = Mockito.mock(PatientClient.class);
+        notesClient = Mockito.mock(NotesClient.class);
+        riskService = new RiskService(patientClient, notesClient, List.of("Fumeur", "Vertiges", "Poids", "Anormal"));
+
+        RiskDTO patient = new RiskDTO();
+        patient.setBirthDate(Date.from(LocalDate.now().minusYears(50).atStartOfDay(ZoneId.systemDefault()).toInstant()));
+        patient.setGender("M");
+        when(patientClient.getPatientRiskInfo("John", "Doe")).thenReturn(patient);
+    }
+
+    @Test
+    public void calculateRiskLevel_countsEveryDuplicateNote() {
+        // two triggers per note, three identical notes: 6 triggers, 2 if duplicates were dropped
+        when(notesClient.allPatientNotes("John", "Doe")).thenReturn(List.of(
+                note("Fumeur, vertiges", "h1"),
+                note("Fumeur, vertiges", "h1"),
+                note("Fumeur, vertiges", "h1")));
+
+        assertEquals(RiskLevel.IN_DANGER, riskService.calculateRiskLevel("John", "Doe"));
+    }
+
+    @Test
+    public void triggerCount_isTheSameWithAndWithoutDuplicates() {
+        List<NoteDTO> notes = List.of(
+                note("Poids anormal", "h1"),
+                note("Poids anormal", "h1"),
+                note("Vertiges", "h2"),
+                note("Rien à signaler", "h3"),
+                note("Poids anormal", "h1"));
+
+        assertEquals(7, riskService.triggerCount(notes));
+    }
+
+    @Test
+    public void triggerCount_groupsNotesWithoutHashByText() {
+        List<NoteDTO> notes = List.of(
+                note("Fumeur", null),
+                note("Fumeur", null),
+                note("Fumeur", "h1"),
+                note(null, null));
+
+        assertEquals(3, riskService.triggerCount(notes));
+    }
+
+    @Test
+    public void triggerCount_doesNotMixATextWithAnEqualHash() {
+        List<NoteDTO> notes = List.of(
+                note("Vertiges", "Fumeur"),
+                note("Fumeur", null));
+
+        assertEquals(2, riskService.triggerCount(notes));
+    }
+
+    private static NoteDTO note(String text, String contentHash) {
+        NoteDTO note = new NoteDTO();
+        note.setNote(text);
+        note.setContentHash(contentHash);
+        return note;
+    }
+}
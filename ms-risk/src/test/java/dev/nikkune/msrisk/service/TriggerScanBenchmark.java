@@ -0,0 +1,112 @@
+package dev.nikkune.msrisk.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.nikkune.msrisk.config.TriggerWordsProvider;
+import dev.nikkune.msrisk.dto.NoteDTO;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Stand-alone benchmark measuring how much of a patient's notes are byte-identical duplicates, and
+ * the trigger scan of {@link RiskService#triggerCount(List)}, which scans each distinct note once,
+ * against a scan of every note.
+ * <p>
+ * The corpus is built from the note texts of {@code docker/mongo-init/data.json}: {@value #PATIENTS}
+ * patients with 4 to 16 notes each, drawn at random from those texts and hashed as ms-notes does.
+ * Run with {@code java -cp target/classes:target/test-classes:<dependencies> dev.nikkune.msrisk.service.TriggerScanBenchmark
+ * [data.json]} from the module directory, or from the IDE. It is not part of the test suite.
+ */
+public class TriggerScanBenchmark {
+    private static final int PATIENTS = 10_000;
+    private static final int ROUNDS = 10;
+
+    public static void main(String[] args) throws Exception {
+        File data = new File(args.length > 0 ? args[0] : "../docker/mongo-init/data.json");
+        List<String> texts = new ArrayList<>();
+        for (JsonNode note : new ObjectMapper().readTree(data)) {
+            texts.add(note.get("note").asText());
+        }
+        List<String> triggerWords = new TriggerWordsProvider().triggerWords();
+        RiskService riskService = new RiskService(null, null, triggerWords);
+
+        List<NoteDTO> templates = new ArrayList<>();
+        for (String text : texts) {
+            NoteDTO note = new NoteDTO();
+            note.setNote(text);
+            note.setContentHash(sha256(text));
+            templates.add(note);
+        }
+        Random random = new Random(42);
+        List<List<NoteDTO>> corpus = new ArrayList<>(PATIENTS);
+        long notes = 0;
+        long distinctNotes = 0;
+        long bytes = 0;
+        long distinctBytes = 0;
+        for (int p = 0; p < PATIENTS; p++) {
+            List<NoteDTO> patientNotes = new ArrayList<>();
+            int count = 4 + random.nextInt(13);
+            for (int i = 0; i < count; i++) {
+                patientNotes.add(templates.get(random.nextInt(templates.size())));
+            }
+            corpus.add(patientNotes);
+            Set<String> distinct = new HashSet<>();
+            for (NoteDTO note : patientNotes) {
+                int size = note.getNote().getBytes(StandardCharsets.UTF_8).length;
+                bytes += size;
+                if (distinct.add(note.getContentHash())) {
+                    distinctBytes += size;
+                }
+            }
+            notes += count;
+            distinctNotes += distinct.size();
+        }
+        System.out.printf("%d patients, %d notes (%.2f per patient), %d distinct texts in the corpus%n",
+                PATIENTS, notes, (double) notes / PATIENTS, texts.size());
+        System.out.printf("distinct notes within each patient: %d in total, %.2f per patient%n",
+                distinctNotes, (double) distinctNotes / PATIENTS);
+        System.out.printf("note bodies: %.1f MB, %.1f MB without per-patient duplicates (%.1f%% saved)%n",
+                bytes / 1e6, distinctBytes / 1e6, 100.0 * (bytes - distinctBytes) / bytes);
+
+        System.out.printf("%-10s %12s %12s %10s%n", "round", "every ms", "distinct ms", "same");
+        for (int round = 0; round < ROUNDS; round++) {
+            long start = System.nanoTime();
+            long every = 0;
+            for (List<NoteDTO> patientNotes : corpus) {
+                every += scanEveryNote(patientNotes, triggerWords);
+            }
+            long middle = System.nanoTime();
+            long distinct = 0;
+            for (List<NoteDTO> patientNotes : corpus) {
+                distinct += riskService.triggerCount(patientNotes);
+            }
+            long end = System.nanoTime();
+            System.out.printf("%-10d %12.1f %12.1f %10b%n", round, (middle - start) / 1e6, (end - middle) / 1e6, every == distinct);
+        }
+    }
+
+    private static int scanEveryNote(List<NoteDTO> notes, List<String> triggerWords) {
+        int triggerCount = 0;
+        for (NoteDTO note : notes) {
+            String lowerCaseNote = note.getNote().toLowerCase();
+            for (String triggerWord : triggerWords) {
+                if (lowerCaseNote.contains(triggerWord.toLowerCase())) {
+                    triggerCount++;
+                }
+            }
+        }
+        return triggerCount;
+    }
+
+    private static String sha256(String text) throws Exception {
+        return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(text.getBytes(StandardCharsets.UTF_8)));
+    }
+}